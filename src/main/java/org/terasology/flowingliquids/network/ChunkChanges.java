@@ -0,0 +1,89 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.network;
+
+import org.joml.Vector3i;
+import org.joml.Vector3ic;
+
+import java.util.Arrays;
+
+/**
+ * The liquid data changes in one chunk which haven't been sent yet. Changes are appended as they happen, and only
+ * sorted and deduplicated when they're about to be encoded, or when the list gets long.
+ */
+class ChunkChanges {
+    private final Vector3i chunkPos;
+    private long[] entries = new long[64];
+    private int count;
+    /** The number of entries at the start which are already sorted and unique. */
+    private int compacted;
+
+    ChunkChanges(Vector3ic chunkPos) {
+        this.chunkPos = new Vector3i(chunkPos);
+    }
+
+    Vector3ic getChunkPos() {
+        return chunkPos;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Record a change to a cell, replacing any earlier change to the same cell.
+     */
+    void add(int cellIndex, int value) {
+        if (count == entries.length) {
+            compact();
+            if (count * 2 > entries.length) {
+                entries = Arrays.copyOf(entries, entries.length * 2);
+            }
+        }
+        entries[count++] = LiquidBatchCodec.entry(cellIndex, value);
+    }
+
+    void addAll(ChunkChanges other) {
+        for (int i = 0; i < other.count; i++) {
+            long entry = other.entries[i];
+            add(LiquidBatchCodec.entryCell(entry), LiquidBatchCodec.entryValue(entry));
+        }
+    }
+
+    /**
+     * @return The changes encoded by {@link LiquidBatchCodec}
+     */
+    byte[] encode() {
+        compact();
+        return LiquidBatchCodec.encode(entries, count);
+    }
+
+    void clear() {
+        count = 0;
+        compacted = 0;
+    }
+
+    /**
+     * Sort the entries by cell, keeping only the latest change to each cell.
+     */
+    private void compact() {
+        if (compacted == count) {
+            return;
+        }
+        // Walk backwards so that the latest change to each cell is the one seen first.
+        long[] seen = new long[LiquidBatchCodec.CHUNK_VOLUME / 64];
+        int kept = count;
+        for (int i = count - 1; i >= 0; i--) {
+            int cell = LiquidBatchCodec.entryCell(entries[i]);
+            if ((seen[cell >> 6] & (1L << cell)) == 0) {
+                seen[cell >> 6] |= 1L << cell;
+                entries[--kept] = entries[i];
+            }
+        }
+        System.arraycopy(entries, kept, entries, 0, count - kept);
+        count -= kept;
+        Arrays.sort(entries, 0, count);
+        compacted = count;
+    }
+}
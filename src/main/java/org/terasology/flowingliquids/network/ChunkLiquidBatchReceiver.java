@@ -0,0 +1,88 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.network;
+
+import org.joml.Vector3i;
+import org.joml.Vector3ic;
+import org.terasology.engine.world.chunks.Chunk;
+import org.terasology.engine.world.chunks.ChunkProvider;
+import org.terasology.engine.world.chunks.Chunks;
+import org.terasology.flowingliquids.world.block.LiquidDataCodec;
+
+/**
+ * Applies batches of liquid data changes straight to the loaded chunks, and marks the chunks for re-meshing where the
+ * height of the liquid changed. Changes to just the direction or rate of flow aren't drawn, so they don't need a
+ * re-mesh. Batches for chunks which aren't loaded are dropped; the chunk will have the current data when it's sent.
+ */
+public class ChunkLiquidBatchReceiver implements LiquidBatchReceiver {
+    private final ChunkProvider chunkProvider;
+    private final int flowIx;
+    private final int highIx;
+    private final Vector3i neighbourPos = new Vector3i();
+
+    /**
+     * @param flowIx The slot of the {@link org.terasology.flowingliquids.world.block.LiquidData#EXTRA_DATA_NAME} field
+     * @param highIx The slot of the {@link LiquidDataCodec#HIGH_EXTRA_DATA_NAME} field, or -1 if it isn't registered
+     */
+    public ChunkLiquidBatchReceiver(ChunkProvider chunkProvider, int flowIx, int highIx) {
+        this.chunkProvider = chunkProvider;
+        this.flowIx = flowIx;
+        this.highIx = highIx;
+    }
+
+    @Override
+    public void receive(Vector3ic chunkPos, byte[] batch) {
+        Chunk chunk = chunkProvider.getChunk(chunkPos);
+        if (chunk == null) {
+            return;
+        }
+        boolean[] heightChanged = {false};
+        LiquidBatchCodec.decode(batch, (cellIndex, value) -> {
+            int x = LiquidBatchCodec.cellX(cellIndex);
+            int y = LiquidBatchCodec.cellY(cellIndex);
+            int z = LiquidBatchCodec.cellZ(cellIndex);
+            int oldHeight = height(chunk.getExtraData(flowIx, x, y, z), highIx < 0 ? 0 : chunk.getExtraData(highIx, x, y, z));
+            chunk.setExtraData(flowIx, x, y, z, LiquidDataCodec.low(value));
+            if (highIx >= 0) {
+                chunk.setExtraData(highIx, x, y, z, LiquidDataCodec.high(value));
+            }
+            if (oldHeight != height(LiquidDataCodec.low(value), LiquidDataCodec.high(value))) {
+                heightChanged[0] = true;
+                markNeighboursDirty(chunkProvider, chunkPos, x, z, neighbourPos);
+            }
+        });
+        if (heightChanged[0]) {
+            chunk.setDirty(true);
+        }
+    }
+
+    private static int height(int low, int high) {
+        return LiquidDataCodec.WIDE.getHeight(LiquidDataCodec.WIDE.decode(low, high));
+    }
+
+    /**
+     * The surface of liquid at the edge of a chunk is averaged with the neighbouring chunks, so changing its height
+     * means those chunks need re-meshing too.
+     *
+     * @param x The x coordinate of the changed cell, relative to the chunk
+     * @param z The z coordinate of the changed cell, relative to the chunk
+     * @param scratch A vector to use while finding the neighbours
+     */
+    public static void markNeighboursDirty(ChunkProvider chunkProvider, Vector3ic chunkPos, int x, int z, Vector3i scratch) {
+        int minX = x == 0 ? -1 : 0;
+        int maxX = x == Chunks.SIZE_X - 1 ? 1 : 0;
+        int minZ = z == 0 ? -1 : 0;
+        int maxZ = z == Chunks.SIZE_Z - 1 ? 1 : 0;
+        for (int dx = minX; dx <= maxX; dx++) {
+            for (int dz = minZ; dz <= maxZ; dz++) {
+                if (dx != 0 || dz != 0) {
+                    Chunk neighbour = chunkProvider.getChunk(scratch.set(chunkPos).add(dx, 0, dz));
+                    if (neighbour != null) {
+                        neighbour.setDirty(true);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.network;
+
+import org.terasology.engine.world.chunks.Chunks;
+
+import java.util.Arrays;
+
+/**
+ * Encodes the changes to the liquid data in one chunk into a compact batch.
+ * <p>
+ * A batch starts with the number of bytes in each value: one if every value fits in the low byte, as in narrow worlds,
+ * or two, so that both bytes of wide data arrive together. Then comes a sequence of runs of consecutive cells (in
+ * {@link #cellIndex} order) which all changed to the same value. Each run is written as the gap since the end of the
+ * previous run and the length of the run, both as unsigned LEB128 varints, followed by the value, low byte first.
+ * Liquid changes come in contiguous patches, so most gaps and lengths fit in one byte.
+ */
+public final class LiquidBatchCodec {
+    public static final int CHUNK_VOLUME = Chunks.SIZE_X * Chunks.SIZE_Y * Chunks.SIZE_Z;
+
+    /**
+     * Receives the cells decoded from a batch.
+     */
+    public interface CellConsumer {
+        /**
+         * @param value The liquid data, with the low byte of the {@link
+         *     org.terasology.flowingliquids.world.block.LiquidDataCodec} format in the low 8 bits and the high byte, or
+         *     zero, in the next 8
+         */
+        void accept(int cellIndex, int value);
+    }
+
+    private LiquidBatchCodec() {
+    }
+
+    /**
+     * @return The index of a position within a chunk, given relative to the chunk
+     */
+    public static int cellIndex(int x, int y, int z) {
+        return (x * Chunks.SIZE_Y + y) * Chunks.SIZE_Z + z;
+    }
+
+    public static int cellX(int cellIndex) {
+        return cellIndex / (Chunks.SIZE_Y * Chunks.SIZE_Z);
+    }
+
+    public static int cellY(int cellIndex) {
+        return (cellIndex / Chunks.SIZE_Z) % Chunks.SIZE_Y;
+    }
+
+    public static int cellZ(int cellIndex) {
+        return cellIndex % Chunks.SIZE_Z;
+    }
+
+    /**
+     * Pack a change to a cell into a long, in a form which sorts by cell index.
+     */
+    static long entry(int cellIndex, int value) {
+        return ((long) cellIndex << 16) | (value & 0xFFFF);
+    }
+
+    static int entryCell(long entry) {
+        return (int) (entry >>> 16);
+    }
+
+    static int entryValue(long entry) {
+        return (int) entry & 0xFFFF;
+    }
+
+    /**
+     * @param entries Changes packed by {@link #entry}, sorted by cell with no cell appearing twice
+     * @param count The number of entries to encode
+     * @return The encoded batch
+     */
+    static byte[] encode(long[] entries, int count) {
+        int width = 1;
+        for (int i = 0; i < count && width == 1; i++) {
+            if (entryValue(entries[i]) > 0xFF) {
+                width = 2;
+            }
+        }
+        byte[] out = new byte[Math.max(16, count * (1 + width))];
+        out[0] = (byte) width;
+        int size = 1;
+        int previousEnd = 0;
+        int i = 0;
+        while (i < count) {
+            int start = entryCell(entries[i]);
+            int value = entryValue(entries[i]);
+            int length = 1;
+            while (i + length < count && entryCell(entries[i + length]) == start + length && entryValue(entries[i + length]) == value) {
+                length++;
+            }
+            if (out.length - size < 11) {
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+            size = writeVarint(out, size, start - previousEnd);
+            size = writeVarint(out, size, length);
+            out[size++] = (byte) value;
+            if (width == 2) {
+                out[size++] = (byte) (value >> 8);
+            }
+            previousEnd = start + length;
+            i += length;
+        }
+        return Arrays.copyOf(out, size);
+    }
+
+    /**
+     * @param batch A batch produced by {@link #encode}
+     * @param consumer Receives each changed cell, in increasing order of cell index
+     * @throws IllegalArgumentException If the batch is malformed
+     */
+    public static void decode(byte[] batch, CellConsumer consumer) {
+        if (batch.length == 0 || batch[0] != 1 && batch[0] != 2) {
+            throw new IllegalArgumentException("Liquid batch has an unknown value size.");
+        }
+        int width = batch[0];
+        int pos = 1;
+        int cell = 0;
+        while (pos < batch.length) {
+            int gap = 0;
+            int length = 0;
+            for (int field = 0; field < 2; field++) {
+                int value = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    if (pos >= batch.length || shift > 28) {
+                        throw new IllegalArgumentException("Truncated or malformed liquid batch.");
+                    }
+                    b = batch[pos++];
+                    value |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                if (field == 0) {
+                    gap = value;
+                } else {
+                    length = value;
+                }
+            }
+            if (batch.length - pos < width) {
+                throw new IllegalArgumentException("Truncated or malformed liquid batch.");
+            }
+            int value = batch[pos++] & 0xFF;
+            if (width == 2) {
+                value |= (batch[pos++] & 0xFF) << 8;
+            }
+            // Compared this way round so that huge gaps and lengths can't overflow.
+            if (gap < 0 || gap > CHUNK_VOLUME - cell || length <= 0 || length > CHUNK_VOLUME - cell - gap) {
+                throw new IllegalArgumentException("Liquid batch refers to cells outside the chunk.");
+            }
+            cell += gap;
+            for (int i = 0; i < length; i++) {
+                consumer.accept(cell++, value);
+            }
+        }
+    }
+
+    private static int writeVarint(byte[] out, int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            out[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[pos++] = (byte) value;
+        return pos;
+    }
+}
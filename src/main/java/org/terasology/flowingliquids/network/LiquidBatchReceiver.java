@@ -0,0 +1,17 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.network;
+
+import org.joml.Vector3ic;
+
+/**
+ * The client end of liquid replication, which applies batches of changes to its copy of the world.
+ */
+public interface LiquidBatchReceiver {
+    /**
+     * @param chunkPos The position of the chunk the changes are in
+     * @param batch The changes, encoded by {@link LiquidBatchCodec}
+     */
+    void receive(Vector3ic chunkPos, byte[] batch);
+}
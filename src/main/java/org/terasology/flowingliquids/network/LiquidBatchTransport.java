@@ -0,0 +1,19 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.network;
+
+import org.joml.Vector3ic;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+
+/**
+ * Delivers batches of liquid data changes to a client.
+ */
+public interface LiquidBatchTransport {
+    /**
+     * @param client The entity of the client to send to
+     * @param chunkPos The position of the chunk the changes are in
+     * @param batch The changes, encoded by {@link LiquidBatchCodec}
+     */
+    void send(EntityRef client, Vector3ic chunkPos, byte[] batch);
+}
@@ -0,0 +1,35 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.network;
+
+import org.joml.Vector3i;
+import org.joml.Vector3ic;
+import org.terasology.engine.network.OwnerEvent;
+import org.terasology.gestalt.entitysystem.event.Event;
+
+/**
+ * Sent from the server to a client's entity, carrying a batch of changes to the liquid data in one chunk, encoded by
+ * {@link LiquidBatchCodec}.
+ */
+@OwnerEvent
+public class LiquidDataBatchEvent implements Event {
+    private Vector3i chunkPos;
+    private byte[] batch;
+
+    public LiquidDataBatchEvent() {
+    }
+
+    public LiquidDataBatchEvent(Vector3ic chunkPos, byte[] batch) {
+        this.chunkPos = new Vector3i(chunkPos);
+        this.batch = batch;
+    }
+
+    public Vector3ic getChunkPos() {
+        return chunkPos;
+    }
+
+    public byte[] getBatch() {
+        return batch;
+    }
+}
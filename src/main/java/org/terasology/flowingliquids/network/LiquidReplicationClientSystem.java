@@ -0,0 +1,48 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.network;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.world.chunks.ChunkProvider;
+import org.terasology.engine.world.chunks.blockdata.ExtraBlockDataManager;
+import org.terasology.flowingliquids.world.block.LiquidData;
+import org.terasology.flowingliquids.world.block.LiquidDataCodec;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+
+/**
+ * Applies the batches of liquid changes sent by {@link LiquidReplicationSystem} on remote clients.
+ */
+@RegisterSystem(RegisterMode.REMOTE_CLIENT)
+public class LiquidReplicationClientSystem extends BaseComponentSystem {
+    private static final Logger logger = LoggerFactory.getLogger(LiquidReplicationClientSystem.class);
+
+    @In
+    private ChunkProvider chunkProvider;
+
+    @In
+    private ExtraBlockDataManager extraDataManager;
+
+    private LiquidBatchReceiver receiver;
+
+    @Override
+    public void initialise() {
+        receiver = new ChunkLiquidBatchReceiver(chunkProvider, extraDataManager.getSlotNumber(LiquidData.EXTRA_DATA_NAME),
+            LiquidDataCodec.highSlot(extraDataManager));
+    }
+
+    @ReceiveEvent
+    public void onLiquidBatch(LiquidDataBatchEvent event, EntityRef client) {
+        try {
+            receiver.receive(event.getChunkPos(), event.getBatch());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Ignoring malformed liquid batch for chunk {}", event.getChunkPos(), e);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.network;
+
+import org.joml.Vector3f;
+import org.joml.Vector3i;
+import org.joml.Vector3ic;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
+import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.engine.network.Client;
+import org.terasology.engine.network.ClientComponent;
+import org.terasology.engine.network.NetworkSystem;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.engine.world.chunks.Chunks;
+import org.terasology.flowingliquids.world.block.LiquidChunkIndex;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Replicates changes to liquid data to clients in batches, rather than as individual extra data changes.
+ * <p>
+ * The flow simulation writes changes straight into the chunk and records them here. Every
+ * {@link #FLUSH_INTERVAL} seconds the changes to each chunk are encoded by {@link LiquidBatchCodec} and sent to each
+ * remote client. Chunks far from a client's character are sent less often, with the changes held back and merged in
+ * the meantime, so a flood on the other side of the world doesn't compete with the water around the player. Chunks
+ * outside the client's view distance aren't sent at all, as the client doesn't have them loaded; they come with the
+ * current data when they are sent to the client.
+ */
+@RegisterSystem(RegisterMode.AUTHORITY)
+@Share(LiquidReplicationSystem.class)
+public class LiquidReplicationSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
+    private static final float FLUSH_INTERVAL = 0.1f;
+    /**
+     * Chunks within the first of these distances (in chunks) of a client are sent on every flush, and each further
+     * band is sent half as often as the one before it.
+     */
+    private static final int[] BAND_DISTANCES = {2, 4, 8};
+
+    @In
+    private NetworkSystem networkSystem;
+
+    private LiquidBatchTransport transport = new NetworkLiquidBatchTransport();
+    private boolean enabled = true;
+
+    private final Map<Long, ChunkChanges> pending = new HashMap<>();
+    /** The chunk most recently written to, as changes tend to come in runs in the same chunk. */
+    private long lastChunkKey;
+    private ChunkChanges lastChunk;
+
+    private final Map<EntityRef, ClientState> clients = new HashMap<>();
+    private float timeSinceFlush;
+    private int flushCount;
+
+    /**
+     * @return Whether liquid height changes should be replicated through this system, rather than the world provider.
+     *     Wide worlds always use it, so that the two bytes of their data arrive together.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Replace the transport used to send batches, for instance with one which hands them straight to a receiver in
+     * the same process, to check replication without a remote client.
+     */
+    public void setTransport(LiquidBatchTransport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Record a change to the liquid data which has been written directly to the chunk, to be sent to clients.
+     *
+     * @param value Both bytes of the liquid data, so that they reach clients together
+     */
+    public void recordChange(int x, int y, int z, int value) {
+        int chunkX = Math.floorDiv(x, Chunks.SIZE_X);
+        int chunkY = Math.floorDiv(y, Chunks.SIZE_Y);
+        int chunkZ = Math.floorDiv(z, Chunks.SIZE_Z);
+        long key = LiquidChunkIndex.chunkKey(chunkX, chunkY, chunkZ);
+        if (lastChunk == null || key != lastChunkKey) {
+            lastChunk = pending.computeIfAbsent(key, k -> new ChunkChanges(new Vector3i(chunkX, chunkY, chunkZ)));
+            lastChunkKey = key;
+        }
+        lastChunk.add(LiquidBatchCodec.cellIndex(Math.floorMod(x, Chunks.SIZE_X), Math.floorMod(y, Chunks.SIZE_Y), Math.floorMod(z, Chunks.SIZE_Z)), value);
+    }
+
+    @Override
+    public void update(float delta) {
+        timeSinceFlush += delta;
+        if (timeSinceFlush >= FLUSH_INTERVAL) {
+            timeSinceFlush = 0;
+            flush();
+        }
+    }
+
+    private void flush() {
+        flushCount++;
+        updateClients();
+        for (Map.Entry<Long, ChunkChanges> entry : pending.entrySet()) {
+            ChunkChanges changes = entry.getValue();
+            byte[] encoded = null;
+            for (ClientState client : clients.values()) {
+                if (!client.inView(changes.getChunkPos())) {
+                    continue;
+                }
+                ChunkChanges held = client.held.get(entry.getKey());
+                if (held == null && client.interval(changes.getChunkPos()) == 1) {
+                    if (encoded == null) {
+                        encoded = changes.encode();
+                    }
+                    transport.send(client.entity, changes.getChunkPos(), encoded);
+                } else {
+                    if (held == null) {
+                        held = new ChunkChanges(changes.getChunkPos());
+                        client.held.put(entry.getKey(), held);
+                    }
+                    held.addAll(changes);
+                }
+            }
+        }
+        pending.clear();
+        lastChunk = null;
+
+        for (ClientState client : clients.values()) {
+            Iterator<ChunkChanges> heldChunks = client.held.values().iterator();
+            while (heldChunks.hasNext()) {
+                ChunkChanges held = heldChunks.next();
+                if (!client.inView(held.getChunkPos())) {
+                    heldChunks.remove();
+                } else if (flushCount % client.interval(held.getChunkPos()) == 0) {
+                    transport.send(client.entity, held.getChunkPos(), held.encode());
+                    heldChunks.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the current remote clients and where their characters are, forgetting clients which have left.
+     */
+    private void updateClients() {
+        for (Client client : networkSystem.getPlayers()) {
+            if (client.isLocal()) {
+                // The local player shares the server's world, which already has the changes.
+                continue;
+            }
+            ClientState state = clients.computeIfAbsent(client.getEntity(), ClientState::new);
+            state.lastSeen = flushCount;
+            Vector3ic viewDistance = client.getViewDistance().getChunkDistance();
+            state.viewExtents.set(viewDistance.x() / 2, viewDistance.y() / 2, viewDistance.z() / 2);
+            ClientComponent clientComponent = client.getEntity().getComponent(ClientComponent.class);
+            LocationComponent location = clientComponent != null ? clientComponent.character.getComponent(LocationComponent.class) : null;
+            state.hasPosition = location != null;
+            if (location != null) {
+                Vector3f pos = location.getWorldPosition(new Vector3f());
+                state.chunkPos.set(Math.floorDiv((int) Math.floor(pos.x), Chunks.SIZE_X),
+                    Math.floorDiv((int) Math.floor(pos.y), Chunks.SIZE_Y), Math.floorDiv((int) Math.floor(pos.z), Chunks.SIZE_Z));
+            }
+        }
+        clients.values().removeIf(state -> state.lastSeen != flushCount);
+    }
+
+    private static final class ClientState {
+        private final EntityRef entity;
+        private final Vector3i chunkPos = new Vector3i();
+        /** How many chunks the client has loaded either side of its character's chunk, along each axis. */
+        private final Vector3i viewExtents = new Vector3i();
+        private boolean hasPosition;
+        private int lastSeen;
+        /** Changes held back from distant chunks, to be sent when their band is next due. */
+        private final Map<Long, ChunkChanges> held = new HashMap<>();
+
+        ClientState(EntityRef entity) {
+            this.entity = entity;
+        }
+
+        /**
+         * @return Whether the chunk is within the client's view distance, so that the client has it loaded. Until the
+         *     client's character has a position, every chunk is treated as in view, and sent in the slowest band.
+         */
+        boolean inView(Vector3ic chunk) {
+            return !hasPosition || Math.abs(chunk.x() - chunkPos.x) <= viewExtents.x
+                && Math.abs(chunk.y() - chunkPos.y) <= viewExtents.y && Math.abs(chunk.z() - chunkPos.z) <= viewExtents.z;
+        }
+
+        /**
+         * @return How many flushes apart changes to the chunk should be sent to this client
+         */
+        int interval(Vector3ic chunk) {
+            if (!hasPosition) {
+                return 1 << BAND_DISTANCES.length;
+            }
+            int distance = Math.max(Math.abs(chunk.x() - chunkPos.x),
+                Math.max(Math.abs(chunk.y() - chunkPos.y), Math.abs(chunk.z() - chunkPos.z)));
+            for (int band = 0; band < BAND_DISTANCES.length; band++) {
+                if (distance <= BAND_DISTANCES[band]) {
+                    return 1 << band;
+                }
+            }
+            return 1 << BAND_DISTANCES.length;
+        }
+    }
+}
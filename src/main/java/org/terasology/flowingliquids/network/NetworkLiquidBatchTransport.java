@@ -0,0 +1,17 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.network;
+
+import org.joml.Vector3ic;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+
+/**
+ * Sends batches to remote clients as {@link LiquidDataBatchEvent}s.
+ */
+public class NetworkLiquidBatchTransport implements LiquidBatchTransport {
+    @Override
+    public void send(EntityRef client, Vector3ic chunkPos, byte[] batch) {
+        client.send(new LiquidDataBatchEvent(chunkPos, batch));
+    }
+}
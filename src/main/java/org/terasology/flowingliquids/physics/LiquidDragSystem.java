@@ -3,75 +3,256 @@
 
 package org.terasology.flowingliquids.physics;
 
-import org.joml.RoundingMode;
 import org.joml.Vector3f;
-import org.joml.Vector3i;
+import org.joml.Vector3ic;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.terasology.engine.entitySystem.entity.EntityManager;
 import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
 import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
 import org.terasology.engine.entitySystem.systems.RegisterMode;
 import org.terasology.engine.entitySystem.systems.RegisterSystem;
 import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
 import org.terasology.engine.logic.characters.CharacterImpulseEvent;
 import org.terasology.engine.logic.characters.CharacterMovementComponent;
+import org.terasology.engine.logic.characters.events.OnEnterBlockEvent;
 import org.terasology.engine.logic.location.LocationComponent;
-import org.terasology.engine.math.Side;
 import org.terasology.engine.registry.In;
+import org.terasology.engine.world.OnChangedBlock;
 import org.terasology.engine.world.WorldProvider;
 import org.terasology.engine.world.block.Block;
 import org.terasology.engine.world.chunks.blockdata.ExtraBlockDataManager;
+import org.terasology.flowingliquids.world.block.LiquidChunkIndex;
 import org.terasology.flowingliquids.world.block.LiquidData;
+import org.terasology.flowingliquids.world.block.LiquidDataCodec;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Moves characters along with the flow while they're submerged in liquid.
+ * <p>
+ * Only characters in or next to liquid are checked each frame. The characters are indexed by the chunk they're in,
+ * and whether each one is near liquid is worked out again when it moves into a different block, or when liquid
+ * appears or disappears close to it.
  */
 @RegisterSystem(RegisterMode.AUTHORITY)
 public class LiquidDragSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
 
     private static final Logger logger = LoggerFactory.getLogger(LiquidDragSystem.class);
 
-    @In
-    private WorldProvider worldProvider;
+    /**
+     * How far above or below its centre a character can reach, in blocks, when looking for the characters which
+     * might be affected by a block change. Characters taller than this may miss a change at their extremities until
+     * they next move.
+     */
+    private static final int VERTICAL_REACH = 3;
+    /** The proportion of the flow's drag which is applied to characters each second. */
+    private static final float DRAG_COEFFICIENT = 0.4f;
 
     @In
-    private EntityManager entityManager;
+    private WorldProvider worldProvider;
 
     @In
     private ExtraBlockDataManager extraDataManager;
     private int flowIx;
+    private int highIx;
+
+    /** Every character, keyed by the chunk containing it. */
+    private final Map<Long, Set<EntityRef>> charactersByChunk = new HashMap<>();
+    private final Map<EntityRef, Long> chunkOfCharacter = new HashMap<>();
+    /** The characters which are in or next to liquid, and so might be dragged. */
+    private final Set<EntityRef> nearLiquid = new HashSet<>();
+
+    private final Vector3f pos = new Vector3f();
+    private final long[] nearbyChunks = new long[8];
+    private final List<EntityRef> candidates = new ArrayList<>();
+    /** The characters being dragged this frame, and the x, y and z components of the drag on each. */
+    private final List<EntityRef> dragging = new ArrayList<>();
+    private float[] forces = new float[0];
+    private final LiquidDragTable dragTable = new LiquidDragTable();
 
     @Override
     public void initialise() {
-        flowIx = extraDataManager.getSlotNumber("flowingLiquids.flow");
+        flowIx = extraDataManager.getSlotNumber(LiquidData.EXTRA_DATA_NAME);
+        highIx = LiquidDataCodec.highSlot(extraDataManager);
+    }
+
+    @ReceiveEvent(components = LocationComponent.class)
+    public void characterActivated(OnActivatedComponent event, EntityRef entity, CharacterMovementComponent movement) {
+        refresh(entity);
+    }
+
+    @ReceiveEvent(components = LocationComponent.class)
+    public void characterDeactivated(BeforeDeactivateComponent event, EntityRef entity, CharacterMovementComponent movement) {
+        Long chunk = chunkOfCharacter.remove(entity);
+        if (chunk != null) {
+            removeFromChunk(entity, chunk);
+        }
+        nearLiquid.remove(entity);
+    }
+
+    @ReceiveEvent(components = {CharacterMovementComponent.class, LocationComponent.class})
+    public void characterMoved(OnEnterBlockEvent event, EntityRef entity) {
+        refresh(entity);
+    }
+
+    /**
+     * Liquid appearing or disappearing can change which characters are near it, but liquid which only changes its
+     * height or direction can't.
+     */
+    @ReceiveEvent
+    public void blockChanged(OnChangedBlock event, EntityRef blockEntity) {
+        if (!event.getOldType().isLiquid() && !event.getNewType().isLiquid()) {
+            return;
+        }
+        Vector3ic changed = event.getBlockPosition();
+        int count = 0;
+        for (int i = 0; i < 8; i++) {
+            long key = LiquidChunkIndex.chunkKeyAt(
+                changed.x() + ((i & 1) == 0 ? -1 : 1),
+                changed.y() + ((i & 2) == 0 ? -VERTICAL_REACH : VERTICAL_REACH),
+                changed.z() + ((i & 4) == 0 ? -1 : 1));
+            boolean seen = false;
+            for (int j = 0; j < count; j++) {
+                seen |= nearbyChunks[j] == key;
+            }
+            if (!seen) {
+                nearbyChunks[count++] = key;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            Set<EntityRef> characters = charactersByChunk.get(nearbyChunks[i]);
+            if (characters != null) {
+                candidates.addAll(characters);
+            }
+        }
+        for (EntityRef entity : candidates) {
+            refresh(entity);
+        }
+        candidates.clear();
     }
 
     @Override
     public void update(float delta) {
-        for (EntityRef entity : entityManager.getEntitiesWith(CharacterMovementComponent.class, LocationComponent.class)) {
-            float charHeight = entity.getComponent(CharacterMovementComponent.class).height;
-            Vector3f pos = entity.getComponent(LocationComponent.class).getWorldPosition(new Vector3f());
-            int numSamples = (int) charHeight + 1;
-            pos.add(0, -0.5f * charHeight * (1 + 1f / numSamples), 0);
-            Vector3f force = new Vector3f();
-            for (int i = 0; i < numSamples; i++) {
-                pos.add(0, charHeight / numSamples, 0);
-                Vector3i blockPos = new Vector3i(pos, RoundingMode.HALF_UP);
-                Block block = worldProvider.getBlock(blockPos);
-                if (block.isLiquid()) {
-                    byte status = (byte) worldProvider.getExtraData(flowIx, blockPos);
-                    int rate = LiquidData.getRate(status);
-                    if (rate > 0) {
-                        Side direction = LiquidData.getDirection(status);
-                        Vector3f flow = new Vector3f(direction.direction());
-                        flow.mul(rate * block.getMass());
-                        force.add(flow);
+        // Sample the flow for every character first, then send the impulses, as handling them may refresh characters
+        // and change the set being iterated.
+        dragging.addAll(nearLiquid);
+        if (forces.length < dragging.size() * 3) {
+            forces = new float[dragging.size() * 3 * 2];
+        }
+        for (int i = 0; i < dragging.size(); i++) {
+            sampleDrag(dragging.get(i), forces, i * 3);
+        }
+        float scale = delta * DRAG_COEFFICIENT;
+        for (int i = 0; i < dragging.size(); i++) {
+            float x = forces[i * 3];
+            float y = forces[i * 3 + 1];
+            float z = forces[i * 3 + 2];
+            if (x != 0 || y != 0 || z != 0) {
+                dragging.get(i).send(new CharacterImpulseEvent(new Vector3f(x * scale, y * scale, z * scale)));
+            }
+        }
+        dragging.clear();
+    }
+
+    /**
+     * Work out the average drag of the flow over the blocks a character occupies.
+     *
+     * @param dest The array to store the x, y and z components of the drag in
+     * @param offset Where in the array to store them
+     */
+    private void sampleDrag(EntityRef entity, float[] dest, int offset) {
+        dest[offset] = 0;
+        dest[offset + 1] = 0;
+        dest[offset + 2] = 0;
+        CharacterMovementComponent movement = entity.getComponent(CharacterMovementComponent.class);
+        LocationComponent location = entity.getComponent(LocationComponent.class);
+        if (movement == null || location == null) {
+            return;
+        }
+        float charHeight = movement.height;
+        location.getWorldPosition(pos);
+        int numSamples = (int) charHeight + 1;
+        int x = Math.round(pos.x);
+        int z = Math.round(pos.z);
+        float sampleY = pos.y - 0.5f * charHeight * (1 + 1f / numSamples);
+        for (int i = 0; i < numSamples; i++) {
+            sampleY += charHeight / numSamples;
+            int y = Math.round(sampleY);
+            Block block = worldProvider.getBlock(x, y, z);
+            if (block.isLiquid()) {
+                float[] drag = dragTable.get(block);
+                int status = LiquidDragTable.index(LiquidDataCodec.WIDE.decode(worldProvider.getExtraData(flowIx, x, y, z), highIx < 0 ? 0 : worldProvider.getExtraData(highIx, x, y, z)));
+                dest[offset] += drag[status];
+                dest[offset + 1] += drag[status + 1];
+                dest[offset + 2] += drag[status + 2];
+            }
+        }
+        dest[offset] /= numSamples;
+        dest[offset + 1] /= numSamples;
+        dest[offset + 2] /= numSamples;
+    }
+
+    /**
+     * Work out again which chunk a character is in and whether it's near liquid.
+     */
+    private void refresh(EntityRef entity) {
+        CharacterMovementComponent movement = entity.getComponent(CharacterMovementComponent.class);
+        LocationComponent location = entity.getComponent(LocationComponent.class);
+        if (movement == null || location == null) {
+            return;
+        }
+        location.getWorldPosition(pos);
+        long chunk = LiquidChunkIndex.chunkKeyAt(Math.round(pos.x), Math.round(pos.y), Math.round(pos.z));
+        Long oldChunk = chunkOfCharacter.put(entity, chunk);
+        if (oldChunk == null || oldChunk != chunk) {
+            if (oldChunk != null) {
+                removeFromChunk(entity, oldChunk);
+            }
+            charactersByChunk.computeIfAbsent(chunk, k -> new HashSet<>()).add(entity);
+        }
+        if (isNearLiquid(movement.height)) {
+            nearLiquid.add(entity);
+        } else {
+            nearLiquid.remove(entity);
+        }
+    }
+
+    /**
+     * Whether there's liquid in any of the blocks a character of the given height at {@link #pos} samples, or in the
+     * blocks around them.
+     */
+    private boolean isNearLiquid(float charHeight) {
+        int bottom = Math.round(pos.y - 0.5f * charHeight) - 1;
+        int top = Math.round(pos.y + 0.5f * charHeight) + 1;
+        int centreX = Math.round(pos.x);
+        int centreZ = Math.round(pos.z);
+        for (int x = centreX - 1; x <= centreX + 1; x++) {
+            for (int z = centreZ - 1; z <= centreZ + 1; z++) {
+                for (int y = bottom; y <= top; y++) {
+                    if (worldProvider.getBlock(x, y, z).isLiquid()) {
+                        return true;
                     }
                 }
             }
-            force.mul(delta * 0.4f / numSamples);
-            entity.send(new CharacterImpulseEvent(force));
+        }
+        return false;
+    }
+
+    private void removeFromChunk(EntityRef entity, long chunk) {
+        Set<EntityRef> characters = charactersByChunk.get(chunk);
+        if (characters != null) {
+            characters.remove(entity);
+            if (characters.isEmpty()) {
+                charactersByChunk.remove(chunk);
+            }
         }
     }
 }
@@ -0,0 +1,66 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.physics;
+
+import org.joml.Vector3ic;
+import org.terasology.engine.world.block.Block;
+import org.terasology.flowingliquids.world.block.LiquidDataCodec;
+
+import java.util.Arrays;
+
+/**
+ * The drag each possible direction and rate of flow exerts, for each liquid, so that sampling the flow doesn't have to
+ * decode the liquid data or look up the mass of the liquid. Rows are built the first time each liquid is seen.
+ * <p>
+ * Statuses are in the {@link LiquidDataCodec#WIDE} format, and the drag is scaled so that a given speed of flow drags
+ * as hard as it did with the narrow format.
+ */
+final class LiquidDragTable {
+    /** The direction and rate take up bits 6-14 of the wide format. */
+    private static final int FLOW_SHIFT = 6;
+    private static final int STATUSES = 1 << 9;
+    private static final float RATE_SCALE = LiquidDataCodec.NARROW.getMaxHeight() / (float) LiquidDataCodec.WIDE.getMaxHeight();
+
+    /** For each block id, the x, y and z components of the drag for each status, or null if not built yet. */
+    private float[][] rows = new float[0][];
+
+    /**
+     * @return The drag vectors of the liquid, three floats for each status, indexed by {@link #index}
+     */
+    float[] get(Block liquid) {
+        int id = liquid.getId() & 0xFFFF;
+        if (id >= rows.length) {
+            rows = Arrays.copyOf(rows, id + 1);
+        }
+        float[] row = rows[id];
+        if (row == null) {
+            row = build(liquid.getMass());
+            rows[id] = row;
+        }
+        return row;
+    }
+
+    /**
+     * @param status Liquid data in the {@link LiquidDataCodec#WIDE} format
+     * @return The index of the x component of the drag for the status in a row
+     */
+    static int index(int status) {
+        return ((status >> FLOW_SHIFT) & (STATUSES - 1)) * 3;
+    }
+
+    private static float[] build(float mass) {
+        float[] row = new float[STATUSES * 3];
+        for (int i = 0; i < STATUSES; i++) {
+            int status = (i << FLOW_SHIFT) | LiquidDataCodec.WIDE_MARKER;
+            float drag = LiquidDataCodec.WIDE.getRate(status) * RATE_SCALE * mass;
+            if (drag > 0) {
+                Vector3ic direction = LiquidDataCodec.WIDE.getDirection(status).direction();
+                row[i * 3] = direction.x() * drag;
+                row[i * 3 + 1] = direction.y() * drag;
+                row[i * 3 + 2] = direction.z() * drag;
+            }
+        }
+        return row;
+    }
+}
@@ -21,6 +21,7 @@ import org.terasology.engine.world.block.BlockPart;
 import org.terasology.engine.world.block.shapes.BlockMeshPart;
 import org.terasology.engine.world.block.tiles.WorldAtlas;
 import org.terasology.flowingliquids.world.block.LiquidData;
+import org.terasology.flowingliquids.world.block.LiquidDataCodec;
 import org.terasology.nui.Color;
 
 /**
@@ -35,11 +36,13 @@ public class BlockMeshGeneratorDebugLiquid implements BlockMeshGenerator {
     private Mesh mesh;
     private final Block block;
     private final int flowIx;
+    private final int highIx;
     private final Vector2f[] textureOffsets;
 
-    public BlockMeshGeneratorDebugLiquid(Block block, WorldAtlas worldAtlas, int flowIx) {
+    public BlockMeshGeneratorDebugLiquid(Block block, WorldAtlas worldAtlas, int flowIx, int highIx) {
         this.block = block;
         this.flowIx = flowIx;
+        this.highIx = highIx;
         textureOffsets = new Vector2f[17];
         ResourceUrn baseTile = new ResourceUrn("FlowingLiquids:DebugLiquid1");
         Vector2f baseOffset = worldAtlas.getTexCoords(baseTile, true).mul(-1).add(-TEX_COORD_SCALE / 128, -TEX_COORD_SCALE / 128);
@@ -52,7 +55,9 @@ public class BlockMeshGeneratorDebugLiquid implements BlockMeshGenerator {
     @Override
     public void generateChunkMesh(ChunkView view, ChunkMesh chunkMesh, int x, int y, int z) {
         Vector3i pos = new Vector3i(x, y, z);
-        int fluidHeight = LiquidData.getHeight((byte) view.getExtraData(flowIx, pos));
+        int status = LiquidDataCodec.WIDE.decode(view.getExtraData(flowIx, pos), highIx < 0 ? 0 : view.getExtraData(highIx, pos));
+        // There's a texture for each narrow height, so finer heights are rounded up to the next one.
+        int fluidHeight = (int) Math.ceil(LiquidDataCodec.WIDE.getFillFraction(status) * LiquidData.MAX_HEIGHT);
         BlockAppearance appearance = block.getAppearance(null); //I know it's DebugLiquid, which doesn't vary its appearance.
         for (Side side : Side.values()) {
             if (isSideVisibleForBlockTypes(view.getBlock(side.getAdjacentPos(pos, new Vector3i())), block, side)) {
@@ -6,7 +6,6 @@ package org.terasology.flowingliquids.rendering.primitives;
 import org.joml.Vector2f;
 import org.joml.Vector3f;
 import org.joml.Vector3i;
-import org.joml.Vector3ic;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.engine.math.Side;
@@ -21,11 +20,14 @@ import org.terasology.engine.world.block.BlockAppearance;
 import org.terasology.engine.world.block.BlockPart;
 import org.terasology.engine.world.block.shapes.BlockMeshPart;
 import org.terasology.engine.world.block.tiles.WorldAtlas;
-import org.terasology.flowingliquids.world.block.LiquidData;
+import org.terasology.engine.world.chunks.Chunks;
 import org.terasology.gestalt.assets.ResourceUrn;
 import org.terasology.nui.Color;
 import org.terasology.nui.Colorc;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * As the default block mesh generator does not allow the mesh to depend on
  * the liquid value, this modified version must be used for liquids.
@@ -33,17 +35,63 @@ import org.terasology.nui.Colorc;
 public class BlockMeshGeneratorLiquid implements BlockMeshGenerator {
     private static final Logger logger = LoggerFactory.getLogger(BlockMeshGeneratorLiquid.class);
 
+    /**
+     * Corner heights are averages of multiples of 1/64 (the height step of the wide liquid data, which the heightfield
+     * uses for every world) over one to four blocks, so they are all exact multiples of 1/768, and can be used as cache
+     * keys after scaling by this.
+     */
+    private static final int HEIGHT_STEPS = 768;
+    private static final int LOWERED_PART_CACHE_SIZE = 1024;
+    /** In a top face plan, marks a face which is covered by a merged face starting at another block. */
+    private static final short MERGED_AWAY = -1;
+    /** Distinguishes the cache keys of merged top faces from those of lowered parts. */
+    private static final long MERGED_PART_KEY = 1L << 62;
+    /** The most blocks a merged top face covers along each side, so that its cached part stays small. */
+    private static final int MAX_MERGED_SIZE = 8;
+
+    /**
+     * Whether flat liquid surfaces are drawn with merged top faces covering several blocks instead of one per block.
+     * The texture of a block is one tile of the atlas, which can't repeat across a larger quad, so a merged face is
+     * made of one quad per block, each with the whole tile. It's built once for each size and height and reused, which
+     * saves working out the top face of each block separately. Off by default.
+     */
+    private static volatile boolean mergeSurfaces;
+
     private WorldAtlas worldAtlas;
 
     private Block block;
     private Mesh mesh;
 
     private int flowIx;
+    private int highIx;
 
-    public BlockMeshGeneratorLiquid(Block block, WorldAtlas worldAtlas, int flowIx) {
+    /** Chunks may be meshed on several threads at once, so each gets its own heightfield and cache. */
+    private final ThreadLocal<LiquidHeightfield> heightfields;
+    private final ThreadLocal<Map<Long, BlockMeshPart>> loweredParts = ThreadLocal.withInitial(() ->
+        new LinkedHashMap<Long, BlockMeshPart>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, BlockMeshPart> eldest) {
+                return size() > LOWERED_PART_CACHE_SIZE;
+            }
+        });
+
+    public BlockMeshGeneratorLiquid(Block block, WorldAtlas worldAtlas, int flowIx, int highIx) {
         this.block = block;
         this.worldAtlas = worldAtlas;
         this.flowIx = flowIx;
+        this.highIx = highIx;
+        heightfields = ThreadLocal.withInitial(() -> new LiquidHeightfield(block, flowIx, highIx));
+    }
+
+    public static boolean isMergeSurfaces() {
+        return mergeSurfaces;
+    }
+
+    /**
+     * @param merge Whether flat liquid surfaces should be merged into large faces in chunks meshed from now on
+     */
+    public static void setMergeSurfaces(boolean merge) {
+        mergeSurfaces = merge;
     }
 
     @Override
@@ -64,19 +112,29 @@ public class BlockMeshGeneratorLiquid implements BlockMeshGenerator {
             renderType = ChunkMesh.RenderType.WATER_AND_ICE;
         }
 
+        LiquidHeightfield heightfield = heightfields.get();
+        heightfield.use(view);
         Vector3i pos = new Vector3i(x, y, z);
-        float[] renderHeight = getRenderHeight(view, pos);
-        boolean suppressed = view.getBlock(pos.x, pos.y + 1, pos.z) == block; // Render it as full even though it actually isn't.
+        float[] renderHeight = heightfield.getRenderHeight(view, x, y, z, new float[4]);
+        boolean suppressed = heightfield.isSuppressed(view, x, y, z); // Render it as full even though it actually isn't.
         boolean full = suppressed || isFull(renderHeight);
 
         BlockAppearance appearance = block.getAppearance(null); //TODO: collect information the block wants, or avoid this entirely.
         for (Side side : Side.values()) {
             Vector3i adjacentPos = side.getAdjacentPos(pos, new Vector3i());
             Block adjacentBlock = view.getBlock(adjacentPos);
-            boolean adjacentSuppressed = view.getBlock(adjacentPos.x, adjacentPos.y + 1, adjacentPos.z) == block;
+            boolean adjacentSuppressed = heightfield.isSuppressed(view, adjacentPos.x, adjacentPos.y, adjacentPos.z);
             if (isSideVisibleForBlockTypes(adjacentBlock, adjacentSuppressed, block, full, suppressed, side)) {
                 BlockMeshPart basePart = appearance.getPart(BlockPart.fromSide(side));
-                BlockMeshPart loweredPart = lowerPart(side, basePart, renderHeight, suppressed, adjacentBlock == block);
+                BlockMeshPart loweredPart;
+                short merge = side == Side.TOP && mergeSurfaces ? getTopFacePlan(view, heightfield, y)[x * Chunks.SIZE_Z + z] : 0;
+                if (merge == MERGED_AWAY) {
+                    continue;
+                } else if (merge > 0) {
+                    loweredPart = mergedTopPart(basePart, merge >> 8, merge & 0xFF, renderHeight[0]);
+                } else {
+                    loweredPart = lowerPart(side, basePart, renderHeight, suppressed, adjacentBlock == block);
+                }
 
                 Colorc colorOffset = block.getColorOffset(BlockPart.fromSide(side));
                 Colorc colorSource = block.getColorSource(BlockPart.fromSide(side)).calcColor(view, x, y, z);
@@ -89,39 +147,152 @@ public class BlockMeshGeneratorLiquid implements BlockMeshGenerator {
         }
     }
 
-    // The height of the liquid block, as it is displayed.
-    private float[] getRenderHeight(ChunkView view, Vector3ic pos) {
-        float[] heights = new float[4];
-        int[] liquidCount = new int[4];
-        for (int x = -1; x <= 1; x++) {
-            for (int z = -1; z <= 1; z++) {
-                if (view.getBlock(pos.x() + x, pos.y(), pos.z() + z) == block && view.getBlock(pos.x() + x, pos.y() + 1, pos.z() + z) != block) {
-                    int height = LiquidData.getHeight((byte) view.getExtraData(flowIx, pos.x() + x, pos.y(), pos.z() + z));
-                    for (int i = 0; i < 4; i++) {
-                        if (((i < 2) ? (x <= 0) : (x >= 0)) && ((i % 2 == 0) ? (z <= 0) : (z >= 0))) {
-                            liquidCount[i]++;
-                            heights[i] += height / (float) LiquidData.MAX_HEIGHT;
+    private boolean isFull(float[] heights) {
+        for (float height : heights) {
+            if (height < 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the part adjusted to the height of the liquid, reusing a previously lowered part if one was made for the same
+     * heights. The part is returned unchanged if it doesn't need lowering.
+     */
+    private BlockMeshPart lowerPart(Side side, BlockMeshPart basePart, float[] heights, boolean suppressed, boolean matches) {
+        if (side == Side.BOTTOM || (side != Side.TOP && suppressed && !matches) || (!suppressed && isFull(heights))) {
+            return basePart;
+        }
+        Map<Long, BlockMeshPart> cache = loweredParts.get();
+        long key = partKey(side, heights, suppressed, matches);
+        BlockMeshPart part = cache.get(key);
+        if (part == null) {
+            part = createLoweredPart(side, basePart, heights, suppressed, matches);
+            cache.put(key, part);
+        }
+        return part;
+    }
+
+    /**
+     * Work out how to merge the top faces of a layer of the chunk, by greedily covering flat areas of surface with
+     * the same height with rectangles. A merged face is drawn with the light and colour of the block it starts at, so
+     * only columns with the same light above them and the same colour are merged.
+     *
+     * @return For each column of the chunk, 0 to draw its top face normally, {@link #MERGED_AWAY} to skip it, or the
+     *     width and depth of the merged face starting there, packed as {@code width << 8 | depth}
+     */
+    private short[] getTopFacePlan(ChunkView view, LiquidHeightfield heightfield, int y) {
+        short[] plan = heightfield.getTopFacePlan(y);
+        if (plan != null) {
+            return plan;
+        }
+        int sizeX = Chunks.SIZE_X;
+        int sizeZ = Chunks.SIZE_Z;
+        plan = new short[sizeX * sizeZ];
+        // The quantised height of the flat surface in each column, with its light and colour, or -1 if its top face
+        // can't be merged.
+        long[] surfaces = new long[sizeX * sizeZ];
+        float[] corners = new float[4];
+        for (int x = 0; x < sizeX; x++) {
+            for (int z = 0; z < sizeZ; z++) {
+                surfaces[x * sizeZ + z] = -1;
+                if (view.getBlock(x, y, z) != block || heightfield.isSuppressed(view, x, y, z)) {
+                    continue;
+                }
+                heightfield.getRenderHeight(view, x, y, z, corners);
+                if (Float.isNaN(corners[0]) || corners[0] != corners[1] || corners[0] != corners[2] || corners[0] != corners[3]) {
+                    continue;
+                }
+                boolean full = isFull(corners);
+                if (isSideVisibleForBlockTypes(view.getBlock(x, y + 1, z), false, block, full, false, Side.TOP)) {
+                    long color = block.getColorSource(BlockPart.TOP).calcColor(view, x, y, z).rgba() & 0xFFFFFFFFL;
+                    surfaces[x * sizeZ + z] = color << 32 | (long) (view.getSunlight(x, y + 1, z) & 0xFF) << 24
+                        | (view.getBlockLight(x, y + 1, z) & 0xFF) << 16 | Math.round(corners[0] * HEIGHT_STEPS);
+                }
+            }
+        }
+        for (int x = 0; x < sizeX; x++) {
+            for (int z = 0; z < sizeZ; z++) {
+                long surface = surfaces[x * sizeZ + z];
+                if (surface < 0 || plan[x * sizeZ + z] != 0) {
+                    continue;
+                }
+                int depth = 1;
+                while (depth < MAX_MERGED_SIZE && z + depth < sizeZ && surfaces[x * sizeZ + z + depth] == surface
+                    && plan[x * sizeZ + z + depth] == 0) {
+                    depth++;
+                }
+                int width = 1;
+                extend:
+                while (width < MAX_MERGED_SIZE && x + width < sizeX) {
+                    for (int dz = 0; dz < depth; dz++) {
+                        int i = (x + width) * sizeZ + z + dz;
+                        if (surfaces[i] != surface || plan[i] != 0) {
+                            break extend;
+                        }
+                    }
+                    width++;
+                }
+                if (width * depth > 1) {
+                    for (int dx = 0; dx < width; dx++) {
+                        for (int dz = 0; dz < depth; dz++) {
+                            plan[(x + dx) * sizeZ + z + dz] = MERGED_AWAY;
                         }
                     }
+                    plan[x * sizeZ + z] = (short) (width << 8 | depth);
                 }
             }
         }
-        for (int i = 0; i < 4; i++) {
-            heights[i] /= liquidCount[i];
+        heightfield.setTopFacePlan(y, plan);
+        return plan;
+    }
+
+    /**
+     * Get a top face covering several blocks, starting at the block it's drawn for and extending in the positive x and
+     * z directions, with the texture tiled once per block.
+     */
+    private BlockMeshPart mergedTopPart(BlockMeshPart basePart, int width, int depth, float height) {
+        Map<Long, BlockMeshPart> cache = loweredParts.get();
+        long key = MERGED_PART_KEY | (long) width << 24 | (long) depth << 16 | Math.round(height * HEIGHT_STEPS);
+        BlockMeshPart part = cache.get(key);
+        if (part == null) {
+            int size = basePart.size();
+            int indicesSize = basePart.indicesSize();
+            Vector3f[] vertices = new Vector3f[size * width * depth];
+            Vector3f[] normals = new Vector3f[vertices.length];
+            Vector2f[] texCoords = new Vector2f[vertices.length];
+            int[] indices = new int[indicesSize * width * depth];
+            int tile = 0;
+            for (int dx = 0; dx < width; dx++) {
+                for (int dz = 0; dz < depth; dz++) {
+                    for (int i = 0; i < size; i++) {
+                        vertices[tile * size + i] = new Vector3f(basePart.getVertex(i)).add(dx, height - 1f, dz);
+                        normals[tile * size + i] = new Vector3f(basePart.getNormal(i));
+                        texCoords[tile * size + i] = new Vector2f(basePart.getTexCoord(i));
+                    }
+                    for (int i = 0; i < indicesSize; i++) {
+                        indices[tile * indicesSize + i] = tile * size + basePart.getIndex(i);
+                    }
+                    tile++;
+                }
+            }
+            part = new BlockMeshPart(vertices, normals, texCoords, indices);
+            cache.put(key, part);
         }
-        return heights;
+        return part;
     }
 
-    private boolean isFull(float[] heights) {
+    private static long partKey(Side side, float[] heights, boolean suppressed, boolean matches) {
+        long key = side.ordinal();
         for (float height : heights) {
-            if (height < 1) {
-                return false;
-            }
+            // A corner with no surface liquid around it has a NaN height, which gets its own value.
+            key = (key << 10) | (Float.isNaN(height) ? 0x3FF : Math.round(height * HEIGHT_STEPS));
         }
-        return true;
+        return (key << 2) | (suppressed ? 2 : 0) | (matches ? 1 : 0);
     }
 
-    private BlockMeshPart lowerPart(Side side, BlockMeshPart basePart, float[] heights, boolean suppressed, boolean matches) {
+    private BlockMeshPart createLoweredPart(Side side, BlockMeshPart basePart, float[] heights, boolean suppressed, boolean matches) {
         Vector3f[] vertices = new Vector3f[basePart.size()];
         Vector3f[] normals = new Vector3f[basePart.size()];
         Vector2f[] texCoords = new Vector2f[basePart.size()];
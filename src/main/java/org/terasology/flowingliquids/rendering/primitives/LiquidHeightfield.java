@@ -0,0 +1,145 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.rendering.primitives;
+
+import org.terasology.engine.world.ChunkView;
+import org.terasology.engine.world.block.Block;
+import org.terasology.engine.world.chunks.Chunks;
+import org.terasology.flowingliquids.world.block.LiquidDataCodec;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+/**
+ * The liquid surface of one type of liquid over a chunk and a one block margin around it, used while meshing the
+ * chunk. Each cell is read from the chunk view the first time it's needed and then kept, so the neighbourhoods of
+ * adjacent liquid blocks, which mostly overlap, are only read once.
+ * A heightfield is only valid for the view it was filled from, so it is reset whenever it is used with a new view.
+ * It is not thread safe; each meshing thread should have its own.
+ */
+class LiquidHeightfield {
+    private static final int SIZE_X = Chunks.SIZE_X + 2;
+    private static final int SIZE_Y = Chunks.SIZE_Y + 2;
+    private static final int SIZE_Z = Chunks.SIZE_Z + 2;
+
+    private static final byte UNKNOWN = 0;
+    /** A different block. */
+    private static final byte OTHER = 1;
+    /** The liquid, with more of the same liquid above it, so it isn't part of the surface. */
+    private static final byte SUPPRESSED = 2;
+    /** The liquid at the surface. Its height, in units of {@link #DATA}, is added to this. */
+    private static final byte SURFACE = 3;
+    /** Heights are kept in the units of the wide liquid data format, which can read the data of any world. */
+    private static final LiquidDataCodec DATA = LiquidDataCodec.WIDE;
+
+    private final Block block;
+    private final int flowIx;
+    private final int highIx;
+    private final byte[] cells = new byte[SIZE_X * SIZE_Y * SIZE_Z];
+    /** For each layer of the chunk, how the top faces in that layer are merged, or null if it hasn't been planned. */
+    private final short[][] topFacePlans = new short[Chunks.SIZE_Y][];
+    private WeakReference<ChunkView> view = new WeakReference<>(null);
+
+    LiquidHeightfield(Block block, int flowIx, int highIx) {
+        this.block = block;
+        this.flowIx = flowIx;
+        this.highIx = highIx;
+    }
+
+    /**
+     * Make sure the heightfield describes the given view, clearing it if it was used for a different one.
+     */
+    void use(ChunkView chunkView) {
+        if (view.get() != chunkView) {
+            Arrays.fill(cells, UNKNOWN);
+            Arrays.fill(topFacePlans, null);
+            view = new WeakReference<>(chunkView);
+        }
+    }
+
+    /**
+     * Whether the position has more of the same liquid above it. Positions containing anything else are never
+     * suppressed.
+     */
+    boolean isSuppressed(ChunkView chunkView, int x, int y, int z) {
+        return getCell(chunkView, x, y, z) == SUPPRESSED;
+    }
+
+    /**
+     * The height of the liquid surface at each corner of the top of a block, averaged over the surface liquid blocks
+     * touching that corner, as fractions of a full block.
+     *
+     * @param dest The array to fill, with one entry for each corner: -x-z, -x+z, +x-z, +x+z
+     * @return dest
+     */
+    float[] getRenderHeight(ChunkView chunkView, int x, int y, int z, float[] dest) {
+        for (int i = 0; i < 4; i++) {
+            int cornerX = i < 2 ? x - 1 : x;
+            int cornerZ = i % 2 == 0 ? z - 1 : z;
+            float total = 0;
+            int liquidCount = 0;
+            for (int dx = 0; dx <= 1; dx++) {
+                for (int dz = 0; dz <= 1; dz++) {
+                    byte cell = getCell(chunkView, cornerX + dx, y, cornerZ + dz);
+                    if (cell >= SURFACE) {
+                        liquidCount++;
+                        total += (cell - SURFACE) / (float) DATA.getMaxHeight();
+                    }
+                }
+            }
+            dest[i] = total / liquidCount;
+        }
+        return dest;
+    }
+
+    /**
+     * @return The plan for merging the top faces in a layer of the chunk, or null if it hasn't been made yet
+     */
+    short[] getTopFacePlan(int y) {
+        return y >= 0 && y < topFacePlans.length ? topFacePlans[y] : null;
+    }
+
+    void setTopFacePlan(int y, short[] plan) {
+        if (y >= 0 && y < topFacePlans.length) {
+            topFacePlans[y] = plan;
+        }
+    }
+
+    private byte getCell(ChunkView chunkView, int x, int y, int z) {
+        int i = index(x, y, z);
+        if (i < 0) {
+            return readCell(chunkView, x, y, z);
+        }
+        byte cell = cells[i];
+        if (cell == UNKNOWN) {
+            cell = readCell(chunkView, x, y, z);
+            cells[i] = cell;
+        }
+        return cell;
+    }
+
+    private byte readCell(ChunkView chunkView, int x, int y, int z) {
+        if (chunkView.getBlock(x, y, z) != block) {
+            return OTHER;
+        } else if (chunkView.getBlock(x, y + 1, z) == block) {
+            return SUPPRESSED;
+        } else {
+            int status = DATA.decode(chunkView.getExtraData(flowIx, x, y, z), highIx < 0 ? 0 : chunkView.getExtraData(highIx, x, y, z));
+            return (byte) (SURFACE + DATA.getHeight(status));
+        }
+    }
+
+    /**
+     * @return The index of the cell, or -1 if it's outside the heightfield
+     */
+    private static int index(int x, int y, int z) {
+        int cx = x + 1;
+        int cy = y + 1;
+        int cz = z + 1;
+        if (cx < 0 || cx >= SIZE_X || cy < 0 || cy >= SIZE_Y || cz < 0 || cz >= SIZE_Z) {
+            return -1;
+        }
+        return (cx * SIZE_Y + cy) * SIZE_Z + cz;
+    }
+}
@@ -6,12 +6,15 @@ package org.terasology.flowingliquids.rendering.primitives;
 import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
 import org.terasology.engine.entitySystem.systems.RegisterMode;
 import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.logic.console.commandSystem.annotations.Command;
+import org.terasology.engine.logic.console.commandSystem.annotations.CommandParam;
 import org.terasology.engine.math.Side;
 import org.terasology.engine.registry.In;
 import org.terasology.engine.world.block.Block;
 import org.terasology.engine.world.block.BlockManager;
 import org.terasology.engine.world.block.tiles.WorldAtlas;
 import org.terasology.engine.world.chunks.blockdata.ExtraBlockDataManager;
+import org.terasology.flowingliquids.world.block.LiquidDataCodec;
 
 @RegisterSystem(RegisterMode.CLIENT)
 public class RegisterLiquidMeshGenerators extends BaseComponentSystem {
@@ -25,16 +28,18 @@ public class RegisterLiquidMeshGenerators extends BaseComponentSystem {
     @In
     private ExtraBlockDataManager extraDataManager;
     private int flowIx;
+    private int highIx;
 
     public void initialise(){}
     public void preBegin(){}
     public void postBegin() {
         flowIx = extraDataManager.getSlotNumber("flowingLiquids.flow");
+        highIx = LiquidDataCodec.highSlot(extraDataManager);
         Block debugLiquid = blockManager.getBlock("FlowingLiquids:DebugLiquid");
-        debugLiquid.setMeshGenerator(new BlockMeshGeneratorDebugLiquid(debugLiquid, worldAtlas, flowIx));
+        debugLiquid.setMeshGenerator(new BlockMeshGeneratorDebugLiquid(debugLiquid, worldAtlas, flowIx, highIx));
         for(Block block : blockManager.listRegisteredBlocks()) {
             if(block.isLiquid() && block != debugLiquid) {
-                block.setMeshGenerator(new BlockMeshGeneratorLiquid(block, worldAtlas, flowIx));
+                block.setMeshGenerator(new BlockMeshGeneratorLiquid(block, worldAtlas, flowIx, highIx));
                 for (Side side : Side.values()) {
                     // The rendered shapes won't have full sides, even if the basic shape does.
                     block.setFullSide(side, false);
@@ -42,6 +47,16 @@ public class RegisterLiquidMeshGenerators extends BaseComponentSystem {
             }
         }
     }
+
+    @Command(shortDescription = "Merge flat liquid surfaces into large faces",
+        helpText = "Sets whether flat liquid surfaces with the same light and colour are drawn with merged faces, built "
+            + "once and reused, rather than working out the face of each block separately. It applies to chunks meshed "
+            + "from now on.")
+    public String liquidMergeSurfaces(@CommandParam("enabled") boolean enabled) {
+        BlockMeshGeneratorLiquid.setMergeSurfaces(enabled);
+        return "Liquid surface merging " + (enabled ? "enabled." : "disabled.");
+    }
+
     public void preSave(){}
     public void postSave(){}
     public void shutdown(){}
@@ -0,0 +1,294 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.joml.Vector3ic;
+import org.terasology.engine.math.Side;
+import org.terasology.engine.world.WorldProvider;
+import org.terasology.engine.world.block.Block;
+import org.terasology.engine.world.chunks.Chunk;
+import org.terasology.engine.world.chunks.Chunks;
+
+import java.util.function.BiPredicate;
+
+/**
+ * Levels the surface of a disturbed body of liquid in one go, rather than waiting for the change to ripple across it
+ * one block per update.
+ * <p>
+ * A body is the set of connected surface blocks of the same liquid in one layer of one chunk, found with union-find.
+ * Only blocks resting on something they can't flow into are included, so that liquid which is still falling is left to
+ * the normal updates. The volume of the body is shared out evenly between its blocks and their flow is stopped, and
+ * the blocks at its edge are scheduled so that the normal updates carry on from there, into neighbouring chunks or
+ * over ledges.
+ * <p>
+ * Flow is in flight between updates: a block of the half of the checkerboard about to be updated has already had its
+ * outflow taken by its neighbour, but won't subtract it from its own height until its update. Such blocks' volume is
+ * counted without that outflow, so levelling conserves liquid as long as it's done between ticks.
+ * <p>
+ * Liquid flowing into such a block from outside the body would be taken in by its update, so it's taken into the body
+ * instead. Any other flow between the body and the liquid around it can't be stopped without stranding liquid in
+ * flight, so such a body is left to the normal updates until it stops.
+ */
+class BasinLeveller {
+    /** Bodies smaller than this are left to the normal updates, which will level them quickly enough. */
+    static final int MIN_BODY_CELLS = 16;
+    private static final int LAYER_CELLS = Chunks.SIZE_X * Chunks.SIZE_Z;
+
+    private final WorldProvider worldProvider;
+    private final LiquidStorage storage;
+    private final BiPredicate<Block, Block> canSmoosh;
+
+    /** The union-find forest over a layer, indexed by {@link #layerIndex}, with -1 for blocks outside any body. */
+    private final int[] parent = new int[LAYER_CELLS];
+
+    private Chunk chunk;
+    private int worldX;
+    private int worldY;
+    private int worldZ;
+    private Block liquid;
+    private LiquidDataCodec codec;
+
+    /**
+     * @param canSmoosh Whether a liquid can flow into a block
+     */
+    BasinLeveller(WorldProvider worldProvider, LiquidStorage storage, BiPredicate<Block, Block> canSmoosh) {
+        this.worldProvider = worldProvider;
+        this.storage = storage;
+        this.canSmoosh = canSmoosh;
+    }
+
+    /**
+     * Level the body of liquid whose surface is above the given block, if it's big enough and uneven.
+     *
+     * @param chunk The chunk containing the block
+     * @param chunkPos The position of the chunk
+     * @param x The x coordinate of the block, within the chunk
+     * @param y The y coordinate of the block, within the chunk
+     * @param z The z coordinate of the block, within the chunk
+     * @param evenTick Whether the tick about to be run is for the even half of the checkerboard
+     * @param world The world to write the levelled liquid to
+     * @return The number of blocks in the body, or 0 if it wasn't levelled
+     */
+    int level(Chunk chunk, Vector3ic chunkPos, int x, int y, int z, boolean evenTick, FlowWorldAccess world) {
+        this.chunk = chunk;
+        worldX = chunkPos.x() * Chunks.SIZE_X;
+        worldY = chunkPos.y() * Chunks.SIZE_Y;
+        worldZ = chunkPos.z() * Chunks.SIZE_Z;
+        liquid = chunk.getBlock(x, y, z);
+        codec = world.getCodec();
+        try {
+            if (!liquid.isLiquid()) {
+                return 0;
+            }
+            while (y + 1 < Chunks.SIZE_Y && chunk.getBlock(x, y + 1, z) == liquid) {
+                y++;
+            }
+            if (!isBodyCell(x, y, z)) {
+                return 0;
+            }
+            return levelLayer(y, layerIndex(x, z), evenTick, world);
+        } finally {
+            this.chunk = null;
+        }
+    }
+
+    private int levelLayer(int y, int seed, boolean evenTick, FlowWorldAccess world) {
+        for (int x = 0; x < Chunks.SIZE_X; x++) {
+            for (int z = 0; z < Chunks.SIZE_Z; z++) {
+                int i = layerIndex(x, z);
+                parent[i] = isBodyCell(x, y, z) ? i : -1;
+            }
+        }
+        for (int x = 0; x < Chunks.SIZE_X; x++) {
+            for (int z = 0; z < Chunks.SIZE_Z; z++) {
+                int i = layerIndex(x, z);
+                if (parent[i] < 0) {
+                    continue;
+                }
+                if (x + 1 < Chunks.SIZE_X && parent[layerIndex(x + 1, z)] >= 0) {
+                    union(i, layerIndex(x + 1, z));
+                }
+                if (z + 1 < Chunks.SIZE_Z && parent[layerIndex(x, z + 1)] >= 0) {
+                    union(i, layerIndex(x, z + 1));
+                }
+            }
+        }
+
+        int root = find(seed);
+        int cells = 0;
+        int volume = 0;
+        int minHeight = codec.getMaxHeight();
+        int maxHeight = 0;
+        for (int i = 0; i < LAYER_CELLS; i++) {
+            if (parent[i] < 0 || find(i) != root) {
+                continue;
+            }
+            int x = i / Chunks.SIZE_Z;
+            int z = i % Chunks.SIZE_Z;
+            int status = storage.read(chunk, x, y, z);
+            int height = codec.getHeight(status);
+            boolean updating = isEven(x, y, z) == evenTick;
+            int inflow = inflow(x, y, z, root, null);
+            if (flowsOut(x, y, z, status, root) || inflow < 0 || inflow > 0 && !updating) {
+                return 0;
+            }
+            cells++;
+            volume += height;
+            if (updating) {
+                volume += inflow - codec.getRate(status);
+            }
+            minHeight = Math.min(minHeight, height);
+            maxHeight = Math.max(maxHeight, height);
+        }
+        if (cells < MIN_BODY_CELLS || maxHeight - minHeight <= 1 || volume < cells) {
+            return 0;
+        }
+
+        int baseHeight = volume / cells;
+        int extra = volume % cells;
+        for (int i = 0; i < LAYER_CELLS; i++) {
+            if (parent[i] < 0 || find(i) != root) {
+                continue;
+            }
+            int x = i / Chunks.SIZE_Z;
+            int z = i % Chunks.SIZE_Z;
+            int height = baseHeight;
+            if (extra > 0) {
+                height++;
+                extra--;
+            }
+            if (isEven(x, y, z) == evenTick) {
+                inflow(x, y, z, root, world);
+            }
+            world.setStatus(worldX + x, worldY + y, worldZ + z, codec.setHeight(codec.getFull(), height));
+            if (isEdge(x, z, root)) {
+                world.doAddPos(worldX + x, worldY + y, worldZ + z);
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Whether a block of the body is flowing into liquid outside the body.
+     */
+    private boolean flowsOut(int x, int y, int z, int status, int root) {
+        if (codec.getRate(status) == 0) {
+            return false;
+        }
+        Side side = codec.getDirection(status);
+        int adjX = x + SideOffsets.X[side.ordinal()];
+        int adjY = y + SideOffsets.Y[side.ordinal()];
+        int adjZ = z + SideOffsets.Z[side.ordinal()];
+        if (adjY == y && inChunk(adjX, y, adjZ) && inBody(adjX, adjZ, root)) {
+            return false;
+        }
+        return block(adjX, adjY, adjZ).isLiquid();
+    }
+
+    /**
+     * Find the liquid flowing into a block of the body from outside the body.
+     *
+     * @param world If not null, the world in which to take the liquid out of the blocks it's flowing from
+     * @return The volume flowing in, or -1 if a different liquid is flowing in
+     */
+    private int inflow(int x, int y, int z, int root, FlowWorldAccess world) {
+        int inflow = 0;
+        for (Side side : SideOffsets.ALL) {
+            int adjX = x + SideOffsets.X[side.ordinal()];
+            int adjY = y + SideOffsets.Y[side.ordinal()];
+            int adjZ = z + SideOffsets.Z[side.ordinal()];
+            if (adjY == y && inChunk(adjX, y, adjZ) && inBody(adjX, adjZ, root)) {
+                continue;
+            }
+            Block adjBlock = block(adjX, adjY, adjZ);
+            if (!adjBlock.isLiquid()) {
+                continue;
+            }
+            int adjStatus = status(adjX, adjY, adjZ);
+            int rate = codec.getRate(adjStatus);
+            if (rate == 0 || codec.getDirection(adjStatus) != side.reverse()) {
+                continue;
+            }
+            if (adjBlock != liquid) {
+                return -1;
+            }
+            inflow += rate;
+            if (world != null) {
+                // A block left empty is turned into air by its update.
+                world.setStatus(worldX + adjX, worldY + adjY, worldZ + adjZ, codec.setRate(codec.setHeight(adjStatus, codec.getHeight(adjStatus) - rate), 0));
+                world.doAddPos(worldX + adjX, worldY + adjY, worldZ + adjZ);
+            }
+        }
+        return inflow;
+    }
+
+    /**
+     * Whether a block of the body has a horizontal neighbour outside it, including in another chunk.
+     */
+    private boolean isEdge(int x, int z, int root) {
+        return x == 0 || z == 0 || x == Chunks.SIZE_X - 1 || z == Chunks.SIZE_Z - 1
+            || !inBody(x - 1, z, root) || !inBody(x + 1, z, root) || !inBody(x, z - 1, root) || !inBody(x, z + 1, root);
+    }
+
+    private boolean inBody(int x, int z, int root) {
+        int i = layerIndex(x, z);
+        return parent[i] >= 0 && find(i) == root;
+    }
+
+    /**
+     * Whether a block is liquid at the surface, resting on something it can't flow into.
+     */
+    private boolean isBodyCell(int x, int y, int z) {
+        if (chunk.getBlock(x, y, z) != liquid || block(x, y + 1, z) == liquid) {
+            return false;
+        }
+        Block below = block(x, y - 1, z);
+        if (below == liquid) {
+            return codec.getHeight(status(x, y - 1, z)) == codec.getMaxHeight();
+        }
+        return !canSmoosh.test(liquid, below);
+    }
+
+    private int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA != rootB) {
+            parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+
+    private boolean isEven(int x, int y, int z) {
+        return (worldX + x + worldY + y + worldZ + z) % 2 == 0;
+    }
+
+    private static int layerIndex(int x, int z) {
+        return x * Chunks.SIZE_Z + z;
+    }
+
+    private static boolean inChunk(int x, int y, int z) {
+        return x >= 0 && y >= 0 && z >= 0 && x < Chunks.SIZE_X && y < Chunks.SIZE_Y && z < Chunks.SIZE_Z;
+    }
+
+    private Block block(int x, int y, int z) {
+        if (inChunk(x, y, z)) {
+            return chunk.getBlock(x, y, z);
+        }
+        return worldProvider.getBlock(worldX + x, worldY + y, worldZ + z);
+    }
+
+    private int status(int x, int y, int z) {
+        if (inChunk(x, y, z)) {
+            return storage.read(chunk, x, y, z);
+        }
+        return storage.read(worldProvider, worldX + x, worldY + y, worldZ + z);
+    }
+}
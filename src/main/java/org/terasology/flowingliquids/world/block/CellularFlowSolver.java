@@ -0,0 +1,253 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.terasology.engine.math.Side;
+import org.terasology.engine.world.block.Block;
+import org.terasology.engine.world.block.BlockManager;
+
+/**
+ * The original flow rules. Each update takes in the liquid flowing into a block, and then picks a single direction for
+ * it to flow in: down if it can, and otherwise towards the lowest horizontal neighbour, at a limited rate.
+ * Liquid therefore spreads out one block per update, which is cheap and easy to make safe, but slow to level large
+ * bodies of liquid.
+ * <p>
+ * This is stateless, so it can be run on several threads at once.
+ */
+class CellularFlowSolver implements FlowSolver {
+    static final String NAME = "cellular";
+
+    private final LiquidFlowSystem flowSystem;
+    private final BlockManager blockManager;
+    private final Block air;
+
+    /**
+     * @param flowSystem Used to look up which blocks liquids can flow into and how they react
+     */
+    CellularFlowSolver(LiquidFlowSystem flowSystem, BlockManager blockManager) {
+        this.flowSystem = flowSystem;
+        this.blockManager = blockManager;
+        air = blockManager.getBlock(BlockManager.AIR_ID);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isParallelSafe() {
+        return true;
+    }
+
+    /**
+     * Recalculate the flow of the liquid at a position, taking in any liquid flowing into it.
+     * This runs for every queued position, so it avoids allocating: neighbours are found using {@link SideOffsets}
+     * rather than temporary vectors.
+     */
+    @Override
+    public boolean updatePosition(FlowWorldAccess world, int x, int y, int z) {
+        LiquidDataCodec data = world.getCodec();
+        Block blockType = world.getBlock(x, y, z);
+        int blockStatus = world.getStatus(x, y, z);
+        int startHeight = 0;
+        Side startDirection = null;
+        int startRate = 0;
+
+        if (blockType.isLiquid()) {
+            startHeight = data.getHeight(blockStatus);
+            startDirection = data.getDirection(blockStatus);
+            startRate = data.getRate(blockStatus);
+        }
+
+        int height = startHeight;
+        height -= startRate;
+        if (height < 0) {
+            throw new IllegalStateException("Liquid outflow greater than existing volume.");
+        }
+
+        //TODO: consider this in a varied order, but with top always first.
+        boolean smooshed = false;
+        for (Side side : SideOffsets.ALL) {
+            int adjX = x + SideOffsets.X[side.ordinal()];
+            int adjY = y + SideOffsets.Y[side.ordinal()];
+            int adjZ = z + SideOffsets.Z[side.ordinal()];
+            Block adjBlock = world.getBlock(adjX, adjY, adjZ);
+            int adjStatus = world.getStatus(adjX, adjY, adjZ);
+            if (adjBlock.isLiquid() && side.reverse() == data.getDirection(adjStatus)) {
+                if (adjBlock == blockType) {
+                    int rate = data.getRate(adjStatus);
+                    if (rate + height > data.getMaxHeight()) {
+                        world.setStatus(adjX, adjY, adjZ, data.setRate(adjStatus, data.getMaxHeight() - height));
+                        height = data.getMaxHeight();
+                        world.addPos(adjX, adjY, adjZ);
+                    } else {
+                        height += rate;
+                    }
+                } else if (flowSystem.canSmoosh(adjBlock, blockType)) {
+                    LiquidSmooshingReactionComponent reaction = flowSystem.getSmooshingReaction(adjBlock, blockType);
+                    if (reaction == null || reaction.product == null) {
+                        if (blockType == air || world.smoosh(x, y, z)) { // Check the event didn't get cancelled or something.
+                            blockType = adjBlock;
+                            world.setBlock(x, y, z, adjBlock);
+                            height = data.getRate(adjStatus);
+                            smooshed = true;
+                        }
+                    } else {
+                        float otherSufficiency = data.getRate(adjStatus) / (float) data.getMaxHeight() / reaction.liquidRequired;
+                        float thisSufficiency = blockType.isLiquid() ? height / (float) data.getMaxHeight() / reaction.otherLiquidRequired : 1f;
+                        // There's a much more efficient way of doing this without the loop, but this way is clearer.
+                        boolean thisSufficient = false;
+                        boolean otherSufficient = false;
+                        while (!thisSufficient && !otherSufficient) {
+                            thisSufficient = world.getRandom().nextFloat() < thisSufficiency;
+                            otherSufficient = world.getRandom().nextFloat() < otherSufficiency;
+                        }
+
+                        if (thisSufficient && otherSufficient) {
+                            world.reactionFired(reaction);
+                            blockType = blockManager.getBlock(reaction.product);
+                            if (otherSufficiency > 1 && world.getRandom().nextFloat() < 1 / otherSufficiency) {
+                                world.setStatus(adjX, adjY, adjZ, data.setRate(adjStatus, 0));
+                            }
+                            world.setBlock(x, y, z, blockType);
+                            if (blockType.isLiquid()) {
+                                height = data.getMaxHeight();
+                            }
+                        } else if (otherSufficient) {
+                            // consume this block but not the liquid flowing in.
+                            world.setStatus(adjX, adjY, adjZ, data.setRate(adjStatus, 0));
+                            blockType = air;
+                            world.setBlock(x, y, z, air);
+                        } // In the other case, thisSufficient && !otherSufficient, consume the liquid flowing in but not this block.
+                    }
+                } else {
+                    world.setStatus(adjX, adjY, adjZ, data.setRate(adjStatus, 0));
+                    world.addPos(adjX, adjY, adjZ);
+                }
+            }
+        }
+
+        if (height == 0) {
+            if (blockType.isLiquid()) {
+                world.setBlock(x, y, z, air);
+                world.setStatus(x, y, z, data.getFull());
+            }
+            if (startDirection != null) {
+                addPosTowards(world, x, y, z, startDirection);
+            }
+            return blockType.isLiquid();
+        }
+
+        Side direction = null;
+        int rate = 0;
+        int maxRate = data.getMaxDownRate();
+
+        Block belowBlock = world.getBlock(x, y - 1, z);
+        if (flowSystem.canSmoosh(blockType, belowBlock)) {
+            direction = Side.BOTTOM;
+            rate = data.getMaxDownRate();
+        } else if (blockType == belowBlock) {
+            direction = Side.BOTTOM;
+            int belowStatus = world.getStatus(x, y - 1, z);
+            rate = data.getMaxHeight() - data.getHeight(belowStatus);
+            maxRate = rate + data.getRate(belowStatus);
+            if (rate > data.getMaxDownRate()) {
+                rate = data.getMaxDownRate();
+            }
+        }
+        if (rate == 0) {
+            int lowestHeight = data.getMaxHeight() + 1;
+            int lowestRate = 0;
+            Side lowestSide = null;
+            for (Side side : SideOffsets.HORIZONTAL) {
+                int adjX = x + SideOffsets.X[side.ordinal()];
+                int adjZ = z + SideOffsets.Z[side.ordinal()];
+                Block adjBlock = world.getBlock(adjX, y, adjZ);
+                int adjHeight;
+                int adjRate = 0;
+                if (adjBlock == blockType) {
+                    int adjStatus = world.getStatus(adjX, y, adjZ);
+                    adjHeight = data.getHeight(adjStatus);
+                    adjRate = data.getRate(adjStatus);
+                } else if (flowSystem.canSmoosh(blockType, adjBlock)) {
+                    Block belowAdjBlock = world.getBlock(adjX, y - 1, adjZ);
+                    if (flowSystem.canSmoosh(blockType, belowAdjBlock)) {
+                        adjHeight = -1;
+                    } else if (blockType == belowAdjBlock && data.getHeight(world.getStatus(adjX, y - 1, adjZ)) < data.getMaxHeight()) {
+                        adjHeight = -1;
+                    } else {
+                        adjHeight = 0;
+                    }
+                } else {
+                    adjHeight = data.getMaxHeight() + 1;
+                }
+                if (adjHeight < lowestHeight || (side == startDirection && !smooshed && adjHeight <= lowestHeight)) {
+                    lowestHeight = adjHeight;
+                    lowestSide = side;
+                    lowestRate = adjRate;
+                }
+            }
+            maxRate = height - lowestHeight + lowestRate;
+            rate = maxRate - 1;
+            if (maxRate > data.getMaxRate()) {
+                maxRate = data.getMaxRate();
+            }
+            direction = lowestSide;
+        }
+        if (direction == startDirection && !smooshed && rate < startRate) {
+            rate = startRate;
+        }
+        if (rate > maxRate) {
+            rate = maxRate;
+        }
+        if (rate > height) {
+            rate = height;
+        } else if (rate < 0) {
+            rate = 0;
+        }
+
+        int newStatus = data.setRate(
+            data.setDirection(
+                data.setHeight(
+                    blockStatus,
+                    height),
+                direction),
+            rate);
+        if (newStatus != blockStatus || smooshed) {
+            world.setStatus(x, y, z, newStatus);
+            updateNear(world, x, y, z);
+            if (direction != startDirection || rate != startRate) {
+                if (direction != null) {
+                    world.doAddPos(x + SideOffsets.X[direction.ordinal()], y + SideOffsets.Y[direction.ordinal()], z + SideOffsets.Z[direction.ordinal()]);
+                }
+                if (startDirection != null) {
+                    addPosTowards(world, x, y, z, startDirection);
+                }
+            }
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Schedule the neighbour of a position on the given side.
+     */
+    static void addPosTowards(FlowWorldAccess world, int x, int y, int z, Side side) {
+        world.addPos(x + SideOffsets.X[side.ordinal()], y + SideOffsets.Y[side.ordinal()], z + SideOffsets.Z[side.ordinal()]);
+    }
+
+    /**
+     * Notify a block and its neighbours of an update.
+     *
+     * @param world The world to schedule the updates in
+     */
+    static void updateNear(FlowWorldAccess world, int x, int y, int z) {
+        world.addPos(x, y, z);
+        for (Side side : SideOffsets.ALL) {
+            addPosTowards(world, x, y, z, side);
+        }
+    }
+}
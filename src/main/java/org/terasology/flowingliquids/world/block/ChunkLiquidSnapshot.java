@@ -0,0 +1,197 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.joml.Vector3i;
+import org.terasology.engine.world.block.Block;
+import org.terasology.engine.world.chunks.Chunk;
+import org.terasology.engine.world.chunks.ChunkProvider;
+import org.terasology.engine.world.chunks.Chunks;
+
+import java.util.Arrays;
+
+/**
+ * A dense copy of the blocks and liquid data in a box of the world, so that flow updates inside it can look up their
+ * neighbours by array index rather than going through the world provider's chunk lookup each time.
+ * The box is the area being updated plus a one-cell halo, which covers every cell a flow update reads or writes.
+ * It is copied straight out of the chunks it overlaps, found up front by {@link #findChunks}, so filling it costs an
+ * array read per cell rather than a chunk lookup. Changes are made to the copy, and only the cells that actually
+ * changed are written back at the end.
+ */
+class ChunkLiquidSnapshot {
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+
+    private final short[] blockIds;
+    private final int[] statuses;
+    private Block[] blocksById = new Block[256];
+
+    /** The cells that have been written to, in the order they were first written, and their original contents. */
+    private int[] dirty = new int[64];
+    private short[] originalBlockIds = new short[64];
+    private int[] originalStatuses = new int[64];
+    private int dirtyCount;
+    private final long[] dirtyBits;
+
+    /**
+     * Copy a box of the world, expanded by one cell on every side.
+     *
+     * @param chunks The chunks overlapping the expanded box, as found by {@link #findChunks}
+     */
+    ChunkLiquidSnapshot(Chunk[] chunks, LiquidStorage storage, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        this.minX = minX - 1;
+        this.minY = minY - 1;
+        this.minZ = minZ - 1;
+        sizeX = maxX - minX + 3;
+        sizeY = maxY - minY + 3;
+        sizeZ = maxZ - minZ + 3;
+        int volume = sizeX * sizeY * sizeZ;
+        blockIds = new short[volume];
+        statuses = new int[volume];
+        dirtyBits = new long[(volume + 63) / 64];
+        int minChunkX = Math.floorDiv(this.minX, Chunks.SIZE_X);
+        int minChunkY = Math.floorDiv(this.minY, Chunks.SIZE_Y);
+        int minChunkZ = Math.floorDiv(this.minZ, Chunks.SIZE_Z);
+        int chunksY = Math.floorDiv(this.minY + sizeY - 1, Chunks.SIZE_Y) - minChunkY + 1;
+        int chunksZ = Math.floorDiv(this.minZ + sizeZ - 1, Chunks.SIZE_Z) - minChunkZ + 1;
+        int c = 0;
+        for (Chunk chunk : chunks) {
+            int chunkX = minChunkX + c / (chunksY * chunksZ);
+            int chunkY = minChunkY + (c / chunksZ) % chunksY;
+            int chunkZ = minChunkZ + c % chunksZ;
+            c++;
+            // The part of the box inside this chunk, relative to the chunk.
+            int fromX = Math.max(this.minX - chunkX * Chunks.SIZE_X, 0);
+            int fromY = Math.max(this.minY - chunkY * Chunks.SIZE_Y, 0);
+            int fromZ = Math.max(this.minZ - chunkZ * Chunks.SIZE_Z, 0);
+            int toX = Math.min(this.minX + sizeX - chunkX * Chunks.SIZE_X, Chunks.SIZE_X);
+            int toY = Math.min(this.minY + sizeY - chunkY * Chunks.SIZE_Y, Chunks.SIZE_Y);
+            int toZ = Math.min(this.minZ + sizeZ - chunkZ * Chunks.SIZE_Z, Chunks.SIZE_Z);
+            for (int x = fromX; x < toX; x++) {
+                for (int y = fromY; y < toY; y++) {
+                    int i = index(chunkX * Chunks.SIZE_X + x, chunkY * Chunks.SIZE_Y + y, chunkZ * Chunks.SIZE_Z + fromZ);
+                    for (int z = fromZ; z < toZ; z++) {
+                        blockIds[i] = register(chunk.getBlock(x, y, z));
+                        statuses[i] = storage.read(chunk, x, y, z);
+                        i++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the chunks a snapshot of a box would be copied from. This is done on the calling thread before the batch
+     * is split up, so the workers copying the snapshots don't go through the chunk provider at all.
+     *
+     * @return The chunks overlapping the box expanded by one cell, in x, y, z order, or null if any aren't loaded
+     */
+    static Chunk[] findChunks(ChunkProvider chunkProvider, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        int minChunkX = Math.floorDiv(minX - 1, Chunks.SIZE_X);
+        int minChunkY = Math.floorDiv(minY - 1, Chunks.SIZE_Y);
+        int minChunkZ = Math.floorDiv(minZ - 1, Chunks.SIZE_Z);
+        int maxChunkX = Math.floorDiv(maxX + 1, Chunks.SIZE_X);
+        int maxChunkY = Math.floorDiv(maxY + 1, Chunks.SIZE_Y);
+        int maxChunkZ = Math.floorDiv(maxZ + 1, Chunks.SIZE_Z);
+        Chunk[] chunks = new Chunk[(maxChunkX - minChunkX + 1) * (maxChunkY - minChunkY + 1) * (maxChunkZ - minChunkZ + 1)];
+        Vector3i chunkPos = new Vector3i();
+        int c = 0;
+        for (int x = minChunkX; x <= maxChunkX; x++) {
+            for (int y = minChunkY; y <= maxChunkY; y++) {
+                for (int z = minChunkZ; z <= maxChunkZ; z++) {
+                    Chunk chunk = chunkProvider.getChunk(chunkPos.set(x, y, z));
+                    if (chunk == null) {
+                        return null;
+                    }
+                    chunks[c++] = chunk;
+                }
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * @return The number of cells a snapshot of the given box (not including the halo) would contain
+     */
+    static int volume(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        return (maxX - minX + 3) * (maxY - minY + 3) * (maxZ - minZ + 3);
+    }
+
+    boolean contains(int x, int y, int z) {
+        return x >= minX && x < minX + sizeX
+            && y >= minY && y < minY + sizeY
+            && z >= minZ && z < minZ + sizeZ;
+    }
+
+    Block getBlock(int x, int y, int z) {
+        return blocksById[blockIds[index(x, y, z)]];
+    }
+
+    int getStatus(int x, int y, int z) {
+        return statuses[index(x, y, z)];
+    }
+
+    void setBlock(int x, int y, int z, Block block) {
+        int i = index(x, y, z);
+        markDirty(i);
+        blockIds[i] = register(block);
+    }
+
+    void setStatus(int x, int y, int z, int status) {
+        int i = index(x, y, z);
+        markDirty(i);
+        statuses[i] = status;
+    }
+
+    /**
+     * Write every cell which differs from its original contents back to the world.
+     */
+    void writeBack(FlowWorldAccess target) {
+        for (int d = 0; d < dirtyCount; d++) {
+            int i = dirty[d];
+            int x = minX + i / (sizeY * sizeZ);
+            int y = minY + (i / sizeZ) % sizeY;
+            int z = minZ + i % sizeZ;
+            if (blockIds[i] != originalBlockIds[d]) {
+                target.setBlock(x, y, z, blocksById[blockIds[i]]);
+            }
+            if (statuses[i] != originalStatuses[d]) {
+                target.setStatus(x, y, z, statuses[i]);
+            }
+        }
+    }
+
+    private int index(int x, int y, int z) {
+        return ((x - minX) * sizeY + (y - minY)) * sizeZ + (z - minZ);
+    }
+
+    private void markDirty(int i) {
+        if ((dirtyBits[i >> 6] & (1L << i)) != 0) {
+            return;
+        }
+        dirtyBits[i >> 6] |= 1L << i;
+        if (dirtyCount == dirty.length) {
+            dirty = Arrays.copyOf(dirty, dirtyCount * 2);
+            originalBlockIds = Arrays.copyOf(originalBlockIds, dirtyCount * 2);
+            originalStatuses = Arrays.copyOf(originalStatuses, dirtyCount * 2);
+        }
+        dirty[dirtyCount] = i;
+        originalBlockIds[dirtyCount] = blockIds[i];
+        originalStatuses[dirtyCount] = statuses[i];
+        dirtyCount++;
+    }
+
+    private short register(Block block) {
+        short id = block.getId();
+        if (id >= blocksById.length) {
+            blocksById = Arrays.copyOf(blocksById, Integer.highestOneBit(id) << 1);
+        }
+        blocksById[id] = block;
+        return id;
+    }
+}
@@ -0,0 +1,241 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.terasology.engine.math.Side;
+import org.terasology.engine.world.block.Block;
+
+import java.util.Arrays;
+
+/**
+ * Moves falling columns of liquid, such as waterfalls, down in one operation per column each tick, rather than
+ * updating each block of the column separately.
+ * <p>
+ * A column is a vertical run of blocks of the same liquid above a block with room in it: air, or the lowest block of
+ * the run which isn't full. Liquid is poured down the column from the bottom up, each block passing on as much as the
+ * block below has room for, up to the downward rate the flow updates would use, and the flow of every block of the
+ * column is stopped. The blocks of the column are then taken out of the tick's queue, except those with liquid flowing
+ * into them from outside the column, as their updates are what take that liquid in.
+ * <p>
+ * Flow is in flight between updates, in the same way as for {@link BasinLeveller}: a block of the half of the
+ * checkerboard about to be updated has already had its outflow taken by its neighbour. Such blocks' volume is counted
+ * without that outflow, so moving columns conserves liquid as long as it's done between ticks. The blocks not about to
+ * be updated have no update to take in liquid flowing into them from outside the column, and liquid beside or below a
+ * column which is flowing on relies on the column's flow carrying on, so such columns are left to the normal updates.
+ */
+class FallingColumnMover {
+    /** Shorter columns are left to the normal updates, which handle them nearly as cheaply. */
+    static final int MIN_COLUMN_CELLS = 4;
+
+    private final Block air;
+
+    /** The queued blocks which might be part of a column. */
+    private final PositionQueue candidates = new PositionQueue();
+    /** The blocks already looked at this tick, so that each run of liquid is only walked once. */
+    private final PositionQueue visited = new PositionQueue();
+    /** The blocks of moved columns, to take out of the tick's queue. */
+    private final PositionQueue handled = new PositionQueue();
+    /** The volume of each block of the column being moved, from the bottom up. */
+    private int[] volumes = new int[64];
+
+    FallingColumnMover(Block air) {
+        this.air = air;
+    }
+
+    /**
+     * Move every falling column with a block in the queue for the tick about to be run.
+     *
+     * @param queue The positions to update in the tick, from which the blocks of the moved columns are removed
+     * @param evenTick Whether the tick is for the even half of the checkerboard
+     * @param world The world to move the liquid in
+     * @return The number of columns moved
+     */
+    int moveColumns(PositionQueue queue, boolean evenTick, FlowWorldAccess world) {
+        candidates.clear();
+        visited.clear();
+        handled.clear();
+        queue.forEachPacked(pos -> {
+            int x = PositionQueue.unpackX(pos);
+            int y = PositionQueue.unpackY(pos);
+            int z = PositionQueue.unpackZ(pos);
+            if (isFalling(world, x, y, z)) {
+                candidates.add(x, y, z);
+            }
+        });
+        int columns = 0;
+        while (!candidates.isEmpty()) {
+            long pos = candidates.pollPacked();
+            if (visited.containsPacked(pos)) {
+                continue;
+            }
+            if (moveColumn(PositionQueue.unpackX(pos), PositionQueue.unpackY(pos), PositionQueue.unpackZ(pos), queue, evenTick, world)) {
+                columns++;
+            }
+        }
+        if (!handled.isEmpty()) {
+            queue.removeIf(handled::containsPacked);
+        }
+        return columns;
+    }
+
+    /**
+     * Move the column containing a block, if it is one.
+     *
+     * @return Whether the column was moved
+     */
+    private boolean moveColumn(int x, int y, int z, PositionQueue queue, boolean evenTick, FlowWorldAccess world) {
+        LiquidDataCodec codec = world.getCodec();
+        Block liquid = world.getBlock(x, y, z);
+        int bottom = y;
+        while (world.getBlock(x, bottom - 1, z) == liquid) {
+            bottom--;
+        }
+        int top = y;
+        while (world.getBlock(x, top + 1, z) == liquid) {
+            top++;
+        }
+        for (int cy = bottom; cy <= top; cy++) {
+            visited.add(x, cy, z);
+        }
+        int targetY = bottom - 1;
+        if (world.getBlock(x, targetY, z) != air) {
+            // The run is resting on something, so the liquid only falls as far as its lowest block with room.
+            targetY = bottom;
+            while (targetY <= top && codec.getHeight(world.getStatus(x, targetY, z)) >= codec.getMaxHeight()) {
+                targetY++;
+            }
+            bottom = targetY + 1;
+        }
+        int cells = top - bottom + 1;
+        if (cells < MIN_COLUMN_CELLS) {
+            return false;
+        }
+        for (int cy = bottom; cy <= top; cy++) {
+            if (flowsSideways(world, codec, x, cy, z) || isEven(x, cy, z) != evenTick && hasInflow(world, codec, x, cy, z, cy == top)) {
+                return false;
+            }
+        }
+        Block target = world.getBlock(x, targetY, z);
+        int targetStatus = world.getStatus(x, targetY, z);
+        if (target != air && codec.getRate(targetStatus) > 0) {
+            return false;
+        }
+        int targetHeight = target == air ? 0 : codec.getHeight(targetStatus);
+
+        if (volumes.length < cells) {
+            volumes = Arrays.copyOf(volumes, Math.max(cells, volumes.length * 2));
+        }
+        for (int i = 0; i < cells; i++) {
+            int status = world.getStatus(x, bottom + i, z);
+            volumes[i] = codec.getHeight(status);
+            if (isEven(x, bottom + i, z) == evenTick) {
+                volumes[i] -= codec.getRate(status);
+            }
+        }
+        int poured = Math.min(Math.min(volumes[0], codec.getMaxHeight() - targetHeight), codec.getMaxDownRate());
+        volumes[0] -= poured;
+        int moved = poured;
+        for (int i = 1; i < cells; i++) {
+            int flow = Math.min(Math.min(volumes[i], codec.getMaxHeight() - volumes[i - 1]), codec.getMaxDownRate());
+            volumes[i - 1] += flow;
+            volumes[i] -= flow;
+            moved += flow;
+        }
+        if (moved == 0) {
+            return false;
+        }
+
+        if (poured > 0) {
+            if (target == air) {
+                world.setBlock(x, targetY, z, liquid);
+                world.setStatus(x, targetY, z, codec.setHeight(codec.getFull(), poured));
+            } else {
+                world.setStatus(x, targetY, z, codec.setHeight(targetStatus, targetHeight + poured));
+            }
+            CellularFlowSolver.updateNear(world, x, targetY, z);
+        }
+        for (int i = 0; i < cells; i++) {
+            int cy = bottom + i;
+            if (volumes[i] > 0) {
+                world.setStatus(x, cy, z, codec.setHeight(codec.getFull(), volumes[i]));
+            } else {
+                world.setBlock(x, cy, z, air);
+                world.setStatus(x, cy, z, codec.getFull());
+            }
+            if (!hasInflow(world, codec, x, cy, z, cy == top)) {
+                handled.add(x, cy, z);
+            } else if (isEven(x, cy, z) == evenTick) {
+                queue.add(x, cy, z);
+            }
+            if (hasLiquidBeside(world, x, cy, z)) {
+                // The liquid beside it may need to even out with it, which is left to the normal updates.
+                world.doAddPos(x, cy, z);
+            }
+        }
+        // Queue the bottom two blocks, one from each half of the checkerboard, so the column is found again next tick.
+        world.doAddPos(x, bottom, z);
+        world.doAddPos(x, bottom + 1, z);
+        world.addPos(x, top + 1, z);
+        return true;
+    }
+
+    /**
+     * Whether a block is liquid which could be falling: flowing down, or above a block with room in it.
+     */
+    private boolean isFalling(FlowWorldAccess world, int x, int y, int z) {
+        Block block = world.getBlock(x, y, z);
+        if (!block.isLiquid()) {
+            return false;
+        }
+        LiquidDataCodec codec = world.getCodec();
+        if (codec.getDirection(world.getStatus(x, y, z)) == Side.BOTTOM) {
+            return true;
+        }
+        Block below = world.getBlock(x, y - 1, z);
+        return below == air || below == block && codec.getHeight(world.getStatus(x, y - 1, z)) < codec.getMaxHeight();
+    }
+
+    /**
+     * Whether liquid from outside the column is flowing into a block of it: from beside, or from above the top block.
+     */
+    private static boolean hasInflow(FlowWorldAccess world, LiquidDataCodec codec, int x, int y, int z, boolean top) {
+        for (Side side : SideOffsets.HORIZONTAL) {
+            int adjX = x + SideOffsets.X[side.ordinal()];
+            int adjZ = z + SideOffsets.Z[side.ordinal()];
+            if (world.getBlock(adjX, y, adjZ).isLiquid() && isFlowing(codec, world.getStatus(adjX, y, adjZ), side.reverse())) {
+                return true;
+            }
+        }
+        return top && world.getBlock(x, y + 1, z).isLiquid() && isFlowing(codec, world.getStatus(x, y + 1, z), Side.BOTTOM);
+    }
+
+    /**
+     * Whether a block of a column is flowing sideways into liquid.
+     */
+    private static boolean flowsSideways(FlowWorldAccess world, LiquidDataCodec codec, int x, int y, int z) {
+        int status = world.getStatus(x, y, z);
+        Side direction = codec.getDirection(status);
+        if (codec.getRate(status) == 0 || direction == null || SideOffsets.Y[direction.ordinal()] != 0) {
+            return false;
+        }
+        return world.getBlock(x + SideOffsets.X[direction.ordinal()], y, z + SideOffsets.Z[direction.ordinal()]).isLiquid();
+    }
+
+    private static boolean isFlowing(LiquidDataCodec codec, int status, Side direction) {
+        return codec.getRate(status) > 0 && codec.getDirection(status) == direction;
+    }
+
+    private static boolean hasLiquidBeside(FlowWorldAccess world, int x, int y, int z) {
+        for (Side side : SideOffsets.HORIZONTAL) {
+            if (world.getBlock(x + SideOffsets.X[side.ordinal()], y, z + SideOffsets.Z[side.ordinal()]).isLiquid()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isEven(int x, int y, int z) {
+        return (x + y + z) % 2 == 0;
+    }
+}
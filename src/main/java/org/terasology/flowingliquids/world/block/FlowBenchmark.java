@@ -0,0 +1,344 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.terasology.engine.world.block.Block;
+import org.terasology.engine.world.block.BlockManager;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Runs a {@link FlowSolver} on a few canonical scenarios, in an in-memory world that doesn't touch the real one, so
+ * that changes in performance show up as numbers, and solvers and liquid data formats can be compared with each other.
+ * Each scenario is run until the liquid settles, and reports the rate of updates and the number of ticks it took to
+ * settle.
+ * <p>
+ * A benchmark only touches its own world and the solvers it's given, so it can be run off the main thread, as long as
+ * the solvers aren't also being used by the real simulation.
+ */
+class FlowBenchmark {
+    /** Scenarios which haven't settled after this many ticks are stopped. */
+    private static final int MAX_TICKS = 10_000;
+    /** Each scenario is run a few times first so that the measured run isn't dominated by JIT compilation. */
+    private static final int WARMUP_RUNS = 2;
+    private static final long SEED = 0x5EED;
+
+    enum Scenario {
+        /** A tall column of water released into an empty box. */
+        DAM_BREAK,
+        /** A shallow pool spilling off a ledge and falling to the floor. */
+        WATERFALL,
+        /** A layer of water draining into a pit in the ground. */
+        PIT_FILL,
+        /** Water and lava flowing into each other. */
+        REACTION_FRONT,
+        /** A large body of still water, where every update should do nothing. */
+        SETTLED_OCEAN
+    }
+
+    /**
+     * The outcome of a single measured run.
+     */
+    static class Result {
+        final Scenario scenario;
+        final String solver;
+        final LiquidDataCodec codec;
+        final long updates;
+        final long changedUpdates;
+        final int ticks;
+        final boolean settled;
+        final long nanos;
+
+        Result(Scenario scenario, String solver, LiquidDataCodec codec, long updates, long changedUpdates, int ticks, boolean settled, long nanos) {
+            this.scenario = scenario;
+            this.solver = solver;
+            this.codec = codec;
+            this.updates = updates;
+            this.changedUpdates = changedUpdates;
+            this.ticks = ticks;
+            this.settled = settled;
+            this.nanos = nanos;
+        }
+
+        double getUpdatesPerSecond() {
+            return nanos == 0 ? 0 : updates * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s (%s, %s): %d updates (%d changed) in %.1fms, %.0f updates/s, %s after %d ticks",
+                scenario.name().toLowerCase(Locale.ROOT), solver, codec.name().toLowerCase(Locale.ROOT), updates, changedUpdates, nanos / 1e6, getUpdatesPerSecond(),
+                settled ? "settled" : "still flowing", ticks);
+        }
+    }
+
+    private final Block air;
+    private final Block wall;
+    private final Block water;
+    private final Block lava;
+    private final FallingColumnMover columnMover;
+    private boolean fallingColumns = true;
+
+    /**
+     * @param blockManager Used to find the blocks the scenarios are built from
+     */
+    FlowBenchmark(BlockManager blockManager) {
+        air = blockManager.getBlock(BlockManager.AIR_ID);
+        // The unloaded block is always registered and liquids can't replace it, so it's a good wall.
+        wall = blockManager.getBlock(BlockManager.UNLOADED_ID);
+        Block coreWater = blockManager.getBlock("CoreAssets:Water");
+        water = coreWater != air ? coreWater : blockManager.getBlock("FlowingLiquids:DebugLiquid");
+        lava = blockManager.getBlock("CoreAssets:Lava");
+        columnMover = new FallingColumnMover(air);
+    }
+
+    /**
+     * @param fallingColumns Whether falling columns of liquid are moved in one go each tick, as in the real simulation
+     */
+    void setFallingColumns(boolean fallingColumns) {
+        this.fallingColumns = fallingColumns;
+    }
+
+    /**
+     * @return Whether the blocks needed for the scenario are available
+     */
+    boolean isAvailable(Scenario scenario) {
+        return scenario != Scenario.REACTION_FRONT || lava != air && water != lava;
+    }
+
+    /**
+     * Run a scenario a few times to warm up, and then once more to measure it.
+     */
+    Result run(Scenario scenario, FlowSolver solver, LiquidDataCodec codec) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            simulate(build(scenario, codec), scenario, solver);
+        }
+        return simulate(build(scenario, codec), scenario, solver);
+    }
+
+    BenchmarkWorld build(Scenario scenario, LiquidDataCodec codec) {
+        BenchmarkWorld world;
+        switch (scenario) {
+            case DAM_BREAK:
+                world = new BenchmarkWorld(32, 16, 8, codec);
+                world.fill(0, 0, 0, 8, 12, 8, water);
+                break;
+            case WATERFALL:
+                world = new BenchmarkWorld(24, 24, 8, codec);
+                world.fill(0, 0, 0, 8, 20, 8, wall);
+                world.fill(0, 20, 0, 8, 2, 8, water);
+                break;
+            case PIT_FILL:
+                world = new BenchmarkWorld(24, 16, 24, codec);
+                world.fill(0, 0, 0, 24, 8, 24, wall);
+                world.fill(8, 0, 8, 8, 8, 8, air);
+                world.fill(0, 8, 0, 24, 4, 24, water);
+                break;
+            case REACTION_FRONT:
+                world = new BenchmarkWorld(32, 8, 8, codec);
+                world.fill(0, 0, 0, 12, 6, 8, water);
+                world.fill(20, 0, 0, 12, 6, 8, lava);
+                break;
+            case SETTLED_OCEAN:
+                world = new BenchmarkWorld(64, 8, 64, codec);
+                world.fill(0, 0, 0, 64, 8, 64, water);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown scenario " + scenario);
+        }
+        return world;
+    }
+
+    private Result simulate(BenchmarkWorld world, Scenario scenario, FlowSolver solver) {
+        long start = System.nanoTime();
+        long updates = 0;
+        long changedUpdates = 0;
+        int ticks = 0;
+        boolean evenTick = true;
+        while (ticks < MAX_TICKS && !world.isSettled()) {
+            PositionQueue positions = world.beginTick(evenTick);
+            if (fallingColumns) {
+                columnMover.moveColumns(positions, evenTick, world);
+            }
+            while (!positions.isEmpty()) {
+                long pos = positions.pollPacked();
+                if (solver.updatePosition(world, PositionQueue.unpackX(pos), PositionQueue.unpackY(pos), PositionQueue.unpackZ(pos))) {
+                    changedUpdates++;
+                }
+                updates++;
+            }
+            evenTick = !evenTick;
+            ticks++;
+        }
+        long nanos = System.nanoTime() - start;
+        return new Result(scenario, solver.getName(), world.codec, updates, changedUpdates, ticks, world.isSettled(), nanos);
+    }
+
+    /**
+     * A box of blocks held in arrays, surrounded by walls. It schedules positions the same way as the flow system,
+     * with separate queues for the two halves of the checkerboard.
+     */
+    class BenchmarkWorld implements FlowWorldAccess {
+        private final int sizeX;
+        private final int sizeY;
+        private final int sizeZ;
+        private final Block[] blocks;
+        private final int[] statuses;
+        private final LiquidDataCodec codec;
+        private final Random random = new Random(SEED);
+
+        private PositionQueue evenPositions = new PositionQueue();
+        private PositionQueue oddPositions = new PositionQueue();
+        private PositionQueue newEvenPositions = new PositionQueue();
+        private PositionQueue newOddPositions = new PositionQueue();
+
+        BenchmarkWorld(int sizeX, int sizeY, int sizeZ, LiquidDataCodec codec) {
+            this.sizeX = sizeX;
+            this.sizeY = sizeY;
+            this.sizeZ = sizeZ;
+            this.codec = codec;
+            blocks = new Block[sizeX * sizeY * sizeZ];
+            statuses = new int[blocks.length];
+            Arrays.fill(blocks, air);
+            Arrays.fill(statuses, codec.getFull());
+        }
+
+        /**
+         * Fill a cuboid with a block, scheduling any liquid placed. Liquid placed is full and still.
+         */
+        void fill(int minX, int minY, int minZ, int lengthX, int lengthY, int lengthZ, Block block) {
+            for (int x = minX; x < minX + lengthX; x++) {
+                for (int y = minY; y < minY + lengthY; y++) {
+                    for (int z = minZ; z < minZ + lengthZ; z++) {
+                        int i = index(x, y, z);
+                        blocks[i] = block;
+                        statuses[i] = codec.getFull();
+                        addPos(x, y, z);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Start processing the positions scheduled for one half of the checkerboard.
+         *
+         * @return The queue of positions to update in this tick
+         */
+        PositionQueue beginTick(boolean evenTick) {
+            PositionQueue temp;
+            if (evenTick) {
+                temp = evenPositions;
+                evenPositions = newEvenPositions;
+                newEvenPositions = temp;
+                return evenPositions;
+            } else {
+                temp = oddPositions;
+                oddPositions = newOddPositions;
+                newOddPositions = temp;
+                return oddPositions;
+            }
+        }
+
+        boolean isSettled() {
+            return evenPositions.isEmpty() && oddPositions.isEmpty() && newEvenPositions.isEmpty() && newOddPositions.isEmpty();
+        }
+
+        /**
+         * The total volume of liquid in the world, between ticks. The outflow of the blocks about to be updated has
+         * already been taken by their neighbours, so it isn't counted again.
+         *
+         * @param evenTick Whether the next tick is for the even half of the checkerboard
+         */
+        long getVolume(boolean evenTick) {
+            long volume = 0;
+            for (int x = 0; x < sizeX; x++) {
+                for (int y = 0; y < sizeY; y++) {
+                    for (int z = 0; z < sizeZ; z++) {
+                        int i = index(x, y, z);
+                        if (blocks[i].isLiquid()) {
+                            volume += codec.getHeight(statuses[i]);
+                            if (((x + y + z) % 2 == 0) == evenTick) {
+                                volume -= codec.getRate(statuses[i]);
+                            }
+                        }
+                    }
+                }
+            }
+            return volume;
+        }
+
+        private boolean inBounds(int x, int y, int z) {
+            return x >= 0 && x < sizeX && y >= 0 && y < sizeY && z >= 0 && z < sizeZ;
+        }
+
+        private int index(int x, int y, int z) {
+            return (x * sizeY + y) * sizeZ + z;
+        }
+
+        @Override
+        public LiquidDataCodec getCodec() {
+            return codec;
+        }
+
+        @Override
+        public Block getBlock(int x, int y, int z) {
+            return inBounds(x, y, z) ? blocks[index(x, y, z)] : wall;
+        }
+
+        @Override
+        public int getStatus(int x, int y, int z) {
+            return inBounds(x, y, z) ? statuses[index(x, y, z)] : codec.getFull();
+        }
+
+        @Override
+        public void setBlock(int x, int y, int z, Block block) {
+            if (inBounds(x, y, z)) {
+                blocks[index(x, y, z)] = block;
+            }
+        }
+
+        @Override
+        public void setStatus(int x, int y, int z, int status) {
+            if (inBounds(x, y, z)) {
+                statuses[index(x, y, z)] = status;
+            }
+        }
+
+        @Override
+        public boolean smoosh(int x, int y, int z) {
+            setBlock(x, y, z, air);
+            return true;
+        }
+
+        @Override
+        public Random getRandom() {
+            return random;
+        }
+
+        @Override
+        public void addPos(int x, int y, int z) {
+            if (getBlock(x, y, z).isLiquid()) {
+                doAddPos(x, y, z);
+            }
+        }
+
+        @Override
+        public void doAddPos(int x, int y, int z) {
+            if (inBounds(x, y, z)) {
+                if ((x + y + z) % 2 == 0) {
+                    newEvenPositions.add(x, y, z);
+                } else {
+                    newOddPositions.add(x, y, z);
+                }
+            }
+        }
+
+        @Override
+        public void reactionFired(LiquidSmooshingReactionComponent reaction) {
+            // Only the real simulation is counted in the metrics.
+        }
+    }
+}
@@ -0,0 +1,125 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.terasology.engine.math.Side;
+import org.terasology.engine.world.block.BlockRegionc;
+
+import java.util.Arrays;
+
+/**
+ * Orders the positions of each tick by how far they are from the nearest relevant region, which is where the players
+ * are, so that the liquid they can see is updated first. Distance is measured in bands of {@link #BAND_WIDTH} blocks
+ * from the centre of each region.
+ * <p>
+ * When the updates are falling behind, updates in the further bands are also put off to the next tick of the same half
+ * of the checkerboard. Each band can only be put off for as many ticks in a row as its number, so distant liquid still
+ * moves, just more slowly. Only updates with no flow in flight can be put off: a block flowing out has already had its
+ * outflow taken by its neighbour, and a block being flowed into is counted on to take that inflow, so skipping either
+ * would lose or duplicate liquid. What gets put off is liquid at rest starting to move.
+ */
+class FlowPrioritiser {
+    static final int BANDS = 4;
+    static final int BAND_WIDTH = 32;
+
+    /** The centres of the relevant regions, as x, y, z triples. */
+    private int[] centres = new int[0];
+    private int centreCount;
+    /** The number of ticks in a row each band has been put off for, for each half of the checkerboard. */
+    private final int[][] deferredTicks = new int[2][BANDS];
+    private final boolean[] deferring = new boolean[BANDS];
+
+    /**
+     * Take the centres of the regions to measure distances from, for the coming tick.
+     */
+    void setViewpoints(Iterable<BlockRegionc> regions) {
+        centreCount = 0;
+        for (BlockRegionc region : regions) {
+            if (centres.length < (centreCount + 1) * 3) {
+                centres = Arrays.copyOf(centres, Math.max(6, centres.length * 2));
+            }
+            centres[centreCount * 3] = region.minX() + region.getSizeX() / 2;
+            centres[centreCount * 3 + 1] = region.minY() + region.getSizeY() / 2;
+            centres[centreCount * 3 + 2] = region.minZ() + region.getSizeZ() / 2;
+            centreCount++;
+        }
+    }
+
+    /**
+     * Put the positions of a tick into order, nearest first, and put off distant updates if the updates are behind.
+     *
+     * @param positions The positions to update in the tick
+     * @param later The queue for the next tick of the same half of the checkerboard, to put off updates to
+     * @param evenTick Whether the tick is for the even half of the checkerboard
+     * @param behind Whether the updates are falling behind
+     * @param world The world being updated
+     * @return The number of updates put off
+     */
+    int prioritise(PositionQueue positions, PositionQueue later, boolean evenTick, boolean behind, FlowWorldAccess world) {
+        if (centreCount == 0 || positions.isEmpty()) {
+            return 0;
+        }
+        positions.sortByBand(this::band, BANDS);
+        int[] ticks = deferredTicks[evenTick ? 0 : 1];
+        boolean anyDeferring = false;
+        for (int b = 0; b < BANDS; b++) {
+            deferring[b] = behind && ticks[b] < b;
+            ticks[b] = deferring[b] ? ticks[b] + 1 : 0;
+            anyDeferring |= deferring[b];
+        }
+        if (!anyDeferring) {
+            return 0;
+        }
+        int sizeBefore = positions.size();
+        positions.removeIf(pos -> {
+            int x = PositionQueue.unpackX(pos);
+            int y = PositionQueue.unpackY(pos);
+            int z = PositionQueue.unpackZ(pos);
+            if (!deferring[band(pos)] || hasFlowInFlight(world, x, y, z)) {
+                return false;
+            }
+            later.add(x, y, z);
+            return true;
+        });
+        return sizeBefore - positions.size();
+    }
+
+    /**
+     * The distance band of a position: how many times {@link #BAND_WIDTH} it is from the nearest centre along any
+     * axis, up to the last band.
+     */
+    private int band(long pos) {
+        int x = PositionQueue.unpackX(pos);
+        int y = PositionQueue.unpackY(pos);
+        int z = PositionQueue.unpackZ(pos);
+        int nearest = Integer.MAX_VALUE;
+        for (int i = 0; i < centreCount * 3; i += 3) {
+            int distance = Math.max(Math.abs(x - centres[i]), Math.max(Math.abs(y - centres[i + 1]), Math.abs(z - centres[i + 2])));
+            nearest = Math.min(nearest, distance);
+        }
+        return Math.min(nearest / BAND_WIDTH, BANDS - 1);
+    }
+
+    /**
+     * Whether liquid is flowing out of a block, or into it from a neighbour.
+     */
+    private static boolean hasFlowInFlight(FlowWorldAccess world, int x, int y, int z) {
+        LiquidDataCodec codec = world.getCodec();
+        if (world.getBlock(x, y, z).isLiquid() && codec.getRate(world.getStatus(x, y, z)) > 0) {
+            return true;
+        }
+        for (Side side : SideOffsets.ALL) {
+            int adjX = x + SideOffsets.X[side.ordinal()];
+            int adjY = y + SideOffsets.Y[side.ordinal()];
+            int adjZ = z + SideOffsets.Z[side.ordinal()];
+            if (world.getBlock(adjX, adjY, adjZ).isLiquid()) {
+                int adjStatus = world.getStatus(adjX, adjY, adjZ);
+                if (codec.getRate(adjStatus) > 0 && codec.getDirection(adjStatus) == side.reverse()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
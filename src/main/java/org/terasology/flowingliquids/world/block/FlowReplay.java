@@ -0,0 +1,282 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.terasology.engine.world.block.Block;
+import org.terasology.engine.world.block.BlockManager;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Replays a recording made by {@link FlowTickRecorder}, running each recorded update again in an in-memory world built
+ * from the recorded reads, without touching the real world. Each update's writes and scheduling are compared with the
+ * recording, and the time taken is measured, so that a slow scenario can be profiled away from the rest of the game.
+ */
+class FlowReplay {
+    private final LiquidFlowSystem flowSystem;
+    private final BlockManager blockManager;
+    private final Block air;
+
+    /**
+     * @param flowSystem Makes the solvers to replay with, separate from the world's so that replays can run on another
+     *     thread
+     * @param blockManager Used to find the blocks named in the recording
+     */
+    FlowReplay(LiquidFlowSystem flowSystem, BlockManager blockManager) {
+        this.flowSystem = flowSystem;
+        this.blockManager = blockManager;
+        air = blockManager.getBlock(BlockManager.AIR_ID);
+    }
+
+    /**
+     * The outcome of a replay.
+     */
+    static class Result {
+        long updates;
+        long mismatches;
+        String firstMismatch;
+        long recordedNanos;
+        long replayNanos;
+        long slowestNanos;
+        String slowestUpdate;
+
+        @Override
+        public String toString() {
+            StringBuilder result = new StringBuilder(String.format(Locale.ROOT,
+                "%d updates, recorded in %.1fms, replayed in %.1fms, %d mismatched",
+                updates, recordedNanos / 1e6, replayNanos / 1e6, mismatches));
+            if (slowestUpdate != null) {
+                result.append(String.format(Locale.ROOT, "\nSlowest recorded update: %s, %.1fµs", slowestUpdate, slowestNanos / 1e3));
+            }
+            if (firstMismatch != null) {
+                result.append("\nFirst mismatch: ").append(firstMismatch);
+            }
+            return result.toString();
+        }
+    }
+
+    /**
+     * @param file A recording made by {@link FlowTickRecorder}
+     * @throws IOException If the file couldn't be read, or isn't a recording
+     */
+    Result replay(Path file) throws IOException {
+        Result result = new Result();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FlowTickRecorder.MAGIC || in.readInt() != FlowTickRecorder.VERSION) {
+                throw new IOException(file + " is not a liquid flow recording.");
+            }
+            long seed = in.readLong();
+            String solverName = in.readUTF();
+            FlowSolver solver = flowSystem.newSolver(solverName);
+            if (solver == null) {
+                throw new IOException(file + " was recorded with an unknown solver, " + solverName + ".");
+            }
+            LiquidDataCodec codec;
+            try {
+                codec = LiquidDataCodec.valueOf(in.readUTF());
+            } catch (IllegalArgumentException e) {
+                throw new IOException(file + " was recorded with an unknown liquid data format.", e);
+            }
+            ReplayWorld world = new ReplayWorld(codec);
+            Map<Integer, Block> blocks = new HashMap<>();
+            List<String> expected = new ArrayList<>();
+            List<long[]> reads = new ArrayList<>();
+            long tick = 0;
+            int updateX = 0;
+            int updateY = 0;
+            int updateZ = 0;
+            while (true) {
+                byte tag;
+                try {
+                    tag = in.readByte();
+                } catch (EOFException e) {
+                    break;
+                }
+                switch (tag) {
+                    case FlowTickRecorder.BLOCK:
+                        blocks.put(in.readShort() & 0xFFFF, blockManager.getBlock(in.readUTF()));
+                        break;
+                    case FlowTickRecorder.TICK:
+                        tick = in.readLong();
+                        in.readBoolean();
+                        break;
+                    case FlowTickRecorder.UPDATE:
+                        updateX = in.readInt();
+                        updateY = in.readInt();
+                        updateZ = in.readInt();
+                        expected.clear();
+                        reads.clear();
+                        world.smooshResults.clear();
+                        break;
+                    case FlowTickRecorder.READ:
+                        reads.add(new long[] {in.readInt(), in.readInt(), in.readInt(), in.readShort() & 0xFFFF, in.readShort() & 0xFFFF});
+                        break;
+                    case FlowTickRecorder.SET_BLOCK: {
+                        int x = in.readInt();
+                        int y = in.readInt();
+                        int z = in.readInt();
+                        expected.add(describeSetBlock(x, y, z, blocks.getOrDefault(in.readShort() & 0xFFFF, air)));
+                        break;
+                    }
+                    case FlowTickRecorder.SET_STATUS:
+                        expected.add(describeSetStatus(in.readInt(), in.readInt(), in.readInt(), in.readShort() & 0xFFFF));
+                        break;
+                    case FlowTickRecorder.SMOOSH: {
+                        int x = in.readInt();
+                        int y = in.readInt();
+                        int z = in.readInt();
+                        boolean smooshed = in.readBoolean();
+                        world.smooshResults.add(smooshed);
+                        expected.add(describeSmoosh(x, y, z, smooshed));
+                        break;
+                    }
+                    case FlowTickRecorder.SCHEDULE:
+                        expected.add(describeSchedule(in.readInt(), in.readInt(), in.readInt(), in.readBoolean()));
+                        break;
+                    case FlowTickRecorder.UPDATE_END: {
+                        in.readBoolean();
+                        long recordedNanos = in.readLong();
+                        for (long[] read : reads) {
+                            world.put((int) read[0], (int) read[1], (int) read[2], blocks.getOrDefault((int) read[3], air), (int) read[4]);
+                        }
+                        world.outputs.clear();
+                        world.random.setSeed(FlowSeeds.forPosition(seed, tick, updateX, updateY, updateZ));
+                        long start = System.nanoTime();
+                        solver.updatePosition(world, updateX, updateY, updateZ);
+                        result.replayNanos += System.nanoTime() - start;
+                        result.recordedNanos += recordedNanos;
+                        result.updates++;
+                        String update = String.format(Locale.ROOT, "tick %d at (%d, %d, %d)", tick, updateX, updateY, updateZ);
+                        if (recordedNanos > result.slowestNanos) {
+                            result.slowestNanos = recordedNanos;
+                            result.slowestUpdate = update;
+                        }
+                        if (!world.outputs.equals(expected)) {
+                            result.mismatches++;
+                            if (result.firstMismatch == null) {
+                                result.firstMismatch = update + ": recorded " + expected + ", replayed " + world.outputs;
+                            }
+                        }
+                        break;
+                    }
+                    default:
+                        throw new IOException("Unknown record " + tag + " in " + file + ".");
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String describeSetBlock(int x, int y, int z, Block block) {
+        return "setBlock(" + x + ", " + y + ", " + z + ", " + block.getURI() + ")";
+    }
+
+    private static String describeSetStatus(int x, int y, int z, int status) {
+        return "setStatus(" + x + ", " + y + ", " + z + ", " + status + ")";
+    }
+
+    private static String describeSmoosh(int x, int y, int z, boolean smooshed) {
+        return "smoosh(" + x + ", " + y + ", " + z + ") = " + smooshed;
+    }
+
+    private static String describeSchedule(int x, int y, int z, boolean force) {
+        return (force ? "doAddPos(" : "addPos(") + x + ", " + y + ", " + z + ")";
+    }
+
+    /**
+     * The cells seen in the recording, with the replayed updates' writes applied. Cells which were never recorded are
+     * treated as air, though a faithful replay never reads them.
+     */
+    private class ReplayWorld implements FlowWorldAccess {
+        private final Map<Long, Block> blocks = new HashMap<>();
+        private final Map<Long, Integer> statuses = new HashMap<>();
+        private final Random random = new Random();
+        /** The results of the recorded smooshes in the current update, in order. */
+        private final Deque<Boolean> smooshResults = new ArrayDeque<>();
+        /** The writes and scheduling done by the current update, described the same way as the recorded ones. */
+        private final List<String> outputs = new ArrayList<>();
+        private final LiquidDataCodec codec;
+
+        ReplayWorld(LiquidDataCodec codec) {
+            this.codec = codec;
+        }
+
+        void put(int x, int y, int z, Block block, int status) {
+            long key = PositionQueue.pack(x, y, z);
+            blocks.put(key, block);
+            statuses.put(key, status);
+        }
+
+        @Override
+        public LiquidDataCodec getCodec() {
+            return codec;
+        }
+
+        @Override
+        public Block getBlock(int x, int y, int z) {
+            return blocks.getOrDefault(PositionQueue.pack(x, y, z), air);
+        }
+
+        @Override
+        public int getStatus(int x, int y, int z) {
+            return statuses.getOrDefault(PositionQueue.pack(x, y, z), codec.getFull());
+        }
+
+        @Override
+        public void setBlock(int x, int y, int z, Block block) {
+            blocks.put(PositionQueue.pack(x, y, z), block);
+            outputs.add(describeSetBlock(x, y, z, block));
+        }
+
+        @Override
+        public void setStatus(int x, int y, int z, int status) {
+            statuses.put(PositionQueue.pack(x, y, z), status);
+            outputs.add(describeSetStatus(x, y, z, status));
+        }
+
+        @Override
+        public boolean smoosh(int x, int y, int z) {
+            Boolean recorded = smooshResults.poll();
+            boolean smooshed = recorded == null || recorded;
+            if (smooshed) {
+                blocks.put(PositionQueue.pack(x, y, z), air);
+            }
+            outputs.add(describeSmoosh(x, y, z, smooshed));
+            return smooshed;
+        }
+
+        @Override
+        public Random getRandom() {
+            return random;
+        }
+
+        @Override
+        public void addPos(int x, int y, int z) {
+            outputs.add(describeSchedule(x, y, z, false));
+        }
+
+        @Override
+        public void doAddPos(int x, int y, int z) {
+            outputs.add(describeSchedule(x, y, z, true));
+        }
+
+        @Override
+        public void reactionFired(LiquidSmooshingReactionComponent reaction) {
+            // Only the real simulation is counted in the metrics.
+        }
+    }
+}
@@ -0,0 +1,67 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.terasology.engine.world.chunks.Chunks;
+
+/**
+ * Derives the seeds of the random number generators used in deterministic mode.
+ * <p>
+ * The world seed is split into a stream for each flow tick and chunk, and that is split again for each position in the
+ * chunk, in the manner of SplitMix64. The random numbers used by an update therefore depend only on the world seed,
+ * the tick and the position, and not on how many updates ran before it or on which thread.
+ */
+final class FlowSeeds {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    /** Mixed into the tick's seed for the random updates, so they don't share a stream with any chunk. */
+    private static final long RANDOM_UPDATE_STREAM = 0x52414E44L;
+
+    private FlowSeeds() {
+    }
+
+    /**
+     * @param worldSeed The seed of the world, as a string
+     * @return The seed for the flow simulation
+     */
+    static long fromWorldSeed(String worldSeed) {
+        long hash = 0;
+        for (int i = 0; i < worldSeed.length(); i++) {
+            hash = hash * 31 + worldSeed.charAt(i);
+        }
+        return mix(hash);
+    }
+
+    /**
+     * @return The seed for the updates of one chunk in one tick
+     */
+    static long forChunk(long seed, long tick, int chunkX, int chunkY, int chunkZ) {
+        long chunkKey = LiquidChunkIndex.chunkKey(chunkX, chunkY, chunkZ);
+        return mix(mix(seed + tick * GOLDEN_GAMMA) + chunkKey * GOLDEN_GAMMA);
+    }
+
+    /**
+     * @return The seed for the update of one position in one tick
+     */
+    static long forPosition(long seed, long tick, int x, int y, int z) {
+        long chunkSeed = forChunk(seed, tick, Math.floorDiv(x, Chunks.SIZE_X), Math.floorDiv(y, Chunks.SIZE_Y), Math.floorDiv(z, Chunks.SIZE_Z));
+        int cell = (Math.floorMod(x, Chunks.SIZE_X) * Chunks.SIZE_Y + Math.floorMod(y, Chunks.SIZE_Y)) * Chunks.SIZE_Z + Math.floorMod(z, Chunks.SIZE_Z);
+        return mix(chunkSeed + (cell + 1) * GOLDEN_GAMMA);
+    }
+
+    /**
+     * @return The seed for the random updates made at the start of a tick
+     */
+    static long forRandomUpdates(long seed, long tick) {
+        return mix(mix(seed + tick * GOLDEN_GAMMA) ^ RANDOM_UPDATE_STREAM);
+    }
+
+    /**
+     * The SplitMix64 finaliser, which scrambles the bits of a value so that nearby inputs give unrelated outputs.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
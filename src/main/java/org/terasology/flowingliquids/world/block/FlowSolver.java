@@ -0,0 +1,38 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+/**
+ * The rules deciding how liquid moves in a single flow update.
+ * <p>
+ * Solvers can be mixed, as a world can switch solver at any time and one solver may hand some updates to another, so
+ * they all keep to the meaning of {@link LiquidData}: a liquid block with a direction and rate is passing that much
+ * liquid to the neighbour in that direction. The neighbour adds it to its own height when it's next updated, and the
+ * block subtracts it from its own height when it's next updated after that.
+ */
+interface FlowSolver {
+
+    /**
+     * @return The name used to select the solver
+     */
+    String getName();
+
+    /**
+     * Whether each update only writes to its own block and to the rates of neighbours flowing into it, so that the
+     * updates of one half of the checkerboard can be run in any order, and on multiple threads by
+     * {@link ParallelFlowEngine}.
+     */
+    boolean isParallelSafe();
+
+    /**
+     * Recalculate the flow of the liquid at a position.
+     *
+     * @param world The world to read from and write to
+     * @param x The x coordinate of the position to update
+     * @param y The y coordinate of the position to update
+     * @param z The z coordinate of the position to update
+     * @return True if anything changed
+     */
+    boolean updatePosition(FlowWorldAccess world, int x, int y, int z);
+}
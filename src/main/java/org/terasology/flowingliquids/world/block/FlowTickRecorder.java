@@ -0,0 +1,265 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.engine.world.block.Block;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Records the input and output of every flow update to a file, so that a slow or misbehaving scenario can be replayed
+ * offline by {@link FlowReplay}. It sits between the update logic and the real world, passing everything through.
+ * <p>
+ * The first time each cell is read in a tick, its block and liquid data are recorded; the rest of the tick's reads of
+ * that cell can be worked out from the recorded writes. Replays are only exact if the simulation was in deterministic
+ * mode, and if nothing other than the flow updates changed the liquid during a tick.
+ * <p>
+ * The file is a sequence of records, each starting with one of the tags below and written with
+ * {@link DataOutputStream}, after a header of {@link #MAGIC}, {@link #VERSION}, the seed, the name of the
+ * {@link FlowSolver} and the name of the {@link LiquidDataCodec}. Liquid data is written as two bytes.
+ */
+class FlowTickRecorder implements FlowWorldAccess, Closeable {
+    static final int MAGIC = 0x4C515243;
+    static final int VERSION = 3;
+
+    /** A block id used in the recording, followed by its URI. Written before the id is first used. */
+    static final byte BLOCK = 1;
+    /** The start of a tick: the tick number and whether it's for the even half of the checkerboard. */
+    static final byte TICK = 2;
+    /** The start of an update, at a position. */
+    static final byte UPDATE = 3;
+    /** The first read of a cell in the tick: the position, block id and liquid data. */
+    static final byte READ = 4;
+    static final byte SET_BLOCK = 5;
+    static final byte SET_STATUS = 6;
+    /** A block destroyed by liquid: the position and whether the destruction happened. */
+    static final byte SMOOSH = 7;
+    /** A position scheduled for an update: the position and whether it was scheduled even without liquid. */
+    static final byte SCHEDULE = 8;
+    /** The end of an update: whether it changed anything and how long it took, in nanoseconds. */
+    static final byte UPDATE_END = 9;
+
+    private static final Logger logger = LoggerFactory.getLogger(FlowTickRecorder.class);
+
+    private final FlowWorldAccess world;
+    private final Path file;
+    private final DataOutputStream out;
+    /** The cells read or written in the current tick. */
+    private final PositionQueue seen = new PositionQueue();
+    /** Which block ids have been written to the file. */
+    private boolean[] knownBlocks = new boolean[256];
+    private long records;
+    private boolean failed;
+
+    /**
+     * @param world The world to pass everything through to
+     * @param file The file to write the recording to, which is replaced if it exists
+     * @param seed The seed of the deterministic simulation
+     * @param solver The name of the solver making the updates
+     */
+    FlowTickRecorder(FlowWorldAccess world, Path file, long seed, String solver) throws IOException {
+        this.world = world;
+        this.file = file;
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(seed);
+        out.writeUTF(solver);
+        out.writeUTF(world.getCodec().name());
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    long getRecordCount() {
+        return records;
+    }
+
+    /**
+     * @return Whether writing to the file has failed, in which case the recording should be stopped
+     */
+    boolean hasFailed() {
+        return failed;
+    }
+
+    void beginTick(long tick, boolean even) {
+        seen.clear();
+        try {
+            out.writeByte(TICK);
+            out.writeLong(tick);
+            out.writeBoolean(even);
+            records++;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    void beginUpdate(int x, int y, int z) {
+        writePosition(UPDATE, x, y, z);
+    }
+
+    void endUpdate(boolean changed, long nanos) {
+        try {
+            out.writeByte(UPDATE_END);
+            out.writeBoolean(changed);
+            out.writeLong(nanos);
+            records++;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public LiquidDataCodec getCodec() {
+        return world.getCodec();
+    }
+
+    @Override
+    public Block getBlock(int x, int y, int z) {
+        recordRead(x, y, z);
+        return world.getBlock(x, y, z);
+    }
+
+    @Override
+    public int getStatus(int x, int y, int z) {
+        recordRead(x, y, z);
+        return world.getStatus(x, y, z);
+    }
+
+    @Override
+    public void setBlock(int x, int y, int z, Block block) {
+        recordRead(x, y, z);
+        world.setBlock(x, y, z, block);
+        try {
+            writeBlockId(block);
+            writePosition(SET_BLOCK, x, y, z);
+            out.writeShort(block.getId());
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void setStatus(int x, int y, int z, int status) {
+        recordRead(x, y, z);
+        world.setStatus(x, y, z, status);
+        try {
+            writePosition(SET_STATUS, x, y, z);
+            out.writeShort(status);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public boolean smoosh(int x, int y, int z) {
+        recordRead(x, y, z);
+        boolean smooshed = world.smoosh(x, y, z);
+        try {
+            writePosition(SMOOSH, x, y, z);
+            out.writeBoolean(smooshed);
+        } catch (IOException e) {
+            fail(e);
+        }
+        return smooshed;
+    }
+
+    @Override
+    public Random getRandom() {
+        return world.getRandom();
+    }
+
+    @Override
+    public void addPos(int x, int y, int z) {
+        world.addPos(x, y, z);
+        writeSchedule(x, y, z, false);
+    }
+
+    @Override
+    public void doAddPos(int x, int y, int z) {
+        world.doAddPos(x, y, z);
+        writeSchedule(x, y, z, true);
+    }
+
+    @Override
+    public void reactionFired(LiquidSmooshingReactionComponent reaction) {
+        world.reactionFired(reaction);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Record the state of a cell the first time it's touched in a tick, before anything is written to it.
+     */
+    private void recordRead(int x, int y, int z) {
+        if (!seen.add(x, y, z)) {
+            return;
+        }
+        Block block = world.getBlock(x, y, z);
+        int status = world.getStatus(x, y, z);
+        try {
+            writeBlockId(block);
+            writePosition(READ, x, y, z);
+            out.writeShort(block.getId());
+            out.writeShort(status);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void writeSchedule(int x, int y, int z, boolean force) {
+        try {
+            writePosition(SCHEDULE, x, y, z);
+            out.writeBoolean(force);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void writeBlockId(Block block) throws IOException {
+        int id = block.getId() & 0xFFFF;
+        if (id >= knownBlocks.length) {
+            knownBlocks = Arrays.copyOf(knownBlocks, Math.max(id + 1, knownBlocks.length * 2));
+        }
+        if (!knownBlocks[id]) {
+            knownBlocks[id] = true;
+            out.writeByte(BLOCK);
+            out.writeShort(id);
+            out.writeUTF(block.getURI().toString());
+            records++;
+        }
+    }
+
+    private void writePosition(byte tag, int x, int y, int z) {
+        try {
+            out.writeByte(tag);
+            out.writeInt(x);
+            out.writeInt(y);
+            out.writeInt(z);
+            records++;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void fail(IOException e) {
+        if (!failed) {
+            failed = true;
+            logger.error("Failed to write the liquid flow recording to {}", file, e);
+        }
+    }
+}
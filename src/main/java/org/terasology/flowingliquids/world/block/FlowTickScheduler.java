@@ -0,0 +1,94 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+/**
+ * Decides how many flow updates to run in each tick, so that the work fits into a fixed time budget.
+ * The updates are run in batches, and the size of each batch is chosen from the remaining budget and a running
+ * estimate of the cost of a single update, so that the clock only needs to be checked once per batch.
+ */
+public class FlowTickScheduler {
+    public static final int DEFAULT_BUDGET_MICROS = 2000;
+    private static final int MIN_BATCH_SIZE = 1;
+    private static final int MAX_BATCH_SIZE = 4096;
+    /** How much weight each new measurement gets in the running averages. */
+    private static final double SMOOTHING = 0.1;
+
+    private long budgetNanos;
+    private double nanosPerUpdate = 20_000;
+    private double drainRate;
+
+    private long tickStart;
+    private int updatesThisTick;
+
+    public FlowTickScheduler() {
+        setBudgetMicros(DEFAULT_BUDGET_MICROS);
+    }
+
+    public int getBudgetMicros() {
+        return (int) (budgetNanos / 1000);
+    }
+
+    /**
+     * @param budgetMicros The amount of time to spend on flow updates in each tick, in microseconds
+     */
+    public void setBudgetMicros(int budgetMicros) {
+        if (budgetMicros <= 0) {
+            throw new IllegalArgumentException("The flow tick budget must be positive.");
+        }
+        budgetNanos = budgetMicros * 1000L;
+    }
+
+    /**
+     * @return The estimated time taken by a single flow update, in nanoseconds
+     */
+    public double getNanosPerUpdate() {
+        return nanosPerUpdate;
+    }
+
+    /**
+     * @return The average number of queued positions processed per second
+     */
+    public double getDrainRate() {
+        return drainRate;
+    }
+
+    void beginTick() {
+        tickStart = System.nanoTime();
+        updatesThisTick = 0;
+    }
+
+    /**
+     * @return The number of updates to run in the next batch, or 0 if the budget for this tick has been used up
+     */
+    int nextBatchSize() {
+        long remaining = budgetNanos - (System.nanoTime() - tickStart);
+        if (remaining <= 0) {
+            return 0;
+        }
+        return (int) Math.max(MIN_BATCH_SIZE, Math.min(MAX_BATCH_SIZE, remaining / nanosPerUpdate));
+    }
+
+    /**
+     * Record how long a batch took, to refine the estimated cost of an update.
+     *
+     * @param updates The number of updates in the batch
+     * @param nanos The time the batch took
+     */
+    void recordBatch(int updates, long nanos) {
+        if (updates > 0) {
+            nanosPerUpdate += SMOOTHING * ((double) nanos / updates - nanosPerUpdate);
+            updatesThisTick += updates;
+        }
+    }
+
+    /**
+     * @param delta The length of the tick, in seconds
+     */
+    void endTick(float delta) {
+        if (delta > 0) {
+            drainRate += SMOOTHING * (updatesThisTick / delta - drainRate);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.terasology.engine.world.block.Block;
+
+import java.util.Random;
+
+/**
+ * The world as seen by a single flow update. All the reads, writes and scheduling done by an update go through this,
+ * so that updates can be staged rather than applied straight to the {@link org.terasology.engine.world.WorldProvider}.
+ */
+interface FlowWorldAccess {
+
+    /**
+     * @return The format of the liquid data in this world
+     */
+    LiquidDataCodec getCodec();
+
+    Block getBlock(int x, int y, int z);
+
+    /**
+     * @return The liquid data at the position, in the format given by {@link #getCodec()}
+     */
+    int getStatus(int x, int y, int z);
+
+    void setBlock(int x, int y, int z, Block block);
+
+    void setStatus(int x, int y, int z, int status);
+
+    /**
+     * Destroy the (non-air) block at a position because liquid is flowing into it.
+     *
+     * @return True if the position is now empty, false if the destruction didn't happen
+     */
+    boolean smoosh(int x, int y, int z);
+
+    /**
+     * @return The random number generator to use for this update
+     */
+    Random getRandom();
+
+    /**
+     * Schedule a position for a flow update, if it contains liquid.
+     */
+    void addPos(int x, int y, int z);
+
+    /**
+     * Schedule a position for a flow update, even if it doesn't contain liquid.
+     */
+    void doAddPos(int x, int y, int z);
+
+    /**
+     * Note that a smooshing reaction produced its product, for the metrics.
+     */
+    void reactionFired(LiquidSmooshingReactionComponent reaction);
+}
@@ -0,0 +1,65 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of durations, with a bucket for each power of two nanoseconds. This is coarse, but recording a value is
+ * just a few instructions and never allocates, so it can be done every tick.
+ */
+public class LatencyHistogram {
+    private final long[] buckets = new long[64];
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+
+    /**
+     * @param nanos The duration to record, in nanoseconds
+     */
+    void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets[64 - Long.numberOfLeadingZeros(nanos)]++;
+        count++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanNanos() {
+        return count == 0 ? 0 : (double) totalNanos / count;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * @param fraction The fraction of values which should be at most the result, between 0 and 1
+     * @return An upper bound on that quantile, accurate to within a factor of two
+     */
+    public long getQuantileNanos(double fraction) {
+        long target = (long) Math.ceil(fraction * count);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= target && seen > 0) {
+                return Math.min(maxNanos, i == 0 ? 0 : (1L << i) - 1);
+            }
+        }
+        return maxNanos;
+    }
+
+    void reset() {
+        Arrays.fill(buckets, 0);
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+    }
+}
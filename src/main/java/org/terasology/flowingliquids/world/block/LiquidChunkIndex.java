@@ -0,0 +1,213 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.joml.Vector3ic;
+import org.terasology.engine.world.block.Block;
+import org.terasology.engine.world.chunks.Chunks;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps track of how much liquid each loaded chunk contains, so that chunks without any liquid can be skipped, and
+ * which liquid blocks are asleep because they're part of a settled body of liquid.
+ * Its chunk keys are used by the rest of the module wherever chunks are kept in a map.
+ */
+public class LiquidChunkIndex {
+    private final Map<Long, ChunkInfo> chunks = new HashMap<>();
+    /** The keys of the chunks whose liquid has changed height since they were last checked for levelling. */
+    private final Set<Long> disturbed = new HashSet<>();
+
+    /**
+     * Receives the chunks which have been disturbed enough to be worth levelling.
+     */
+    interface DisturbedChunkConsumer {
+        /**
+         * @param chunkKey The key of the chunk
+         * @param cell The most recently disturbed block in the chunk, indexed by {@link SettledBodyDetector#cellIndex}
+         */
+        void accept(long chunkKey, int cell);
+    }
+
+    LiquidChunkIndex() {
+    }
+
+    /**
+     * @return The key of the chunk at a chunk position
+     */
+    public static long chunkKey(int chunkX, int chunkY, int chunkZ) {
+        return PositionQueue.pack(chunkX, chunkY, chunkZ);
+    }
+
+    public static long chunkKey(Vector3ic chunkPos) {
+        return chunkKey(chunkPos.x(), chunkPos.y(), chunkPos.z());
+    }
+
+    /**
+     * @return The key of the chunk containing a block position
+     */
+    public static long chunkKeyAt(int x, int y, int z) {
+        return chunkKey(Math.floorDiv(x, Chunks.SIZE_X), Math.floorDiv(y, Chunks.SIZE_Y), Math.floorDiv(z, Chunks.SIZE_Z));
+    }
+
+    /**
+     * Record a newly loaded chunk.
+     *
+     * @param chunkPos The position of the chunk
+     * @param liquidCells The number of liquid blocks in it
+     */
+    void add(Vector3ic chunkPos, int liquidCells) {
+        ChunkInfo info = new ChunkInfo();
+        info.liquidCells = liquidCells;
+        chunks.put(chunkKey(chunkPos), info);
+    }
+
+    void remove(Vector3ic chunkPos) {
+        chunks.remove(chunkKey(chunkPos));
+    }
+
+    /**
+     * @return Whether the chunk is loaded and contains any liquid
+     */
+    boolean hasLiquid(Vector3ic chunkPos) {
+        ChunkInfo info = chunks.get(chunkKey(chunkPos));
+        return info != null && info.liquidCells > 0;
+    }
+
+    /**
+     * @return The number of loaded chunks which contain any liquid
+     */
+    int getChunkCount() {
+        int count = 0;
+        for (ChunkInfo info : chunks.values()) {
+            if (info.liquidCells > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of liquid blocks in a loaded chunk, or 0 if it isn't loaded
+     */
+    int getLiquidCells(Vector3ic chunkPos) {
+        ChunkInfo info = chunks.get(chunkKey(chunkPos));
+        return info != null ? info.liquidCells : 0;
+    }
+
+    /**
+     * @return The number of liquid blocks in each loaded chunk which contains any, keyed by {@link #chunkKey}
+     */
+    Map<Long, Integer> getLiquidCounts() {
+        Map<Long, Integer> counts = new HashMap<>();
+        for (Map.Entry<Long, ChunkInfo> entry : chunks.entrySet()) {
+            if (entry.getValue().liquidCells > 0) {
+                counts.put(entry.getKey(), entry.getValue().liquidCells);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @return Whether the chunk containing a block position is loaded and contains any liquid
+     */
+    boolean hasLiquidAt(int x, int y, int z) {
+        ChunkInfo info = chunks.get(chunkKeyAt(x, y, z));
+        return info != null && info.liquidCells > 0;
+    }
+
+    boolean isAsleep(int x, int y, int z) {
+        ChunkInfo info = chunks.get(chunkKeyAt(x, y, z));
+        if (info == null || info.asleep == null) {
+            return false;
+        }
+        int cell = cellIndexAt(x, y, z);
+        return (info.asleep[cell >> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Wake a block, so that it can be updated again.
+     */
+    void wake(int x, int y, int z) {
+        ChunkInfo info = chunks.get(chunkKeyAt(x, y, z));
+        if (info != null && info.asleep != null) {
+            int cell = cellIndexAt(x, y, z);
+            info.asleep[cell >> 6] &= ~(1L << cell);
+        }
+    }
+
+    /**
+     * @return The bitmap of sleeping blocks in a loaded chunk, indexed by {@link SettledBodyDetector#cellIndex}, or
+     *     null if the chunk isn't loaded
+     */
+    long[] getSleepBitmap(Vector3ic chunkPos) {
+        ChunkInfo info = chunks.get(chunkKey(chunkPos));
+        if (info == null) {
+            return null;
+        }
+        if (info.asleep == null) {
+            info.asleep = new long[SettledBodyDetector.CHUNK_VOLUME / 64];
+        }
+        return info.asleep;
+    }
+
+    /**
+     * Update the liquid count for a block change.
+     */
+    void blockChanged(Vector3ic pos, Block oldBlock, Block newBlock) {
+        if (oldBlock.isLiquid() == newBlock.isLiquid()) {
+            return;
+        }
+        ChunkInfo info = chunks.get(chunkKeyAt(pos.x(), pos.y(), pos.z()));
+        if (info != null) {
+            info.liquidCells += newBlock.isLiquid() ? 1 : -1;
+        }
+    }
+
+    /**
+     * Note that the height of a liquid block changed.
+     */
+    void disturb(int x, int y, int z) {
+        long key = chunkKeyAt(x, y, z);
+        ChunkInfo info = chunks.get(key);
+        if (info != null) {
+            info.disturbance++;
+            info.disturbedCell = cellIndexAt(x, y, z);
+            disturbed.add(key);
+        }
+    }
+
+    /**
+     * Pass on the chunks which have been disturbed at least a given number of times since this was last called, and
+     * start counting again for every chunk.
+     */
+    void takeDisturbed(int threshold, DisturbedChunkConsumer consumer) {
+        for (long key : disturbed) {
+            ChunkInfo info = chunks.get(key);
+            if (info != null) {
+                if (info.disturbance >= threshold) {
+                    consumer.accept(key, info.disturbedCell);
+                }
+                info.disturbance = 0;
+            }
+        }
+        disturbed.clear();
+    }
+
+    private static int cellIndexAt(int x, int y, int z) {
+        return SettledBodyDetector.cellIndex(Math.floorMod(x, Chunks.SIZE_X), Math.floorMod(y, Chunks.SIZE_Y), Math.floorMod(z, Chunks.SIZE_Z));
+    }
+
+    private static class ChunkInfo {
+        int liquidCells;
+        /** Bitmap of sleeping blocks, or null if none have ever been asleep. */
+        long[] asleep;
+        /** The number of height changes since the chunk was last checked for levelling. */
+        int disturbance;
+        int disturbedCell;
+    }
+}
@@ -14,6 +14,7 @@ public class LiquidData {
     public static final int MAX_DOWN_RATE = 4;
     public static final byte FULL = (byte) 0b0_000_0000;
     public static final String EXTRA_DATA_NAME = "flowingLiquids.flow";
+    private static final Side[] SIDES = Side.values();
 
     /**
      * Extracts the amount of liquid in the block from a byte of liquid data.
@@ -47,7 +48,7 @@ public class LiquidData {
         if (sideData == 0) {
             return null;
         } else if (sideData < 7) {
-            return Side.values()[sideData-1];
+            return SIDES[sideData-1];
         } else { // sideData == 7
             return Side.BOTTOM;
         }
@@ -0,0 +1,288 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.terasology.engine.math.Side;
+import org.terasology.engine.world.chunks.blockdata.ExtraBlockDataManager;
+
+/**
+ * The formats liquid data can be stored in. Each world uses one of them, chosen in its
+ * {@link LiquidFlowSettingsComponent}, and everything which reads or writes liquid data goes through it.
+ * <p>
+ * Liquid data is handled as an int, whose low byte is stored in the {@link LiquidData#EXTRA_DATA_NAME} extra data field
+ * and whose high byte, if the format uses one, is stored in {@link #HIGH_EXTRA_DATA_NAME}. Heights and rates are in
+ * units of {@link #getMaxHeight()} per block.
+ * <p>
+ * Every wide value has {@link #WIDE_MARKER} set, which can't be set in the high byte of a narrow world, so
+ * {@link #WIDE} can read narrow data too, converting it as it goes. Narrow worlds can therefore be switched to the
+ * wide format without converting them up front, and code which only looks at the liquid, rather than simulating it,
+ * can read any world with {@link #WIDE}.
+ */
+public enum LiquidDataCodec {
+    /**
+     * The original single byte format, described by {@link LiquidData}: 16 heights, and rates of up to 2 sideways and
+     * 4 downwards.
+     */
+    NARROW(LiquidData.MAX_HEIGHT, LiquidData.MAX_RATE, LiquidData.MAX_DOWN_RATE) {
+        @Override
+        public int getHeight(int status) {
+            return LiquidData.getHeight((byte) status);
+        }
+
+        @Override
+        public int setHeight(int status, int height) {
+            return LiquidData.setHeight((byte) status, height) & 0xFF;
+        }
+
+        @Override
+        public Side getDirection(int status) {
+            return LiquidData.getDirection((byte) status);
+        }
+
+        @Override
+        public int setDirection(int status, Side side) {
+            return LiquidData.setDirection((byte) status, side) & 0xFF;
+        }
+
+        @Override
+        public int getRate(int status) {
+            return LiquidData.getRate((byte) status);
+        }
+
+        @Override
+        public int setRate(int status, int rate) {
+            return LiquidData.setRate((byte) status, rate) & 0xFF;
+        }
+
+        @Override
+        public int getFull() {
+            return LiquidData.FULL;
+        }
+
+        @Override
+        public boolean usesHighByte() {
+            return false;
+        }
+
+        @Override
+        public int decode(int low, int high) {
+            return low & 0xFF;
+        }
+    },
+
+    /**
+     * A two byte format with 64 heights, and rates of up to a quarter of a block sideways and a whole block downwards.
+     * Bits 0-5 hold the maximum height minus the height, bits 6-11 the rate minus one, bits 12-14 the direction (0 for
+     * none, otherwise the {@link Side} ordinal plus one) and bit 15 is {@link #WIDE_MARKER}.
+     */
+    WIDE(64, 16, 64) {
+        @Override
+        public int getHeight(int status) {
+            return getMaxHeight() - (status & WIDE_HEIGHT_MASK);
+        }
+
+        @Override
+        public int setHeight(int status, int height) {
+            if (height < 1 || height > getMaxHeight()) {
+                throw new IllegalArgumentException("Liquid heights are constrained to the range 1 to " + getMaxHeight() + ".");
+            }
+            return (status & ~WIDE_HEIGHT_MASK) | (getMaxHeight() - height) | WIDE_MARKER;
+        }
+
+        @Override
+        public Side getDirection(int status) {
+            int sideData = (status & WIDE_SIDE_MASK) >> WIDE_SIDE_SHIFT;
+            return sideData == 0 ? null : SIDES[sideData - 1];
+        }
+
+        @Override
+        public int setDirection(int status, Side side) {
+            int sideData = side == null ? 0 : side.ordinal() + 1;
+            return (status & ~(WIDE_SIDE_MASK | WIDE_RATE_MASK)) | (sideData << WIDE_SIDE_SHIFT) | WIDE_MARKER;
+        }
+
+        @Override
+        public int getRate(int status) {
+            if ((status & WIDE_SIDE_MASK) == 0) {
+                return 0;
+            }
+            return ((status & WIDE_RATE_MASK) >> WIDE_RATE_SHIFT) + 1;
+        }
+
+        @Override
+        public int setRate(int status, int rate) {
+            Side side = getDirection(status);
+            if (rate == 0) {
+                return setDirection(status, null);
+            } else if (side == null) {
+                throw new IllegalArgumentException("Can't set rate > 0 as there is no current direction.");
+            } else if (rate < 0 || rate > (side == Side.BOTTOM ? getMaxDownRate() : getMaxRate())) {
+                throw new IllegalArgumentException("Liquid rates are constrained to the range 0 to " + getMaxRate()
+                    + " (or " + getMaxDownRate() + " for downwards). Was " + rate);
+            }
+            return (status & ~WIDE_RATE_MASK) | ((rate - 1) << WIDE_RATE_SHIFT) | WIDE_MARKER;
+        }
+
+        @Override
+        public int getFull() {
+            return WIDE_MARKER;
+        }
+
+        @Override
+        public boolean usesHighByte() {
+            return true;
+        }
+
+        @Override
+        public int decode(int low, int high) {
+            if ((high & (WIDE_MARKER >> 8)) == 0) {
+                return FROM_NARROW[low & 0xFF];
+            }
+            return (high & 0xFF) << 8 | (low & 0xFF);
+        }
+    };
+
+    /** The name of the extra data field holding the high byte of the liquid data. */
+    public static final String HIGH_EXTRA_DATA_NAME = "flowingLiquids.flowHigh";
+    /**
+     * The system property which, set to false, leaves out the {@link #HIGH_EXTRA_DATA_NAME} field, so that narrow
+     * worlds don't pay for a second byte on every liquid block in memory, on disk and in chunk transfers. Without it
+     * the wide format can't be used. Like any change to the extra data fields, it has to be the same on the server and
+     * every client.
+     */
+    public static final String WIDE_FORMAT_PROPERTY = "flowingLiquids.wideFormat";
+    /** Whether the {@link #HIGH_EXTRA_DATA_NAME} field is registered, so that the wide format can be used. */
+    public static final boolean WIDE_FORMAT_AVAILABLE = !"false".equalsIgnoreCase(System.getProperty(WIDE_FORMAT_PROPERTY));
+    /** Set in every value of the wide format. */
+    public static final int WIDE_MARKER = 0x8000;
+
+    private static final int WIDE_HEIGHT_MASK = 0x3F;
+    private static final int WIDE_RATE_SHIFT = 6;
+    private static final int WIDE_RATE_MASK = 0x3F << WIDE_RATE_SHIFT;
+    private static final int WIDE_SIDE_SHIFT = 12;
+    private static final int WIDE_SIDE_MASK = 0x7 << WIDE_SIDE_SHIFT;
+    private static final Side[] SIDES = Side.values();
+    /** Each narrow value converted to the wide format, indexed by the narrow value. */
+    private static final int[] FROM_NARROW = new int[256];
+
+    static {
+        int scale = WIDE.getMaxHeight() / NARROW.getMaxHeight();
+        for (int narrow = 0; narrow < FROM_NARROW.length; narrow++) {
+            int wide = WIDE.setHeight(WIDE.getFull(), NARROW.getHeight(narrow) * scale);
+            Side side = NARROW.getDirection(narrow);
+            if (side != null) {
+                wide = WIDE.setRate(WIDE.setDirection(wide, side), NARROW.getRate(narrow) * scale);
+            }
+            FROM_NARROW[narrow] = wide;
+        }
+    }
+
+    private final int maxHeight;
+    private final int maxRate;
+    private final int maxDownRate;
+
+    LiquidDataCodec(int maxHeight, int maxRate, int maxDownRate) {
+        this.maxHeight = maxHeight;
+        this.maxRate = maxRate;
+        this.maxDownRate = maxDownRate;
+    }
+
+    /**
+     * @return The height of a full block
+     */
+    public int getMaxHeight() {
+        return maxHeight;
+    }
+
+    /**
+     * @return The fastest rate liquid can flow sideways
+     */
+    public int getMaxRate() {
+        return maxRate;
+    }
+
+    /**
+     * @return The fastest rate liquid can flow downwards
+     */
+    public int getMaxDownRate() {
+        return maxDownRate;
+    }
+
+    /**
+     * @return The height of the liquid, from 1 to {@link #getMaxHeight()}
+     */
+    public abstract int getHeight(int status);
+
+    /**
+     * @param height The height to store, from 1 to {@link #getMaxHeight()}
+     * @return The modified liquid data
+     */
+    public abstract int setHeight(int status, int height);
+
+    /**
+     * @return The direction of flow, or null if there is no flow
+     */
+    public abstract Side getDirection(int status);
+
+    /**
+     * Replace the direction of flow, resetting the rate to 1, or to 0 if the direction is null.
+     *
+     * @return The modified liquid data
+     */
+    public abstract int setDirection(int status, Side side);
+
+    public abstract int getRate(int status);
+
+    /**
+     * @return The modified liquid data
+     */
+    public abstract int setRate(int status, int rate);
+
+    /**
+     * @return The data of a full block of still liquid, which is also what blocks without liquid hold
+     */
+    public abstract int getFull();
+
+    /**
+     * @return Whether the format stores anything in {@link #HIGH_EXTRA_DATA_NAME}
+     */
+    public abstract boolean usesHighByte();
+
+    /**
+     * Combine the two stored bytes into liquid data of this format.
+     *
+     * @param low The value of the {@link LiquidData#EXTRA_DATA_NAME} field
+     * @param high The value of the {@link #HIGH_EXTRA_DATA_NAME} field, ignored if this format doesn't use it
+     */
+    public abstract int decode(int low, int high);
+
+    /**
+     * @return The height of the liquid as a fraction of a full block
+     */
+    public float getFillFraction(int status) {
+        return getHeight(status) / (float) maxHeight;
+    }
+
+    /**
+     * @return The part of the liquid data to store in {@link LiquidData#EXTRA_DATA_NAME}
+     */
+    public static int low(int status) {
+        return status & 0xFF;
+    }
+
+    /**
+     * @return The part of the liquid data to store in {@link #HIGH_EXTRA_DATA_NAME}
+     */
+    public static int high(int status) {
+        return (status >> 8) & 0xFF;
+    }
+
+    /**
+     * @return The slot of the {@link #HIGH_EXTRA_DATA_NAME} field, or -1 if it isn't registered, in which case the high
+     *     byte should be read as zero
+     */
+    public static int highSlot(ExtraBlockDataManager extraDataManager) {
+        return WIDE_FORMAT_AVAILABLE ? extraDataManager.getSlotNumber(HIGH_EXTRA_DATA_NAME) : -1;
+    }
+}
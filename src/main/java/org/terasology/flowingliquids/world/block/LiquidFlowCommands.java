@@ -0,0 +1,392 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.engine.core.PathManager;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
+import org.terasology.engine.logic.console.ConsoleMessageEvent;
+import org.terasology.engine.logic.console.commandSystem.annotations.Command;
+import org.terasology.engine.logic.console.commandSystem.annotations.CommandParam;
+import org.terasology.engine.logic.console.commandSystem.annotations.Sender;
+import org.terasology.engine.logic.permission.PermissionManager;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.world.block.BlockManager;
+import org.terasology.flowingliquids.network.LiquidReplicationSystem;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Console commands for inspecting and tuning the liquid flow simulation.
+ */
+@RegisterSystem(RegisterMode.AUTHORITY)
+public class LiquidFlowCommands extends BaseComponentSystem implements UpdateSubscriberSystem {
+    private static final Logger logger = LoggerFactory.getLogger(LiquidFlowCommands.class);
+    private static final String METRICS_FILE = "liquidFlowMetrics.csv";
+    private static final String RECORDING_FILE = "liquidFlowRecording.bin";
+
+    @In
+    private LiquidFlowSystem liquidFlowSystem;
+
+    @In
+    private BlockManager blockManager;
+
+    @In
+    private LiquidReplicationSystem liquidReplicationSystem;
+
+    /** The results of the benchmark or replay running in the background, if there is one. */
+    private CompletableFuture<String> backgroundResult;
+    /** What's running in the background, for the thread name and errors. */
+    private String backgroundTask;
+    /** The client which asked for the task running in the background, to send the results to. */
+    private EntityRef backgroundSender = EntityRef.NULL;
+
+    @Command(shortDescription = "Set the time spent on liquid flow each tick",
+        helpText = "Sets how many microseconds the liquid flow simulation may use in each tick.",
+        runOnServer = true, requiredPermission = PermissionManager.SERVER_MANAGEMENT_PERMISSION)
+    public String liquidFlowBudget(@CommandParam("microseconds") int micros) {
+        if (micros <= 0) {
+            return "The budget must be a positive number of microseconds.";
+        }
+        liquidFlowSystem.getScheduler().setBudgetMicros(micros);
+        return "Liquid flow budget set to " + micros + "µs per tick.";
+    }
+
+    @Command(shortDescription = "Show the state of the liquid flow queue",
+        runOnServer = true, requiredPermission = PermissionManager.DEBUG_PERMISSION)
+    public String liquidFlowStatus() {
+        FlowTickScheduler scheduler = liquidFlowSystem.getScheduler();
+        return String.format("Backlog: %d positions, draining %.1f/s, %.1fµs per update, budget %dµs per tick",
+            liquidFlowSystem.getBacklogSize(), scheduler.getDrainRate(), scheduler.getNanosPerUpdate() / 1000,
+            scheduler.getBudgetMicros());
+    }
+
+    @Command(shortDescription = "Turn multi-threaded liquid flow on or off",
+        helpText = "Sets whether large batches of liquid flow updates are split by chunk and run on multiple threads.",
+        runOnServer = true, requiredPermission = PermissionManager.SERVER_MANAGEMENT_PERMISSION)
+    public String liquidFlowParallel(@CommandParam("enabled") boolean enabled) {
+        liquidFlowSystem.setParallel(enabled);
+        return "Multi-threaded liquid flow " + (enabled ? "enabled." : "disabled.");
+    }
+
+    @Command(shortDescription = "Choose how liquid changes are sent to clients",
+        helpText = "If enabled, changes to the height of liquid are gathered per chunk and sent to clients in compact "
+            + "batches, less often for chunks far from the player. Otherwise each change is sent on its own by the engine. "
+            + "Wide worlds always use batches, so that both bytes of each change arrive together.",
+        runOnServer = true, requiredPermission = PermissionManager.SERVER_MANAGEMENT_PERMISSION)
+    public String liquidFlowBatchedReplication(@CommandParam("enabled") boolean enabled) {
+        liquidReplicationSystem.setEnabled(enabled);
+        return "Batched liquid replication " + (enabled ? "enabled." : "disabled.");
+    }
+
+    @Command(shortDescription = "Measure the speed of liquid flow",
+        helpText = "Runs the liquid flow logic on standard scenarios in a separate in-memory world, in the background, "
+            + "and reports how fast it was when it finishes. Scenarios: damBreak, waterfall, pitFill, reactionFront, "
+            + "settledOcean, or all. The solver defaults to the world's, or 'all' compares every solver on the same "
+            + "scenarios. Likewise the format of the liquid data, narrow or wide, defaults to the world's, or 'all' "
+            + "compares both.",
+        runOnServer = true, requiredPermission = PermissionManager.SERVER_MANAGEMENT_PERMISSION)
+    public String liquidFlowBenchmark(@CommandParam(value = "scenario", required = false) String scenarioName,
+                                      @CommandParam(value = "solver", required = false) String solverName,
+                                      @CommandParam(value = "format", required = false) String formatName,
+                                      @Sender EntityRef sender) {
+        if (backgroundResult != null) {
+            return backgroundTask + " is already running.";
+        }
+        // The benchmark gets its own solvers, as the world's may be in use by the simulation while it runs.
+        List<FlowSolver> solvers = new ArrayList<>();
+        if ("all".equalsIgnoreCase(solverName)) {
+            for (String name : liquidFlowSystem.getSolverNames()) {
+                solvers.add(liquidFlowSystem.newSolver(name));
+            }
+        } else {
+            FlowSolver solver = liquidFlowSystem.newSolver(solverName != null ? solverName : liquidFlowSystem.getSolverName());
+            if (solver == null) {
+                return "Unknown solver " + solverName + ". Solvers: " + String.join(", ", liquidFlowSystem.getSolverNames()) + ".";
+            }
+            solvers.add(solver);
+        }
+        List<LiquidDataCodec> formats = new ArrayList<>();
+        if ("all".equalsIgnoreCase(formatName)) {
+            formats.addAll(Arrays.asList(LiquidDataCodec.values()));
+        } else if (formatName == null) {
+            formats.add(liquidFlowSystem.getDataFormat());
+        } else {
+            LiquidDataCodec format = LiquidFlowSystem.parseDataFormat(formatName);
+            if (format == null) {
+                return "Unknown format " + formatName + ". Formats: " + formatNames() + ".";
+            }
+            formats.add(format);
+        }
+        List<FlowBenchmark.Scenario> scenarios = new ArrayList<>();
+        for (FlowBenchmark.Scenario scenario : FlowBenchmark.Scenario.values()) {
+            if (scenarioName == null || scenarioName.equalsIgnoreCase("all")
+                || scenario.name().replace("_", "").equalsIgnoreCase(scenarioName)) {
+                scenarios.add(scenario);
+            }
+        }
+        if (scenarios.isEmpty()) {
+            return "Unknown scenario " + scenarioName + ".";
+        }
+        FlowBenchmark benchmark = new FlowBenchmark(blockManager);
+        benchmark.setFallingColumns(liquidFlowSystem.isFallingColumns());
+        // Running every scenario can take a long time, so it's done on its own thread rather than holding up the game.
+        runInBackground("Liquid flow benchmark", () -> runBenchmark(benchmark, scenarios, solvers, formats), sender);
+        return "Liquid flow benchmark started. The results will be shown when it finishes.";
+    }
+
+    /**
+     * Run a task on its own thread, and send its result to the client which asked for it when it finishes.
+     */
+    private void runInBackground(String name, Supplier<String> task, EntityRef sender) {
+        backgroundTask = name;
+        backgroundSender = sender;
+        backgroundResult = CompletableFuture.supplyAsync(task, runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    private static String runBenchmark(FlowBenchmark benchmark, List<FlowBenchmark.Scenario> scenarios, List<FlowSolver> solvers, List<LiquidDataCodec> formats) {
+        StringBuilder result = new StringBuilder();
+        for (FlowBenchmark.Scenario scenario : scenarios) {
+            if (result.length() > 0) {
+                result.append('\n');
+            }
+            if (benchmark.isAvailable(scenario)) {
+                boolean first = true;
+                for (FlowSolver solver : solvers) {
+                    for (LiquidDataCodec format : formats) {
+                        if (!first) {
+                            result.append('\n');
+                        }
+                        first = false;
+                        result.append(benchmark.run(scenario, solver, format));
+                    }
+                }
+            } else {
+                result.append(scenario.name().toLowerCase(Locale.ROOT)).append(": skipped, the blocks it needs aren't loaded");
+            }
+        }
+        return result.toString();
+    }
+
+    @Override
+    public void update(float delta) {
+        if (backgroundResult == null || !backgroundResult.isDone()) {
+            return;
+        }
+        String message;
+        try {
+            message = backgroundResult.join();
+        } catch (CompletionException e) {
+            logger.error("{} failed", backgroundTask, e.getCause());
+            message = backgroundTask + " failed: " + e.getCause();
+        }
+        backgroundSender.send(new ConsoleMessageEvent(message));
+        backgroundResult = null;
+        backgroundTask = null;
+        backgroundSender = EntityRef.NULL;
+    }
+
+    @Command(shortDescription = "Show the liquid flow metrics",
+        helpText = "Shows queue lengths, update counts, reactions and timings for the liquid flow simulation since the "
+            + "metrics were last reset. Pass 'reset' to reset them afterwards.",
+        runOnServer = true, requiredPermission = PermissionManager.DEBUG_PERMISSION)
+    public String liquidFlowStats(@CommandParam(value = "reset", required = false) String reset) {
+        LiquidFlowMetrics metrics = liquidFlowSystem.getMetrics();
+        String summary = metrics.summarise();
+        if ("reset".equalsIgnoreCase(reset)) {
+            metrics.reset();
+            summary += "\nMetrics reset.";
+        }
+        return summary;
+    }
+
+    @Command(shortDescription = "Append the liquid flow metrics to a CSV file",
+        helpText = "Appends the current liquid flow metrics to " + METRICS_FILE + " in the game's home directory.",
+        runOnServer = true, requiredPermission = PermissionManager.DEBUG_PERMISSION)
+    public String liquidFlowStatsDump() {
+        Path file = PathManager.getInstance().getHomePath().resolve(METRICS_FILE);
+        boolean header = !Files.exists(file);
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            liquidFlowSystem.getMetrics().writeCsv(out, System.currentTimeMillis(), header);
+        } catch (IOException e) {
+            logger.error("Failed to write liquid flow metrics to {}", file, e);
+            return "Failed to write the metrics: " + e.getMessage();
+        }
+        return "Liquid flow metrics written to " + file + ".";
+    }
+
+    @Command(shortDescription = "Turn liquid levelling on or off",
+        helpText = "If enabled, large bodies of liquid which are disturbed, for example by being drained, have their "
+            + "surface levelled in one go rather than one block at a time.",
+        runOnServer = true, requiredPermission = PermissionManager.SERVER_MANAGEMENT_PERMISSION)
+    public String liquidFlowLevelling(@CommandParam("enabled") boolean enabled) {
+        liquidFlowSystem.setLevelling(enabled);
+        return "Liquid levelling " + (enabled ? "enabled." : "disabled.");
+    }
+
+    @Command(shortDescription = "Turn the falling column fast path on or off",
+        helpText = "If enabled, vertical runs of liquid falling into blocks with room in them, such as waterfalls, are "
+            + "moved down in one go each tick rather than one block at a time. The benchmark follows this setting.",
+        runOnServer = true, requiredPermission = PermissionManager.SERVER_MANAGEMENT_PERMISSION)
+    public String liquidFlowFallingColumns(@CommandParam("enabled") boolean enabled) {
+        liquidFlowSystem.setFallingColumns(enabled);
+        return "Falling liquid columns " + (enabled ? "enabled." : "disabled.");
+    }
+
+    @Command(shortDescription = "Turn prioritising liquid near players on or off",
+        helpText = "If enabled, liquid is updated in order of distance from the players, and while the updates are "
+            + "falling behind, liquid starting to flow far from them is left for later ticks. Liquid far away still "
+            + "moves, just more slowly.",
+        runOnServer = true, requiredPermission = PermissionManager.SERVER_MANAGEMENT_PERMISSION)
+    public String liquidFlowPriority(@CommandParam("enabled") boolean enabled) {
+        liquidFlowSystem.setPrioritising(enabled);
+        return "Liquid flow prioritising " + (enabled ? "enabled." : "disabled.");
+    }
+
+    @Command(shortDescription = "Choose how liquid flows in this world",
+        helpText = "Sets the solver moving liquid in this world, which is saved with the world. 'cellular' moves liquid "
+            + "one block at a time in a single direction; 'virtualPipes' moves it to every lower neighbour at once, so "
+            + "it levels out in fewer updates, but can't use multiple threads. With no solver, shows the current one.",
+        runOnServer = true, requiredPermission = PermissionManager.SERVER_MANAGEMENT_PERMISSION)
+    public String liquidFlowSolver(@CommandParam(value = "solver", required = false) String solverName) {
+        String solvers = String.join(", ", liquidFlowSystem.getSolverNames());
+        if (solverName == null) {
+            return "Liquid flow solver: " + liquidFlowSystem.getSolverName() + ". Solvers: " + solvers + ".";
+        }
+        if (!liquidFlowSystem.setSolver(solverName)) {
+            return "Unknown solver " + solverName + ". Solvers: " + solvers + ".";
+        }
+        return "Liquid flow solver set to " + liquidFlowSystem.getSolverName() + ".";
+    }
+
+    @Command(shortDescription = "Choose how liquid data is stored in this world",
+        helpText = "Sets the format of the liquid data in this world, which is saved with the world. 'narrow' stores "
+            + "16 heights in one byte; 'wide' stores 64 heights and faster rates of flow in two bytes, and always uses "
+            + "batched replication. Narrow worlds are converted as their liquid next moves, and can't be switched back. "
+            + "The wide format is unavailable if started with -D" + LiquidDataCodec.WIDE_FORMAT_PROPERTY + "=false. "
+            + "With no format, shows the current one.",
+        runOnServer = true, requiredPermission = PermissionManager.SERVER_MANAGEMENT_PERMISSION)
+    public String liquidFlowDataFormat(@CommandParam(value = "format", required = false) String formatName) {
+        if (formatName == null) {
+            return "Liquid data format: " + formatName(liquidFlowSystem.getDataFormat()) + ". Formats: " + formatNames() + ".";
+        }
+        LiquidDataCodec format = LiquidFlowSystem.parseDataFormat(formatName);
+        if (format == null) {
+            return "Unknown format " + formatName + ". Formats: " + formatNames() + ".";
+        }
+        if (!liquidFlowSystem.setDataFormat(format)) {
+            if (format.usesHighByte()) {
+                return "The wide format is disabled by " + LiquidDataCodec.WIDE_FORMAT_PROPERTY + "=false.";
+            }
+            return "Wide liquid data can't be converted back to " + formatName(format) + ".";
+        }
+        return "Liquid data format set to " + formatName(format) + ".";
+    }
+
+    @Command(shortDescription = "Turn deterministic liquid flow on or off",
+        helpText = "If enabled, liquid flow is seeded from the world seed and updated in a fixed order on one thread, "
+            + "so the same world always flows the same way.",
+        runOnServer = true, requiredPermission = PermissionManager.SERVER_MANAGEMENT_PERMISSION)
+    public String liquidFlowDeterministic(@CommandParam("enabled") boolean enabled) {
+        liquidFlowSystem.setDeterministic(enabled);
+        return "Deterministic liquid flow " + (enabled ? "enabled." : "disabled.");
+    }
+
+    @Command(shortDescription = "Record the liquid flow updates to a file",
+        helpText = "Pass 'start' to start recording every liquid flow update to " + RECORDING_FILE + " in the game's "
+            + "home directory, turning on deterministic mode, and 'stop' to stop. The recording can be replayed with "
+            + "liquidFlowReplay.",
+        runOnServer = true, requiredPermission = PermissionManager.SERVER_MANAGEMENT_PERMISSION)
+    public String liquidFlowRecord(@CommandParam("start|stop") String action) {
+        if ("stop".equalsIgnoreCase(action)) {
+            Path file = liquidFlowSystem.getRecordingFile();
+            long records = liquidFlowSystem.stopRecording();
+            return records < 0 ? "Liquid flow isn't being recorded." : "Recorded " + records + " records to " + file + ".";
+        } else if ("start".equalsIgnoreCase(action)) {
+            Path file = homePath().resolve(RECORDING_FILE);
+            try {
+                liquidFlowSystem.startRecording(file);
+            } catch (IOException e) {
+                logger.error("Failed to start recording liquid flow to {}", file, e);
+                return "Failed to start recording: " + e.getMessage();
+            }
+            return "Recording liquid flow to " + file + ".";
+        }
+        return "Unknown action " + action + ", expected start or stop.";
+    }
+
+    @Command(shortDescription = "Replay a recording of liquid flow updates",
+        helpText = "Runs the updates in a recording made by liquidFlowRecord again in a separate in-memory world, in "
+            + "the background, and reports how long they took and whether they gave the same results when it finishes. "
+            + "The recording must be in the game's home directory, and defaults to " + RECORDING_FILE + ".",
+        runOnServer = true, requiredPermission = PermissionManager.SERVER_MANAGEMENT_PERMISSION)
+    public String liquidFlowReplay(@CommandParam(value = "file", required = false) String fileName,
+                                   @Sender EntityRef sender) {
+        if (backgroundResult != null) {
+            return backgroundTask + " is already running.";
+        }
+        Path home = homePath();
+        Path file = home.resolve(fileName != null ? fileName : RECORDING_FILE).normalize();
+        if (!file.startsWith(home)) {
+            return "The recording must be in the game's home directory.";
+        }
+        if (file.equals(liquidFlowSystem.getRecordingFile())) {
+            return "That recording is still being written; stop it first.";
+        }
+        // Long recordings take a while to replay, so like the benchmark it's done on its own thread.
+        runInBackground("Liquid flow replay", () -> {
+            try {
+                return liquidFlowSystem.replay(file);
+            } catch (IOException e) {
+                logger.error("Failed to replay liquid flow from {}", file, e);
+                return "Failed to replay the recording: " + e.getMessage();
+            }
+        }, sender);
+        return "Replaying " + file + ". The results will be shown when it finishes.";
+    }
+
+    /**
+     * @return The game's home directory, as an absolute path without redundant parts, so other paths can be checked
+     *     against it
+     */
+    private static Path homePath() {
+        return PathManager.getInstance().getHomePath().toAbsolutePath().normalize();
+    }
+
+    private static String formatName(LiquidDataCodec format) {
+        return format.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static String formatNames() {
+        StringBuilder names = new StringBuilder();
+        for (LiquidDataCodec format : LiquidDataCodec.values()) {
+            if (names.length() > 0) {
+                names.append(", ");
+            }
+            names.append(formatName(format));
+        }
+        return names.toString();
+    }
+}
@@ -0,0 +1,236 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+/**
+ * Counters, gauges and timings describing what the liquid flow simulation is doing, so that its behaviour in a running
+ * game can be inspected. The values are only updated from the update thread, and are cumulative since the last reset.
+ */
+public class LiquidFlowMetrics {
+    private final Map<String, IntSupplier> gauges = new LinkedHashMap<>();
+    private final Map<LiquidSmooshingReactionComponent, Long> reactions = new LinkedHashMap<>();
+    private final LatencyHistogram tickTime = new LatencyHistogram();
+    private final LatencyHistogram batchTime = new LatencyHistogram();
+
+    private long updates;
+    private long changedUpdates;
+    private long destroyEvents;
+    private long visibleWrites;
+    private long flowOnlyWrites;
+    private long levelledBodies;
+    private long levelledCells;
+    private long movedColumns;
+    private long deferredUpdates;
+    private long resetTime = System.nanoTime();
+
+    /**
+     * Register a value which is read whenever the metrics are reported, such as the length of a queue.
+     */
+    void addGauge(String name, IntSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * @param count The number of positions updated
+     * @param changed How many of those updates changed anything
+     */
+    void recordUpdates(int count, int changed) {
+        updates += count;
+        changedUpdates += changed;
+    }
+
+    void recordBatch(long nanos) {
+        batchTime.record(nanos);
+    }
+
+    void recordTick(long nanos) {
+        tickTime.record(nanos);
+    }
+
+    /**
+     * @param visible Whether the change to the liquid data affects how it's rendered, rather than just the flow
+     */
+    void recordStatusWrite(boolean visible) {
+        if (visible) {
+            visibleWrites++;
+        } else {
+            flowOnlyWrites++;
+        }
+    }
+
+    /**
+     * @param cells The number of blocks in a body of liquid which was levelled in one go
+     */
+    void recordLevelling(int cells) {
+        levelledBodies++;
+        levelledCells += cells;
+    }
+
+    /**
+     * @param columns The number of falling columns of liquid moved in one go
+     */
+    void recordColumnMoves(int columns) {
+        movedColumns += columns;
+    }
+
+    /**
+     * @param positions The number of updates put off to a later tick because they were far from the players
+     */
+    void recordDeferrals(int positions) {
+        deferredUpdates += positions;
+    }
+
+    void recordDestroyEvent() {
+        destroyEvents++;
+    }
+
+    void recordReaction(LiquidSmooshingReactionComponent reaction) {
+        reactions.merge(reaction, 1L, Long::sum);
+    }
+
+    public long getUpdates() {
+        return updates;
+    }
+
+    public long getChangedUpdates() {
+        return changedUpdates;
+    }
+
+    public long getDestroyEvents() {
+        return destroyEvents;
+    }
+
+    public long getVisibleWrites() {
+        return visibleWrites;
+    }
+
+    public long getFlowOnlyWrites() {
+        return flowOnlyWrites;
+    }
+
+    public long getLevelledBodies() {
+        return levelledBodies;
+    }
+
+    public long getMovedColumns() {
+        return movedColumns;
+    }
+
+    public long getDeferredUpdates() {
+        return deferredUpdates;
+    }
+
+    /**
+     * @return The average number of updates per second since the last reset
+     */
+    public double getUpdatesPerSecond() {
+        double seconds = (System.nanoTime() - resetTime) / 1e9;
+        return seconds > 0 ? updates / seconds : 0;
+    }
+
+    /**
+     * @return The time spent on flow updates in each tick in which there were any
+     */
+    public LatencyHistogram getTickTime() {
+        return tickTime;
+    }
+
+    public LatencyHistogram getBatchTime() {
+        return batchTime;
+    }
+
+    public void reset() {
+        updates = 0;
+        changedUpdates = 0;
+        destroyEvents = 0;
+        visibleWrites = 0;
+        flowOnlyWrites = 0;
+        levelledBodies = 0;
+        levelledCells = 0;
+        movedColumns = 0;
+        deferredUpdates = 0;
+        reactions.clear();
+        tickTime.reset();
+        batchTime.reset();
+        resetTime = System.nanoTime();
+    }
+
+    /**
+     * @return A human-readable summary of all the metrics
+     */
+    public String summarise() {
+        StringBuilder result = new StringBuilder();
+        for (Map.Entry<String, IntSupplier> gauge : gauges.entrySet()) {
+            result.append(gauge.getKey()).append(": ").append(gauge.getValue().getAsInt()).append('\n');
+        }
+        result.append(String.format(Locale.ROOT, "updates: %d (%d changed, %d no-op), %.1f/s\n",
+            updates, changedUpdates, updates - changedUpdates, getUpdatesPerSecond()));
+        result.append("liquid data writes: ").append(visibleWrites).append(" visible, ").append(flowOnlyWrites).append(" flow only\n");
+        result.append("destroy events: ").append(destroyEvents).append('\n');
+        result.append("levelled bodies: ").append(levelledBodies).append(" (").append(levelledCells).append(" blocks)\n");
+        result.append("falling column moves: ").append(movedColumns).append('\n');
+        result.append("deferred distant updates: ").append(deferredUpdates).append('\n');
+        for (Map.Entry<LiquidSmooshingReactionComponent, Long> reaction : reactions.entrySet()) {
+            result.append("reaction ").append(describe(reaction.getKey())).append(": ").append(reaction.getValue()).append('\n');
+        }
+        appendHistogram(result, "tick time", tickTime);
+        result.append('\n');
+        appendHistogram(result, "batch time", batchTime);
+        return result.toString();
+    }
+
+    /**
+     * Write all the metrics as CSV rows, with a header if requested. Each row is tagged with the given timestamp so
+     * that successive dumps can be appended to the same file.
+     */
+    public void writeCsv(Appendable out, long timestamp, boolean header) throws IOException {
+        if (header) {
+            out.append("timestamp,name,kind,value,count,mean_ns,p50_ns,p90_ns,p99_ns,max_ns\n");
+        }
+        for (Map.Entry<String, IntSupplier> gauge : gauges.entrySet()) {
+            appendRow(out, timestamp, gauge.getKey(), "gauge", gauge.getValue().getAsInt());
+        }
+        appendRow(out, timestamp, "updates", "counter", updates);
+        appendRow(out, timestamp, "changedUpdates", "counter", changedUpdates);
+        appendRow(out, timestamp, "visibleWrites", "counter", visibleWrites);
+        appendRow(out, timestamp, "flowOnlyWrites", "counter", flowOnlyWrites);
+        appendRow(out, timestamp, "destroyEvents", "counter", destroyEvents);
+        appendRow(out, timestamp, "levelledBodies", "counter", levelledBodies);
+        appendRow(out, timestamp, "levelledCells", "counter", levelledCells);
+        appendRow(out, timestamp, "movedColumns", "counter", movedColumns);
+        appendRow(out, timestamp, "deferredUpdates", "counter", deferredUpdates);
+        for (Map.Entry<LiquidSmooshingReactionComponent, Long> reaction : reactions.entrySet()) {
+            appendRow(out, timestamp, "reaction " + describe(reaction.getKey()), "counter", reaction.getValue());
+        }
+        appendHistogramRow(out, timestamp, "tickTime", tickTime);
+        appendHistogramRow(out, timestamp, "batchTime", batchTime);
+    }
+
+    private static String describe(LiquidSmooshingReactionComponent reaction) {
+        return reaction.liquid + " into " + reaction.block + (reaction.product == null ? "" : " making " + reaction.product);
+    }
+
+    private static void appendHistogram(StringBuilder out, String name, LatencyHistogram histogram) {
+        out.append(String.format(Locale.ROOT, "%s: %d samples, mean %.1fµs, p50 %.1fµs, p90 %.1fµs, p99 %.1fµs, max %.1fµs",
+            name, histogram.getCount(), histogram.getMeanNanos() / 1000, histogram.getQuantileNanos(0.5) / 1000.0,
+            histogram.getQuantileNanos(0.9) / 1000.0, histogram.getQuantileNanos(0.99) / 1000.0, histogram.getMaxNanos() / 1000.0));
+    }
+
+    private static void appendRow(Appendable out, long timestamp, String name, String kind, long value) throws IOException {
+        out.append(Long.toString(timestamp)).append(',').append(name.replace(',', ' ')).append(',').append(kind).append(',')
+            .append(Long.toString(value)).append(",,,,,,\n");
+    }
+
+    private static void appendHistogramRow(Appendable out, long timestamp, String name, LatencyHistogram histogram) throws IOException {
+        out.append(String.format(Locale.ROOT, "%d,%s,histogram,,%d,%.0f,%d,%d,%d,%d\n", timestamp, name, histogram.getCount(),
+            histogram.getMeanNanos(), histogram.getQuantileNanos(0.5), histogram.getQuantileNanos(0.9),
+            histogram.getQuantileNanos(0.99), histogram.getMaxNanos()));
+    }
+}
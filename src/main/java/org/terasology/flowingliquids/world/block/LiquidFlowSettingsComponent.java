@@ -0,0 +1,23 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.terasology.gestalt.entitysystem.component.Component;
+
+/**
+ * Settings of the liquid flow simulation chosen for a particular world, kept on the world entity so that they're saved
+ * with it. A world can be created with particular settings by giving its world entity this component.
+ */
+public class LiquidFlowSettingsComponent implements Component<LiquidFlowSettingsComponent> {
+    /** The name of the {@link FlowSolver} moving the liquid. */
+    public String solver = CellularFlowSolver.NAME;
+    /** The name of the {@link LiquidDataCodec} the liquid data is stored in. */
+    public String dataFormat = LiquidDataCodec.NARROW.name();
+
+    @Override
+    public void copyFrom(LiquidFlowSettingsComponent other) {
+        this.solver = other.solver;
+        this.dataFormat = other.dataFormat;
+    }
+}
@@ -17,6 +17,7 @@ import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
 import org.terasology.engine.logic.health.DestroyEvent;
 import org.terasology.engine.math.Side;
 import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
 import org.terasology.engine.world.BlockEntityRegistry;
 import org.terasology.engine.world.OnChangedBlock;
 import org.terasology.engine.world.WorldProvider;
@@ -26,25 +27,35 @@ import org.terasology.engine.world.block.BlockRegionc;
 import org.terasology.engine.world.block.family.BlockFamily;
 import org.terasology.engine.world.block.items.BlockItemComponent;
 import org.terasology.engine.world.block.items.OnBlockItemPlaced;
+import org.terasology.engine.world.chunks.Chunk;
+import org.terasology.engine.world.chunks.ChunkProvider;
 import org.terasology.engine.world.chunks.Chunks;
 import org.terasology.engine.world.chunks.blockdata.ExtraBlockDataManager;
 import org.terasology.engine.world.chunks.blockdata.ExtraDataSystem;
 import org.terasology.engine.world.chunks.blockdata.RegisterExtraData;
+import org.terasology.engine.world.chunks.event.BeforeChunkUnload;
 import org.terasology.engine.world.chunks.event.OnChunkLoaded;
+import org.terasology.flowingliquids.network.ChunkLiquidBatchReceiver;
+import org.terasology.flowingliquids.network.LiquidReplicationSystem;
 import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.Set;
-
-import static org.terasology.flowingliquids.world.block.LiquidData.getHeight;
+import java.util.function.LongConsumer;
 
 @RegisterSystem(RegisterMode.AUTHORITY)
 @ExtraDataSystem
+@Share(LiquidFlowSystem.class)
 public class LiquidFlowSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
 
     private static final Logger logger = LoggerFactory.getLogger(LiquidFlowSystem.class);
@@ -60,7 +71,7 @@ public class LiquidFlowSystem extends BaseComponentSystem implements UpdateSubsc
 
     @In
     private ExtraBlockDataManager extraDataManager;
-    private int flowIx;
+    private LiquidStorage storage;
 
     @In
     private PrefabManager prefabManager;
@@ -69,29 +80,100 @@ public class LiquidFlowSystem extends BaseComponentSystem implements UpdateSubsc
     @In
     private BlockEntityRegistry blockEntityRegistry;
 
+    @In
+    private ChunkProvider chunkProvider;
+
+    @In
+    private LiquidReplicationSystem replication;
+    private final LiquidChunkIndex chunkIndex = new LiquidChunkIndex();
+    private SettledBodyDetector settledBodyDetector;
+    private BasinLeveller basinLeveller;
+    private boolean levelling = true;
+    private FallingColumnMover columnMover;
+    private boolean fallingColumns = true;
+    private final FlowPrioritiser prioritiser = new FlowPrioritiser();
+    private boolean prioritising = true;
+    /** Chunks with at least this many liquid height changes in a tick are checked for bodies of liquid to level. */
+    private static final int DISTURBANCE_THRESHOLD = 64;
+    /** Levelling reads a whole layer of a chunk, so only a few chunks are levelled each tick. */
+    private static final int MAX_LEVELLINGS_PER_TICK = 4;
+    /** Flood-filling a body of liquid to check if it's settled is fairly expensive, so only try a few each tick. */
+    private static final int MAX_SLEEP_CHECKS_PER_TICK = 1;
+
     private Map<Block, Map<BlockFamily, LiquidSmooshingReactionComponent>> smooshingReactions;
+    /** The reactions compiled into a table by block id. Replaced, rather than modified, when new blocks turn up. */
+    private volatile ReactionTable reactionTable;
 
-    private Set<Vector3i> evenUpdatePositions;
-    private Set<Vector3i> oddUpdatePositions;
-    private Set<Vector3i> newEvenUpdatePositions;
-    private Set<Vector3i> newOddUpdatePositions;
+    private PositionQueue evenUpdatePositions;
+    private PositionQueue oddUpdatePositions;
+    private PositionQueue newEvenUpdatePositions;
+    private PositionQueue newOddUpdatePositions;
     private boolean evenTick;
     private float timeSinceUpdate;
     private static final float UPDATE_INTERVAL = 0.5f;
+    /** Whether the last tick took at least twice its share of {@link #UPDATE_INTERVAL} to get through its queue. */
+    private boolean fallingBehind;
+    private final FlowTickScheduler scheduler = new FlowTickScheduler();
+    private final LiquidFlowMetrics metrics = new LiquidFlowMetrics();
+
+    private FlowWorldAccess directWorld;
+    private ParallelFlowEngine parallelEngine;
+    private boolean parallel = true;
+
+    /** The available solvers, by name. */
+    private final Map<String, FlowSolver> solvers = new LinkedHashMap<>();
+    private FlowSolver solver;
+
+    /**
+     * In deterministic mode, random numbers come from {@link FlowSeeds} rather than {@link #rand}, positions are
+     * updated in a canonical order on one thread, and the random updates happen once per tick rather than once per
+     * frame, so the same world gives the same flow every time.
+     */
+    private boolean deterministic;
+    private long seed;
+    /** The number of times the simulation has moved on to the other half of the checkerboard. */
+    private long flowTick;
+    /** The random updates made in each tick in deterministic mode, roughly as many as there would be frames. */
+    private static final int RANDOM_UPDATES_PER_TICK = 15;
+    private FlowTickRecorder recorder;
+
+    /**
+     * The pending flow of chunks which aren't loaded, encoded by {@link PendingFlowCodec} and keyed by
+     * {@link LiquidChunkIndex#chunkKey}. Filled when chunks are unloaded and from the save, and used up when the chunks
+     * are loaded again. Only chunks with queued positions are kept, so that this grows with the liquid still flowing
+     * rather than with every wet chunk explored; settled chunks are scanned for their surface when they're loaded.
+     */
+    private final Map<Long, byte[]> pendingFlow = new HashMap<>();
+    /** Chunks unloaded since the last update, with their liquid counts, whose queued positions haven't been saved yet. */
+    private final Map<Long, Integer> unloadedChunks = new HashMap<>();
+    /** Whether the pending flow and settings saved with the world have been read. */
+    private boolean worldStateRestored;
 
     @RegisterExtraData(name = LiquidData.EXTRA_DATA_NAME, bitSize = 8)
     public static boolean hasFlowData(Block block) {
         return block.isLiquid();
     }
 
+    /**
+     * Extra data fields are registered when the module is loaded, before the format of the world is known, so the
+     * high byte of the wide format is registered for every liquid block, and left at zero in narrow worlds. That costs
+     * narrow worlds a byte per liquid block in memory, on disk and in chunk transfers, so it can be left out with
+     * {@link LiquidDataCodec#WIDE_FORMAT_PROPERTY}, at the cost of the wide format.
+     */
+    @RegisterExtraData(name = LiquidDataCodec.HIGH_EXTRA_DATA_NAME, bitSize = 8)
+    public static boolean hasHighFlowData(Block block) {
+        return LiquidDataCodec.WIDE_FORMAT_AVAILABLE && block.isLiquid();
+    }
+
     @Override
     public void initialise() {
-        evenUpdatePositions = Collections.synchronizedSet(new LinkedHashSet());
-        oddUpdatePositions = Collections.synchronizedSet(new LinkedHashSet());
-        newEvenUpdatePositions = Collections.synchronizedSet(new LinkedHashSet());
-        newOddUpdatePositions = Collections.synchronizedSet(new LinkedHashSet());
+        evenUpdatePositions = new PositionQueue();
+        oddUpdatePositions = new PositionQueue();
+        newEvenUpdatePositions = new PositionQueue();
+        newOddUpdatePositions = new PositionQueue();
         air = blockManager.getBlock(BlockManager.AIR_ID);
-        flowIx = extraDataManager.getSlotNumber(LiquidData.EXTRA_DATA_NAME);
+        storage = new LiquidStorage(extraDataManager.getSlotNumber(LiquidData.EXTRA_DATA_NAME),
+            LiquidDataCodec.highSlot(extraDataManager));
         smooshingDamageType = prefabManager.getPrefab("flowingLiquids:smooshingDamage");
         smooshingReactions = new HashMap<>();
         for (Prefab prefab : prefabManager.listPrefabs(LiquidSmooshingReactionComponent.class)) {
@@ -111,7 +193,301 @@ public class LiquidFlowSystem extends BaseComponentSystem implements UpdateSubsc
                 addReaction(reversed);
             }
         }
+        reactionTable = ReactionTable.build(blockManager.listRegisteredBlocks(), air, smooshingReactions);
         rand = new Random();
+        directWorld = new DirectFlowWorld();
+        CellularFlowSolver cellularSolver = new CellularFlowSolver(this, blockManager);
+        solvers.put(cellularSolver.getName(), cellularSolver);
+        VirtualPipesFlowSolver pipesSolver = new VirtualPipesFlowSolver(this, cellularSolver, blockManager);
+        solvers.put(pipesSolver.getName(), pipesSolver);
+        solver = cellularSolver;
+        parallelEngine = new ParallelFlowEngine(this, worldProvider, chunkProvider, storage, metrics);
+        settledBodyDetector = new SettledBodyDetector(worldProvider, storage, this::canSmoosh);
+        basinLeveller = new BasinLeveller(worldProvider, storage, this::canSmoosh);
+        columnMover = new FallingColumnMover(air);
+        metrics.addGauge("even queue", () -> evenUpdatePositions.size());
+        metrics.addGauge("odd queue", () -> oddUpdatePositions.size());
+        metrics.addGauge("new even queue", () -> newEvenUpdatePositions.size());
+        metrics.addGauge("new odd queue", () -> newOddUpdatePositions.size());
+        metrics.addGauge("loaded chunks with liquid", chunkIndex::getChunkCount);
+    }
+
+    /**
+     * @return The scheduler deciding how much time to spend on flow updates in each tick
+     */
+    public FlowTickScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * @return The counters and timings describing what the simulation has been doing
+     */
+    public LiquidFlowMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return The number of positions currently waiting for a flow update
+     */
+    public int getBacklogSize() {
+        return evenUpdatePositions.size() + oddUpdatePositions.size() + newEvenUpdatePositions.size() + newOddUpdatePositions.size();
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * @param parallel Whether large batches of flow updates should be split by chunk and run on multiple threads
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * @return The name of the solver moving the liquid in this world
+     */
+    public String getSolverName() {
+        return solver.getName();
+    }
+
+    /**
+     * @return The names of the solvers which can be chosen
+     */
+    public Collection<String> getSolverNames() {
+        return Collections.unmodifiableSet(solvers.keySet());
+    }
+
+    /**
+     * Choose the solver moving the liquid in this world. The choice is saved with the world. Any recording is stopped,
+     * as it couldn't be replayed with a single solver.
+     *
+     * @param name The name of the solver
+     * @return False if there's no solver with that name
+     */
+    public boolean setSolver(String name) {
+        FlowSolver newSolver = getSolver(name);
+        if (newSolver == null) {
+            return false;
+        }
+        if (newSolver != solver) {
+            stopRecording();
+            solver = newSolver;
+        }
+        saveSettings();
+        return true;
+    }
+
+    /**
+     * @return The format the liquid data of this world is stored in
+     */
+    public LiquidDataCodec getDataFormat() {
+        return storage.getCodec();
+    }
+
+    /**
+     * Choose the format the liquid data of this world is stored in. The choice is saved with the world. Narrow worlds
+     * can be switched to the wide format, their data being converted as it's next written, but not back again, as the
+     * wide data would lose precision. The wide format can't be chosen if its high byte has been left out with
+     * {@link LiquidDataCodec#WIDE_FORMAT_PROPERTY}. Any recording is stopped, as it couldn't be replayed in a single
+     * format.
+     *
+     * @return False if the format can't be changed to the one given
+     */
+    public boolean setDataFormat(LiquidDataCodec format) {
+        LiquidDataCodec current = storage.getCodec();
+        if (current == LiquidDataCodec.WIDE && format != LiquidDataCodec.WIDE) {
+            return false;
+        }
+        if (format.usesHighByte() && !LiquidDataCodec.WIDE_FORMAT_AVAILABLE) {
+            return false;
+        }
+        if (format != current) {
+            stopRecording();
+            storage.setCodec(format);
+        }
+        saveSettings();
+        return true;
+    }
+
+    private void saveSettings() {
+        EntityRef worldEntity = worldProvider.getWorldEntity();
+        if (worldEntity.exists()) {
+            LiquidFlowSettingsComponent settings = new LiquidFlowSettingsComponent();
+            settings.solver = solver.getName();
+            settings.dataFormat = storage.getCodec().name();
+            worldEntity.addOrSaveComponent(settings);
+        }
+    }
+
+    /**
+     * @return The liquid data format with the given name, ignoring case, or null if there isn't one
+     */
+    static LiquidDataCodec parseDataFormat(String name) {
+        for (LiquidDataCodec format : LiquidDataCodec.values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The solver with the given name, ignoring case, or null if there isn't one
+     */
+    FlowSolver getSolver(String name) {
+        for (FlowSolver candidate : solvers.values()) {
+            if (candidate.getName().equalsIgnoreCase(name)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Make a new instance of a solver, sharing no state with the one the world uses, so that it can be run on another
+     * thread, for instance by a benchmark.
+     *
+     * @return The new solver, or null if there's no solver with that name
+     */
+    FlowSolver newSolver(String name) {
+        CellularFlowSolver cellularSolver = new CellularFlowSolver(this, blockManager);
+        if (cellularSolver.getName().equalsIgnoreCase(name)) {
+            return cellularSolver;
+        }
+        if (VirtualPipesFlowSolver.NAME.equalsIgnoreCase(name)) {
+            return new VirtualPipesFlowSolver(this, cellularSolver, blockManager);
+        }
+        return null;
+    }
+
+    public boolean isLevelling() {
+        return levelling;
+    }
+
+    /**
+     * @param levelling Whether large disturbed bodies of liquid should be levelled in one go, rather than only by the
+     *     normal flow updates
+     */
+    public void setLevelling(boolean levelling) {
+        this.levelling = levelling;
+    }
+
+    public boolean isFallingColumns() {
+        return fallingColumns;
+    }
+
+    /**
+     * @param fallingColumns Whether falling columns of liquid, such as waterfalls, should be moved in one go each tick,
+     *     rather than one block at a time
+     */
+    public void setFallingColumns(boolean fallingColumns) {
+        this.fallingColumns = fallingColumns;
+    }
+
+    public boolean isPrioritising() {
+        return prioritising;
+    }
+
+    /**
+     * @param prioritising Whether liquid near the players should be updated first, with updates far from them put off
+     *     while the updates are falling behind
+     */
+    public void setPrioritising(boolean prioritising) {
+        this.prioritising = prioritising;
+    }
+
+    public boolean isDeterministic() {
+        return deterministic;
+    }
+
+    /**
+     * @param deterministic Whether the flow should be reproducible, seeded from the world seed
+     */
+    public void setDeterministic(boolean deterministic) {
+        this.deterministic = deterministic;
+        if (deterministic) {
+            seed = FlowSeeds.fromWorldSeed(worldProvider.getSeed());
+            evenUpdatePositions.sort();
+            oddUpdatePositions.sort();
+        } else {
+            stopRecording();
+        }
+    }
+
+    /**
+     * @return The file being recorded to, or null if the flow isn't being recorded
+     */
+    public Path getRecordingFile() {
+        return recorder != null ? recorder.getFile() : null;
+    }
+
+    /**
+     * Start recording every flow update to a file, for {@link FlowReplay}. This turns on deterministic mode, so that
+     * the recording can be replayed exactly.
+     *
+     * @param file The file to record to, which is replaced if it exists
+     */
+    public void startRecording(Path file) throws IOException {
+        stopRecording();
+        setDeterministic(true);
+        recorder = new FlowTickRecorder(directWorld, file, seed, solver.getName());
+        recorder.beginTick(flowTick, evenTick);
+    }
+
+    /**
+     * @return The number of records written, or -1 if the flow wasn't being recorded
+     */
+    public long stopRecording() {
+        if (recorder == null) {
+            return -1;
+        }
+        long records = recorder.getRecordCount();
+        try {
+            recorder.close();
+        } catch (IOException e) {
+            logger.error("Failed to finish the liquid flow recording {}", recorder.getFile(), e);
+        }
+        recorder = null;
+        return records;
+    }
+
+    /**
+     * Replay a recording made with {@link #startRecording}, in a separate in-memory world. The replay uses its own
+     * solver, so it can run on another thread.
+     *
+     * @return A summary of the replay
+     */
+    public String replay(Path file) throws IOException {
+        return new FlowReplay(this, blockManager).replay(file).toString();
+    }
+
+    @Override
+    public void shutdown() {
+        stopRecording();
+    }
+
+    /**
+     * Save the positions waiting for flow updates, both in loaded chunks and in chunks which have been unloaded, on
+     * the world entity. Chunks with nothing queued aren't saved.
+     */
+    @Override
+    public void preSave() {
+        restoreWorldState();
+        saveUnloadedChunks();
+        EntityRef worldEntity = worldProvider.getWorldEntity();
+        if (!worldEntity.exists()) {
+            return;
+        }
+        PendingFlowComponent component = new PendingFlowComponent();
+        Base64.Encoder base64 = Base64.getEncoder();
+        for (Map.Entry<Long, byte[]> entry : pendingFlow.entrySet()) {
+            component.chunks.put(chunkKeyToString(entry.getKey()), base64.encodeToString(entry.getValue()));
+        }
+        for (Map.Entry<Long, byte[]> entry : encodePendingFlow(chunkIndex.getLiquidCounts()).entrySet()) {
+            component.chunks.put(chunkKeyToString(entry.getKey()), base64.encodeToString(entry.getValue()));
+        }
+        worldEntity.addOrSaveComponent(component);
     }
 
     private void addReaction(LiquidSmooshingReactionComponent reaction) {
@@ -131,6 +507,7 @@ public class LiquidFlowSystem extends BaseComponentSystem implements UpdateSubsc
      */
     @ReceiveEvent
     public void blockUpdate(OnChangedBlock event, EntityRef blockEntity) {
+        chunkIndex.blockChanged(event.getBlockPosition(), event.getOldType(), event.getNewType());
         updateNear(event.getBlockPosition());
     }
 
@@ -144,26 +521,273 @@ public class LiquidFlowSystem extends BaseComponentSystem implements UpdateSubsc
     @ReceiveEvent
     public void liquidPlaced(OnBlockItemPlaced event, EntityRef blockEntity, BlockItemComponent blockComponent) {
         if (blockComponent.blockFamily.getArchetypeBlock().isLiquid()) {
-            worldProvider.setExtraData(flowIx, event.getPosition(), LiquidData.FULL);
-            addPos(event.getPosition());
+            Vector3ic pos = event.getPosition();
+            directWorld.setStatus(pos.x(), pos.y(), pos.z(), storage.getCodec().getFull());
+            addPos(pos);
         }
     }
 
     /**
-     * Called every time a chunk is loaded.
+     * Called every time a chunk is loaded. Rather than checking every block, this only schedules the liquid which
+     * could plausibly be unsettled: liquid at the surface or the edge of the chunk, and liquid in neighbouring chunks
+     * which is next to the new chunk.
      *
      * @param event The loading event
      * @param entity The world entity sending the event
      */
     @ReceiveEvent
     public void onChunkLoaded(OnChunkLoaded event, EntityRef entity) {
-        org.joml.Vector3i chunkPos = new org.joml.Vector3i(event.getChunkPos());
-        chunkPos.mul(Chunks.SIZE_X, Chunks.SIZE_Y, Chunks.SIZE_Z);
-        for (int x = -1; x < Chunks.SIZE_X + 1; x++) {
-            for (int y = -1; y < Chunks.SIZE_Y + 1; y++) {
-                for (int z = -1; z < Chunks.SIZE_Z + 1; z++) {
-                    Vector3i pos = chunkPos.add(x, y, z, new Vector3i());
-                    addPos(pos);
+        Vector3ic chunkPos = event.getChunkPos();
+        Chunk chunk = chunkProvider.getChunk(chunkPos);
+        if (chunk == null) {
+            return;
+        }
+        restoreWorldState();
+        long chunkKey = LiquidChunkIndex.chunkKey(chunkPos);
+        Integer unloadedLiquid = unloadedChunks.remove(chunkKey);
+        byte[] pending = pendingFlow.remove(chunkKey);
+        int liquidCells = -1;
+        if (unloadedLiquid != null) {
+            // Reloaded before its queued positions were saved, so they're still queued.
+            liquidCells = unloadedLiquid;
+        } else if (pending != null) {
+            try {
+                liquidCells = schedulePendingFlow(chunkPos, pending);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Discarding corrupt pending liquid flow for chunk {}", chunkPos, e);
+            }
+        }
+        // Without saved flow the chunk has to be scanned, which also finds the liquid at its edges.
+        boolean scanned = liquidCells < 0;
+        if (scanned) {
+            liquidCells = scheduleLiquidSurface(chunk, chunkPos);
+        }
+        chunkIndex.add(chunkPos, liquidCells);
+        Vector3i adjChunkPos = new Vector3i();
+        for (Side side : Side.values()) {
+            side.getAdjacentPos(chunkPos, adjChunkPos);
+            Chunk adjChunk = chunkProvider.getChunk(adjChunkPos);
+            if (adjChunk != null) {
+                if (chunkIndex.hasLiquid(adjChunkPos)) {
+                    scheduleLiquidFace(adjChunk, adjChunkPos, side.reverse());
+                }
+                if (!scanned && liquidCells > 0) {
+                    scheduleLiquidFace(chunk, chunkPos, side);
+                }
+            }
+        }
+    }
+
+    /**
+     * Called before a chunk is unloaded.
+     *
+     * @param event The unloading event
+     * @param entity The world entity sending the event
+     */
+    @ReceiveEvent
+    public void onChunkUnloaded(BeforeChunkUnload event, EntityRef entity) {
+        int liquidCells = chunkIndex.getLiquidCells(event.getChunkPos());
+        if (liquidCells > 0) {
+            unloadedChunks.put(LiquidChunkIndex.chunkKey(event.getChunkPos()), liquidCells);
+        }
+        chunkIndex.remove(event.getChunkPos());
+    }
+
+    /**
+     * Schedule the positions saved for a chunk.
+     *
+     * @return The number of liquid blocks in the chunk
+     * @throws IllegalArgumentException If the saved flow is corrupt
+     */
+    private int schedulePendingFlow(Vector3ic chunkPos, byte[] pending) {
+        int baseX = chunkPos.x() * Chunks.SIZE_X;
+        int baseY = chunkPos.y() * Chunks.SIZE_Y;
+        int baseZ = chunkPos.z() * Chunks.SIZE_Z;
+        return PendingFlowCodec.decode(pending, cell -> doAddPos(
+            baseX + cell / (Chunks.SIZE_Y * Chunks.SIZE_Z),
+            baseY + (cell / Chunks.SIZE_Z) % Chunks.SIZE_Y,
+            baseZ + cell % Chunks.SIZE_Z));
+    }
+
+    /**
+     * Move the queued positions in chunks which have been unloaded into {@link #pendingFlow}. This is done in one pass
+     * over the queues, at most once per tick, rather than once per chunk as they're unloaded.
+     */
+    private void saveUnloadedChunks() {
+        if (!unloadedChunks.isEmpty()) {
+            pendingFlow.putAll(encodePendingFlow(unloadedChunks));
+            unloadedChunks.clear();
+        }
+    }
+
+    /**
+     * Encode the queued positions in some chunks.
+     *
+     * @param liquidCounts The number of liquid blocks in each chunk, keyed by {@link LiquidChunkIndex#chunkKey}
+     * @return The encoded pending flow of each chunk with any queued positions, with the same keys
+     */
+    private Map<Long, byte[]> encodePendingFlow(Map<Long, Integer> liquidCounts) {
+        Map<Long, PendingCells> cellsByChunk = new HashMap<>();
+        LongConsumer collect = packed -> {
+            int x = PositionQueue.unpackX(packed);
+            int y = PositionQueue.unpackY(packed);
+            int z = PositionQueue.unpackZ(packed);
+            long chunkKey = LiquidChunkIndex.chunkKeyAt(x, y, z);
+            if (liquidCounts.containsKey(chunkKey)) {
+                cellsByChunk.computeIfAbsent(chunkKey, k -> new PendingCells())
+                    .add(SettledBodyDetector.cellIndex(Math.floorMod(x, Chunks.SIZE_X), Math.floorMod(y, Chunks.SIZE_Y), Math.floorMod(z, Chunks.SIZE_Z)));
+            }
+        };
+        evenUpdatePositions.forEachPacked(collect);
+        oddUpdatePositions.forEachPacked(collect);
+        newEvenUpdatePositions.forEachPacked(collect);
+        newOddUpdatePositions.forEachPacked(collect);
+        Map<Long, byte[]> encoded = new HashMap<>();
+        for (Map.Entry<Long, PendingCells> entry : cellsByChunk.entrySet()) {
+            PendingCells cells = entry.getValue();
+            encoded.put(entry.getKey(), PendingFlowCodec.encode(liquidCounts.get(entry.getKey()), cells.cells, cells.count));
+        }
+        return encoded;
+    }
+
+    /**
+     * Read the pending flow and settings saved with the world, once the world entity is available.
+     */
+    private void restoreWorldState() {
+        if (worldStateRestored) {
+            return;
+        }
+        EntityRef worldEntity = worldProvider.getWorldEntity();
+        if (!worldEntity.exists()) {
+            return;
+        }
+        worldStateRestored = true;
+        LiquidFlowSettingsComponent settings = worldEntity.getComponent(LiquidFlowSettingsComponent.class);
+        if (settings != null) {
+            FlowSolver savedSolver = getSolver(settings.solver);
+            if (savedSolver != null) {
+                solver = savedSolver;
+            } else {
+                logger.warn("Unknown liquid flow solver {}, using {}", settings.solver, solver.getName());
+            }
+            LiquidDataCodec savedFormat = parseDataFormat(settings.dataFormat);
+            if (savedFormat != null && savedFormat.usesHighByte() && !LiquidDataCodec.WIDE_FORMAT_AVAILABLE) {
+                logger.error("This world uses the {} liquid data format, which can't be read with {}=false",
+                    savedFormat, LiquidDataCodec.WIDE_FORMAT_PROPERTY);
+            } else if (savedFormat != null) {
+                storage.setCodec(savedFormat);
+            } else {
+                logger.warn("Unknown liquid data format {}, using {}", settings.dataFormat, storage.getCodec());
+            }
+        }
+        PendingFlowComponent component = worldEntity.getComponent(PendingFlowComponent.class);
+        if (component == null) {
+            return;
+        }
+        Base64.Decoder base64 = Base64.getDecoder();
+        for (Map.Entry<String, String> entry : component.chunks.entrySet()) {
+            try {
+                byte[] pending = base64.decode(entry.getValue());
+                // Older saves kept settled chunks too, which are no use now they're scanned when loaded.
+                if (PendingFlowCodec.countPositions(pending) > 0) {
+                    // Anything recorded since the game started is newer than the save.
+                    pendingFlow.putIfAbsent(chunkKeyFromString(entry.getKey()), pending);
+                }
+            } catch (IllegalArgumentException e) {
+                logger.warn("Discarding corrupt pending liquid flow for chunk {}", entry.getKey(), e);
+            }
+        }
+    }
+
+    private static String chunkKeyToString(long chunkKey) {
+        return PositionQueue.unpackX(chunkKey) + "," + PositionQueue.unpackY(chunkKey) + "," + PositionQueue.unpackZ(chunkKey);
+    }
+
+    /**
+     * @throws IllegalArgumentException If the string isn't a chunk position
+     */
+    private static long chunkKeyFromString(String chunkPos) {
+        String[] parts = chunkPos.split(",");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Not a chunk position: " + chunkPos);
+        }
+        return PositionQueue.pack(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+    }
+
+    /**
+     * Schedule every liquid block in a chunk which is on the surface of the liquid, next to a different block, on the
+     * edge of the chunk or already flowing.
+     *
+     * @param chunk The chunk to scan
+     * @param chunkPos The position of the chunk
+     * @return The total number of liquid blocks in the chunk
+     */
+    private int scheduleLiquidSurface(Chunk chunk, Vector3ic chunkPos) {
+        int liquidCells = 0;
+        Vector3i pos = new Vector3i();
+        for (int x = 0; x < Chunks.SIZE_X; x++) {
+            for (int y = 0; y < Chunks.SIZE_Y; y++) {
+                for (int z = 0; z < Chunks.SIZE_Z; z++) {
+                    Block block = chunk.getBlock(x, y, z);
+                    if (block.isLiquid()) {
+                        liquidCells++;
+                        if (isUnsettled(chunk, block, x, y, z)) {
+                            pos.set(chunkPos).mul(Chunks.SIZE_X, Chunks.SIZE_Y, Chunks.SIZE_Z).add(x, y, z);
+                            doAddPos(pos);
+                        }
+                    }
+                }
+            }
+        }
+        return liquidCells;
+    }
+
+    /**
+     * Whether a liquid block might need updating, judging only by the chunk it's in.
+     */
+    private boolean isUnsettled(Chunk chunk, Block block, int x, int y, int z) {
+        LiquidDataCodec codec = storage.getCodec();
+        int status = storage.read(chunk, x, y, z);
+        if (codec.getRate(status) > 0 || codec.getHeight(status) < codec.getMaxHeight()) {
+            return true;
+        }
+        for (Side side : SideOffsets.ALL) {
+            int adjX = x + SideOffsets.X[side.ordinal()];
+            int adjY = y + SideOffsets.Y[side.ordinal()];
+            int adjZ = z + SideOffsets.Z[side.ordinal()];
+            if (adjX < 0 || adjY < 0 || adjZ < 0 || adjX >= Chunks.SIZE_X || adjY >= Chunks.SIZE_Y || adjZ >= Chunks.SIZE_Z) {
+                return true;
+            }
+            if (chunk.getBlock(adjX, adjY, adjZ) != block) {
+                return true;
+            }
+        }
+        return codec.getHeight(storage.read(chunk, x, y - 1, z)) < codec.getMaxHeight();
+    }
+
+    /**
+     * Schedule the liquid blocks on one face of a chunk.
+     *
+     * @param chunk The chunk
+     * @param chunkPos The position of the chunk
+     * @param face The face of the chunk to schedule
+     */
+    private void scheduleLiquidFace(Chunk chunk, Vector3ic chunkPos, Side face) {
+        Vector3ic dir = face.direction();
+        int minX = dir.x() > 0 ? Chunks.SIZE_X - 1 : 0;
+        int minY = dir.y() > 0 ? Chunks.SIZE_Y - 1 : 0;
+        int minZ = dir.z() > 0 ? Chunks.SIZE_Z - 1 : 0;
+        int maxX = dir.x() < 0 ? 0 : Chunks.SIZE_X - 1;
+        int maxY = dir.y() < 0 ? 0 : Chunks.SIZE_Y - 1;
+        int maxZ = dir.z() < 0 ? 0 : Chunks.SIZE_Z - 1;
+        Vector3i pos = new Vector3i();
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    if (chunk.getBlock(x, y, z).isLiquid()) {
+                        pos.set(chunkPos).mul(Chunks.SIZE_X, Chunks.SIZE_Y, Chunks.SIZE_Z).add(x, y, z);
+                        doAddPos(pos);
+                    }
                 }
             }
         }
@@ -171,220 +795,159 @@ public class LiquidFlowSystem extends BaseComponentSystem implements UpdateSubsc
 
     @Override
     public void update(float delta) {
-        randomUpdate();
+        restoreWorldState();
+        saveUnloadedChunks();
+        if (!deterministic) {
+            randomUpdate();
+        }
         timeSinceUpdate += delta;
         if (evenTick && evenUpdatePositions.isEmpty() && timeSinceUpdate > UPDATE_INTERVAL / 2) {
             evenTick = false;
+            fallingBehind = timeSinceUpdate > UPDATE_INTERVAL;
             timeSinceUpdate = 0;
-            Set<Vector3i> temp = oddUpdatePositions;
+            PositionQueue temp = oddUpdatePositions;
             oddUpdatePositions = newOddUpdatePositions;
             newOddUpdatePositions = temp;
+            beginTick(oddUpdatePositions);
         }
         if (!evenTick && oddUpdatePositions.isEmpty() && timeSinceUpdate > UPDATE_INTERVAL / 2) {
             evenTick = true;
+            fallingBehind = timeSinceUpdate > UPDATE_INTERVAL;
             timeSinceUpdate = 0;
-            Set<Vector3i> temp = evenUpdatePositions;
+            PositionQueue temp = evenUpdatePositions;
             evenUpdatePositions = newEvenUpdatePositions;
             newEvenUpdatePositions = temp;
+            beginTick(evenUpdatePositions);
         }
-        Iterator<Vector3i> updatePositions = (evenTick ? evenUpdatePositions : oddUpdatePositions).iterator();
-        int numDone = 0;
-        while (numDone < 10 && updatePositions.hasNext()) {
-            Vector3i pos = updatePositions.next();
-            updatePositions.remove();
-            if (worldProvider.isBlockRelevant(pos)) {
-                numDone++;
-                Block blockType = worldProvider.getBlock(pos);
-                byte blockStatus = (byte) worldProvider.getExtraData(flowIx, pos);
-                int startHeight = 0;
-                Side startDirection = null;
-                int startRate = 0;
-
-                if (blockType.isLiquid()) {
-                    startHeight = getHeight(blockStatus);
-                    startDirection = LiquidData.getDirection(blockStatus);
-                    startRate = LiquidData.getRate(blockStatus);
-                }
-
-                int height = startHeight;
-                height -= startRate;
-                if (height < 0) {
-                    throw new IllegalStateException("Liquid outflow greater than existing volume.");
-                }
-
-                //TODO: consider this in a varied order, but with top always first.
-                boolean smooshed = false;
-                for (Side side : Side.values()) {
-                    Vector3i adjPos = side.getAdjacentPos(pos, new Vector3i());
-                    Block adjBlock = worldProvider.getBlock(adjPos);
-                    byte adjStatus = (byte) worldProvider.getExtraData(flowIx, adjPos);
-                    if (adjBlock.isLiquid() && side.reverse() == LiquidData.getDirection(adjStatus)) {
-                        if (adjBlock == blockType) {
-                            int rate = LiquidData.getRate(adjStatus);
-                            if (rate + height > LiquidData.MAX_HEIGHT) {
-                                worldProvider.setExtraData(flowIx, adjPos, LiquidData.setRate(adjStatus, LiquidData.MAX_HEIGHT - height));
-                                height = LiquidData.MAX_HEIGHT;
-                                addPos(adjPos);
-                            } else {
-                                height += rate;
-                            }
-                        } else if (canSmoosh(adjBlock, blockType)) {
-                            LiquidSmooshingReactionComponent reaction = getSmooshingReaction(adjBlock, blockType);
-                            if (reaction == null || reaction.product == null) {
-                                if (blockType != air) {
-                                    blockEntityRegistry.getBlockEntityAt(pos).send(new DestroyEvent(EntityRef.NULL, EntityRef.NULL, smooshingDamageType));
-                                }
-                                if (worldProvider.getBlock(pos) == air) { // Check the event didn't get cancelled or something.
-                                    blockType = adjBlock;
-                                    worldProvider.setBlock(pos, adjBlock);
-                                    height = LiquidData.getRate(adjStatus);
-                                    smooshed = true;
-                                }
-                            } else {
-                                float otherSufficiency = LiquidData.getRate(adjStatus) / (float) LiquidData.MAX_HEIGHT / reaction.liquidRequired;
-                                float thisSufficiency = blockType.isLiquid() ? height / (float) LiquidData.MAX_HEIGHT / reaction.otherLiquidRequired : 1f;
-                                // There's a much more efficient way of doing this without the loop, but this way is clearer.
-                                boolean thisSufficient = false;
-                                boolean otherSufficient = false;
-                                while (!thisSufficient && !otherSufficient) {
-                                    thisSufficient = rand.nextFloat() < thisSufficiency;
-                                    otherSufficient = rand.nextFloat() < otherSufficiency;
-                                }
-
-                                if (thisSufficient && otherSufficient) {
-                                    blockType = blockManager.getBlock(reaction.product);
-                                    if (otherSufficiency > 1 && rand.nextFloat() < 1 / otherSufficiency) {
-                                        worldProvider.setExtraData(flowIx, adjPos, LiquidData.setRate(adjStatus, 0));
-                                    }
-                                    worldProvider.setBlock(pos, blockType);
-                                    if (blockType.isLiquid()) {
-                                        height = LiquidData.MAX_HEIGHT;
-                                    }
-                                } else if (otherSufficient) {
-                                    // consume this block but not the liquid flowing in.
-                                    worldProvider.setExtraData(flowIx, adjPos, LiquidData.setRate(adjStatus, 0));
-                                    blockType = air;
-                                    worldProvider.setBlock(pos, air);
-                                } // In the other case, thisSufficient && !otherSufficient, consume the liquid flowing in but not this block.
-                            }
-                        } else {
-                            worldProvider.setExtraData(flowIx, adjPos, LiquidData.setRate(adjStatus, 0));
-                            addPos(adjPos);
-                        }
-                    }
-                }
-
-                if (height == 0) {
-                    if (blockType.isLiquid()) {
-                        worldProvider.setBlock(pos, air);
-                        worldProvider.setExtraData(flowIx, pos, 0);
-                    } else {
-                        numDone--;
-                    }
-                    if (startDirection != null) {
-                        addPos(startDirection.getAdjacentPos(pos, new Vector3i()));
-                    }
-                    continue;
-                }
-
-                Side direction = null;
-                int rate = 0;
-                int maxRate = LiquidData.MAX_DOWN_RATE;
-
-                Vector3i below = Side.BOTTOM.getAdjacentPos(pos, new Vector3i());
-                Block belowBlock = worldProvider.getBlock(below);
-                if (canSmoosh(blockType, belowBlock)) {
-                    direction = Side.BOTTOM;
-                    rate = LiquidData.MAX_DOWN_RATE;
-                } else if (blockType == belowBlock) {
-                    direction = Side.BOTTOM;
-                    byte belowStatus = (byte) worldProvider.getExtraData(flowIx, below);
-                    rate = LiquidData.MAX_HEIGHT - getHeight(belowStatus);
-                    maxRate = rate + LiquidData.getRate(belowStatus);
-                    if (rate > LiquidData.MAX_DOWN_RATE) {
-                        rate = LiquidData.MAX_DOWN_RATE;
-                    }
-                }
-                if (rate == 0) {
-                    int lowestHeight = LiquidData.MAX_HEIGHT + 1;
-                    int lowestRate = 0;
-                    Side lowestSide = null;
-                    for (Side side : Side.horizontalSides()) {
-                        Vector3i adjPos = side.getAdjacentPos(pos, new Vector3i());
-                        Block adjBlock = worldProvider.getBlock(adjPos);
-                        int adjHeight;
-                        int adjRate = 0;
-                        if (adjBlock == blockType) {
-                            byte adjStatus = (byte) worldProvider.getExtraData(flowIx, adjPos);
-                            adjHeight = getHeight(adjStatus);
-                            adjRate = LiquidData.getRate(adjStatus);
-                        } else if (canSmoosh(blockType, adjBlock)) {
-                            Block belowAdjBlock = worldProvider.getBlock(Side.BOTTOM.getAdjacentPos(adjPos, new Vector3i()));
-                            if (canSmoosh(blockType, belowAdjBlock)) {
-                                adjHeight = -1;
-                            } else if (blockType == belowAdjBlock && getHeight((byte) worldProvider.getExtraData(flowIx, Side.BOTTOM.getAdjacentPos(adjPos, new Vector3i()))) < LiquidData.MAX_HEIGHT) {
-                                adjHeight = -1;
-                            } else {
-                                adjHeight = 0;
-                            }
-                        } else {
-                            adjHeight = LiquidData.MAX_HEIGHT + 1;
+        if (recorder != null && recorder.hasFailed()) {
+            stopRecording();
+        }
+        FlowWorldAccess world = recorder != null ? recorder : directWorld;
+        PositionQueue updatePositions = evenTick ? evenUpdatePositions : oddUpdatePositions;
+        boolean anyUpdates = !updatePositions.isEmpty();
+        long tickStart = System.nanoTime();
+        scheduler.beginTick();
+        int batchSize;
+        while (!updatePositions.isEmpty() && (batchSize = scheduler.nextBatchSize()) > 0) {
+            long batchStart = System.nanoTime();
+            int processed = 0;
+            if (parallel && !deterministic && solver.isParallelSafe() && batchSize >= ParallelFlowEngine.MIN_PARALLEL_BATCH && updatePositions.size() >= ParallelFlowEngine.MIN_PARALLEL_BATCH) {
+                processed = parallelEngine.runBatch(updatePositions, batchSize, directWorld, rand);
+            } else {
+                int updated = 0;
+                int changed = 0;
+                while (processed < batchSize && !updatePositions.isEmpty()) {
+                    long pos = updatePositions.pollPacked();
+                    int x = PositionQueue.unpackX(pos);
+                    int y = PositionQueue.unpackY(pos);
+                    int z = PositionQueue.unpackZ(pos);
+                    if (worldProvider.isBlockRelevant(x, y, z)) {
+                        if (deterministic) {
+                            rand.setSeed(FlowSeeds.forPosition(seed, flowTick, x, y, z));
                         }
-                        if (adjHeight < lowestHeight || (side == startDirection && !smooshed && adjHeight <= lowestHeight)) {
-                            lowestHeight = adjHeight;
-                            lowestSide = side;
-                            lowestRate = adjRate;
+                        if (recorder != null) {
+                            recorder.beginUpdate(x, y, z);
                         }
-                    }
-                    maxRate = height - lowestHeight + lowestRate;
-                    rate = maxRate - 1;
-                    if (maxRate > LiquidData.MAX_RATE) {
-                        maxRate = LiquidData.MAX_RATE;
-                    }
-                    direction = lowestSide;
-                }
-                if (direction == startDirection && !smooshed && rate < startRate) {
-                    rate = startRate;
-                }
-                if (rate > maxRate) {
-                    rate = maxRate;
-                }
-                if (rate > height) {
-                    rate = height;
-                } else if (rate < 0) {
-                    rate = 0;
-                }
-
-                byte newStatus = LiquidData.setRate(
-                    LiquidData.setDirection(
-                        LiquidData.setHeight(
-                            blockStatus,
-                            height),
-                        direction),
-                    rate);
-                if (newStatus != blockStatus || smooshed) {
-                    worldProvider.setExtraData(flowIx, pos, newStatus);
-                    updateNear(pos);
-                    if (direction != startDirection || rate != startRate) {
-                        if (direction != null) {
-                            doAddPos(direction.getAdjacentPos(pos, new Vector3i()));
+                        long updateStart = recorder != null ? System.nanoTime() : 0;
+                        boolean updateChanged = updatePosition(world, x, y, z);
+                        if (recorder != null) {
+                            recorder.endUpdate(updateChanged, System.nanoTime() - updateStart);
                         }
-                        if (startDirection != null) {
-                            addPos(startDirection.getAdjacentPos(pos, new Vector3i()));
+                        if (updateChanged) {
+                            changed++;
                         }
+                        updated++;
                     }
-                } else {
-                    numDone--;
+                    processed++;
                 }
+                metrics.recordUpdates(updated, changed);
+            }
+            long batchNanos = System.nanoTime() - batchStart;
+            scheduler.recordBatch(processed, batchNanos);
+            metrics.recordBatch(batchNanos);
+        }
+        scheduler.endTick(delta);
+        if (anyUpdates) {
+            metrics.recordTick(System.nanoTime() - tickStart);
+        }
+    }
+
+    /**
+     * Called when the simulation moves on to the other half of the checkerboard.
+     *
+     * @param positions The positions to update in the new tick
+     */
+    private void beginTick(PositionQueue positions) {
+        flowTick++;
+        if (deterministic) {
+            positions.sort();
+            rand.setSeed(FlowSeeds.forRandomUpdates(seed, flowTick));
+            for (int i = 0; i < RANDOM_UPDATES_PER_TICK; i++) {
+                randomUpdate();
             }
         }
+        // The recorder only sees flow updates, so levelling or moving columns would make recordings impossible to replay.
+        if (levelling && recorder == null) {
+            levelDisturbedBodies();
+        }
+        if (fallingColumns && recorder == null) {
+            metrics.recordColumnMoves(columnMover.moveColumns(positions, evenTick, directWorld));
+        }
+        // The order depends on where the players are, so deterministic runs and recordings keep the queue order.
+        if (prioritising && !deterministic && recorder == null) {
+            prioritiser.setViewpoints(worldProvider.getRelevantRegions());
+            PositionQueue later = evenTick ? newEvenUpdatePositions : newOddUpdatePositions;
+            metrics.recordDeferrals(prioritiser.prioritise(positions, later, evenTick, fallingBehind, directWorld));
+        }
+        if (recorder != null) {
+            recorder.beginTick(flowTick, evenTick);
+        }
+    }
+
+    /**
+     * Level the bodies of liquid in the chunks which changed the most in the last tick.
+     */
+    private void levelDisturbedBodies() {
+        int[] levellings = {0};
+        Vector3i chunkPos = new Vector3i();
+        chunkIndex.takeDisturbed(DISTURBANCE_THRESHOLD, (chunkKey, cell) -> {
+            if (levellings[0] >= MAX_LEVELLINGS_PER_TICK) {
+                return;
+            }
+            chunkPos.set(PositionQueue.unpackX(chunkKey), PositionQueue.unpackY(chunkKey), PositionQueue.unpackZ(chunkKey));
+            Chunk chunk = chunkProvider.getChunk(chunkPos);
+            if (chunk == null) {
+                return;
+            }
+            int cells = basinLeveller.level(chunk, chunkPos, cell / (Chunks.SIZE_Y * Chunks.SIZE_Z),
+                (cell / Chunks.SIZE_Z) % Chunks.SIZE_Y, cell % Chunks.SIZE_Z, evenTick, directWorld);
+            if (cells > 0) {
+                levellings[0]++;
+                metrics.recordLevelling(cells);
+            }
+        });
+    }
+
+    /**
+     * Recalculate the flow of the liquid at a position with the world's solver.
+     *
+     * @param world The world to read from and write to
+     * @param x The x coordinate of the position to update
+     * @param y The y coordinate of the position to update
+     * @param z The z coordinate of the position to update
+     * @return True if anything changed
+     */
+    boolean updatePosition(FlowWorldAccess world, int x, int y, int z) {
+        return solver.updatePosition(world, x, y, z);
     }
 
     /**
      * Set random liquid blocks in motion in every loaded chunk, to spread out piles of liquid and hopefully trigger
-     * cascades.
+     * cascades. Sleeping liquid is left alone, and liquid that looks settled is checked to see whether its whole body
+     * can be put to sleep.
      */
     private void randomUpdate() {
+        int sleepChecks = 0;
         for (BlockRegionc region : worldProvider.getRelevantRegions()) {
             for (int i = 0; i < 10; i++) {
                 int x = region.minX() + rand.nextInt(region.getSizeX());
@@ -393,18 +956,25 @@ public class LiquidFlowSystem extends BaseComponentSystem implements UpdateSubsc
                 if (((x + y + z) % 2 == 0) != evenTick) {
                     z += 1;
                 }
-                Vector3i pos = new Vector3i(x, y, z);
-                Block block = worldProvider.getBlock(pos);
+                if (!chunkIndex.hasLiquidAt(x, y, z) || chunkIndex.isAsleep(x, y, z)) {
+                    continue;
+                }
+                Block block = worldProvider.getBlock(x, y, z);
                 if (block.isLiquid()) {
-                    byte status = (byte) worldProvider.getExtraData(flowIx, pos);
-                    if (LiquidData.getRate(status) == 0) {
-                        Side direction = Side.horizontalSides().get(rand.nextInt(4));
-                        Vector3i adjPos = direction.getAdjacentPos(pos, new Vector3i());
-                        Block adjBlock = worldProvider.getBlock(adjPos);
-                        if (adjBlock == block && getHeight((byte) worldProvider.getExtraData(flowIx, adjPos)) < getHeight(status) || canSmoosh(block, adjBlock)) {
-                            worldProvider.setExtraData(flowIx, pos, LiquidData.setDirection(status, direction));
-                            doAddPos(pos);
-                            doAddPos(adjPos);
+                    LiquidDataCodec codec = storage.getCodec();
+                    int status = storage.read(worldProvider, x, y, z);
+                    if (codec.getRate(status) == 0) {
+                        Side direction = SideOffsets.HORIZONTAL[rand.nextInt(4)];
+                        int adjX = x + SideOffsets.X[direction.ordinal()];
+                        int adjZ = z + SideOffsets.Z[direction.ordinal()];
+                        Block adjBlock = worldProvider.getBlock(adjX, y, adjZ);
+                        if (adjBlock == block && codec.getHeight(storage.read(worldProvider, adjX, y, adjZ)) < codec.getHeight(status) || canSmoosh(block, adjBlock)) {
+                            directWorld.setStatus(x, y, z, codec.setDirection(status, direction));
+                            directWorld.doAddPos(x, y, z);
+                            directWorld.doAddPos(adjX, y, adjZ);
+                        } else if (sleepChecks < MAX_SLEEP_CHECKS_PER_TICK) {
+                            sleepChecks++;
+                            trySleep(x, y, z);
                         }
                     }
                 }
@@ -412,6 +982,19 @@ public class LiquidFlowSystem extends BaseComponentSystem implements UpdateSubsc
         }
     }
 
+    /**
+     * Put the body of liquid containing a block to sleep, if it's settled.
+     */
+    private void trySleep(int x, int y, int z) {
+        Vector3i chunkPos = new Vector3i(Math.floorDiv(x, Chunks.SIZE_X), Math.floorDiv(y, Chunks.SIZE_Y), Math.floorDiv(z, Chunks.SIZE_Z));
+        Chunk chunk = chunkProvider.getChunk(chunkPos);
+        long[] asleep = chunkIndex.getSleepBitmap(chunkPos);
+        if (chunk != null && asleep != null) {
+            settledBodyDetector.markIfSettled(chunk, chunkPos,
+                Math.floorMod(x, Chunks.SIZE_X), Math.floorMod(y, Chunks.SIZE_Y), Math.floorMod(z, Chunks.SIZE_Z), asleep);
+        }
+    }
+
     /**
      * Can the liquid flow replace the block
      *
@@ -419,21 +1002,36 @@ public class LiquidFlowSystem extends BaseComponentSystem implements UpdateSubsc
      * @param replacing The block the liquid is replacing
      * @return True if it can, false otherwise
      */
-    private boolean canSmoosh(Block liquid, Block replacing) {
-        if (replacing == air || (replacing.isPenetrable() && !replacing.isLiquid())) {
-            return true;
-        } else if (!smooshingReactions.containsKey(liquid)) {
-            return false;
-        } else {
-            return smooshingReactions.get(liquid).containsKey(replacing.getBlockFamily());
-        }
+    boolean canSmoosh(Block liquid, Block replacing) {
+        return getReactionTable(liquid, replacing).canSmoosh(liquid, replacing);
     }
 
     /**
      * Get the details of the interaction when these blocks meet, or null for the default reaction.
      */
-    private LiquidSmooshingReactionComponent getSmooshingReaction(Block liquid, Block replacing) {
-        return smooshingReactions.containsKey(liquid) ? smooshingReactions.get(liquid).get(replacing.getBlockFamily()) : null;
+    LiquidSmooshingReactionComponent getSmooshingReaction(Block liquid, Block replacing) {
+        return getReactionTable(liquid, replacing).getReaction(liquid, replacing);
+    }
+
+    /**
+     * Get a reaction table covering both blocks, rebuilding it if either was registered after the table was built.
+     */
+    private ReactionTable getReactionTable(Block liquid, Block replacing) {
+        ReactionTable table = reactionTable;
+        if (table.covers(liquid) && table.covers(replacing)) {
+            return table;
+        }
+        synchronized (this) {
+            table = reactionTable;
+            if (!table.covers(liquid) || !table.covers(replacing)) {
+                List<Block> blocks = new ArrayList<>(blockManager.listRegisteredBlocks());
+                blocks.add(liquid);
+                blocks.add(replacing);
+                table = ReactionTable.build(blocks, air, smooshingReactions);
+                reactionTable = table;
+            }
+            return table;
+        }
     }
 
     /**
@@ -442,22 +1040,30 @@ public class LiquidFlowSystem extends BaseComponentSystem implements UpdateSubsc
      * @param pos The position to add
      */
     private void addPos(Vector3ic pos) {
-        if (worldProvider.getBlock(pos).isLiquid()) {
-            doAddPos(pos);
+        addPos(pos.x(), pos.y(), pos.z());
+    }
+
+    private void addPos(int x, int y, int z) {
+        if (worldProvider.getBlock(x, y, z).isLiquid()) {
+            doAddPos(x, y, z);
         }
     }
 
     /**
-     * Add a position to be checked, even if it isn't occupied by liquid.
+     * Add a position to be checked, even if it isn't occupied by liquid. Sleeping positions are skipped.
      *
      * @param pos The position to add
      */
     private void doAddPos(Vector3ic pos) {
-        if (worldProvider.isBlockRelevant(pos)) {
-            if ((pos.x() + pos.y() + pos.z()) % 2 == 0) {
-                newEvenUpdatePositions.add(new Vector3i(pos));
+        doAddPos(pos.x(), pos.y(), pos.z());
+    }
+
+    private void doAddPos(int x, int y, int z) {
+        if (worldProvider.isBlockRelevant(x, y, z) && !chunkIndex.isAsleep(x, y, z)) {
+            if ((x + y + z) % 2 == 0) {
+                newEvenUpdatePositions.add(x, y, z);
             } else {
-                newOddUpdatePositions.add(new Vector3i(pos));
+                newOddUpdatePositions.add(x, y, z);
             }
         }
     }
@@ -468,9 +1074,130 @@ public class LiquidFlowSystem extends BaseComponentSystem implements UpdateSubsc
      * @param pos The initial position to check
      */
     private void updateNear(Vector3ic pos) {
-        addPos(pos);
-        for (Side side : Side.values()) {
-            addPos(side.getAdjacentPos(pos, new Vector3i()));
+        CellularFlowSolver.updateNear(directWorld, pos.x(), pos.y(), pos.z());
+    }
+
+    /**
+     * A growable list of cell indices.
+     */
+    private static class PendingCells {
+        private int[] cells = new int[16];
+        private int count;
+
+        void add(int cell) {
+            if (count == cells.length) {
+                cells = Arrays.copyOf(cells, count * 2);
+            }
+            cells[count++] = cell;
+        }
+    }
+
+    /**
+     * Applies flow updates directly to the world.
+     */
+    private class DirectFlowWorld implements FlowWorldAccess {
+        /** The world provider only accepts positions as vectors when writing, so this is reused for that. */
+        private final Vector3i scratch = new Vector3i();
+        private final Vector3i chunkScratch = new Vector3i();
+        private final Vector3i neighbourScratch = new Vector3i();
+
+        @Override
+        public LiquidDataCodec getCodec() {
+            return storage.getCodec();
+        }
+
+        @Override
+        public Block getBlock(int x, int y, int z) {
+            return worldProvider.getBlock(x, y, z);
+        }
+
+        @Override
+        public int getStatus(int x, int y, int z) {
+            return storage.read(worldProvider, x, y, z);
+        }
+
+        @Override
+        public void setBlock(int x, int y, int z, Block block) {
+            worldProvider.setBlock(scratch.set(x, y, z), block);
+        }
+
+        /**
+         * Only the height of liquid is rendered, so changes which only affect the direction or rate of flow are
+         * written straight to the chunk, without marking it for re-meshing. Going through the world provider would
+         * make every client re-mesh the chunk, for no visible difference. Changes to the height are also written
+         * straight to the chunk when {@link LiquidReplicationSystem} is enabled, and always in wide worlds, as the
+         * world provider would send the two bytes to clients separately and they could mesh a mix of old and new;
+         * otherwise they go through the world provider. Either way, the renderer combines all the changes to a chunk
+         * into a single re-mesh.
+         * <p>
+         * While batches are in use, the changes to the height are sent to clients in the batches, with both bytes of
+         * wide data as one change. Flow-only changes stay on the authority, as clients don't draw them; the current
+         * direction and rate reach a client along with the next change to the height.
+         */
+        @Override
+        public void setStatus(int x, int y, int z, int status) {
+            LiquidDataCodec codec = storage.getCodec();
+            int oldStatus = storage.read(worldProvider, x, y, z);
+            if (oldStatus == status) {
+                return;
+            }
+            boolean visible = codec.getHeight(oldStatus) != codec.getHeight(status);
+            boolean batched = replication.isEnabled() || codec.usesHighByte();
+            if (!visible || batched) {
+                chunkScratch.set(Math.floorDiv(x, Chunks.SIZE_X), Math.floorDiv(y, Chunks.SIZE_Y), Math.floorDiv(z, Chunks.SIZE_Z));
+                Chunk chunk = chunkProvider.getChunk(chunkScratch);
+                if (chunk != null) {
+                    int relX = Math.floorMod(x, Chunks.SIZE_X);
+                    int relZ = Math.floorMod(z, Chunks.SIZE_Z);
+                    storage.write(chunk, relX, Math.floorMod(y, Chunks.SIZE_Y), relZ, status);
+                    if (visible) {
+                        chunkIndex.disturb(x, y, z);
+                        chunk.setDirty(true);
+                        ChunkLiquidBatchReceiver.markNeighboursDirty(chunkProvider, chunkScratch, relX, relZ, neighbourScratch);
+                        if (batched) {
+                            replication.recordChange(x, y, z, status);
+                        }
+                    }
+                    metrics.recordStatusWrite(visible);
+                    return;
+                }
+            }
+            storage.write(worldProvider, scratch.set(x, y, z), status);
+            if (visible) {
+                chunkIndex.disturb(x, y, z);
+            }
+            metrics.recordStatusWrite(true);
+        }
+
+        @Override
+        public boolean smoosh(int x, int y, int z) {
+            blockEntityRegistry.getBlockEntityAt(scratch.set(x, y, z)).send(new DestroyEvent(EntityRef.NULL, EntityRef.NULL, smooshingDamageType));
+            metrics.recordDestroyEvent();
+            return worldProvider.getBlock(x, y, z) == air;
+        }
+
+        @Override
+        public Random getRandom() {
+            return rand;
+        }
+
+        // Positions scheduled by flow updates are next to something that actually changed, so they're woken up.
+
+        @Override
+        public void addPos(int x, int y, int z) {
+            chunkIndex.wake(x, y, z);
+            LiquidFlowSystem.this.addPos(x, y, z);
+        }
+
+        @Override
+        public void doAddPos(int x, int y, int z) {
+            chunkIndex.wake(x, y, z);
+            LiquidFlowSystem.this.doAddPos(x, y, z);
+        }
+
+        @Override
+        public void reactionFired(LiquidSmooshingReactionComponent reaction) {
+            metrics.recordReaction(reaction);
         }
     }
 }
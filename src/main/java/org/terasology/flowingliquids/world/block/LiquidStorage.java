@@ -0,0 +1,73 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.joml.Vector3ic;
+import org.terasology.engine.world.WorldProvider;
+import org.terasology.engine.world.chunks.Chunk;
+
+/**
+ * Reads and writes liquid data in the extra data fields it's stored in, using the world's {@link LiquidDataCodec}.
+ * The codec is only changed on the main thread, between flow updates.
+ */
+final class LiquidStorage {
+    private final int lowIx;
+    private final int highIx;
+    private volatile LiquidDataCodec codec = LiquidDataCodec.NARROW;
+
+    /**
+     * @param lowIx The slot of the {@link LiquidData#EXTRA_DATA_NAME} field
+     * @param highIx The slot of the {@link LiquidDataCodec#HIGH_EXTRA_DATA_NAME} field, or -1 if it isn't registered,
+     *     in which case the codec must stay narrow
+     */
+    LiquidStorage(int lowIx, int highIx) {
+        this.lowIx = lowIx;
+        this.highIx = highIx;
+    }
+
+    LiquidDataCodec getCodec() {
+        return codec;
+    }
+
+    void setCodec(LiquidDataCodec codec) {
+        this.codec = codec;
+    }
+
+    int read(WorldProvider worldProvider, int x, int y, int z) {
+        LiquidDataCodec current = codec;
+        int high = current.usesHighByte() ? worldProvider.getExtraData(highIx, x, y, z) : 0;
+        return current.decode(worldProvider.getExtraData(lowIx, x, y, z), high);
+    }
+
+    /**
+     * Read the liquid data of a block, given relative to the chunk.
+     */
+    int read(Chunk chunk, int x, int y, int z) {
+        LiquidDataCodec current = codec;
+        int high = current.usesHighByte() ? chunk.getExtraData(highIx, x, y, z) : 0;
+        return current.decode(chunk.getExtraData(lowIx, x, y, z), high);
+    }
+
+    /**
+     * Write the liquid data of a block straight to the chunk, given relative to the chunk.
+     */
+    void write(Chunk chunk, int x, int y, int z, int status) {
+        chunk.setExtraData(lowIx, x, y, z, LiquidDataCodec.low(status));
+        if (codec.usesHighByte()) {
+            chunk.setExtraData(highIx, x, y, z, LiquidDataCodec.high(status));
+        }
+    }
+
+    /**
+     * Write the liquid data of a block through the world provider. The high byte is only written if it changed, as
+     * each write is sent to clients separately. As the two bytes reach clients separately, wide data is normally
+     * written straight to the chunk and batched instead.
+     */
+    void write(WorldProvider worldProvider, Vector3ic pos, int status) {
+        worldProvider.setExtraData(lowIx, pos, LiquidDataCodec.low(status));
+        if (codec.usesHighByte() && (worldProvider.getExtraData(highIx, pos.x(), pos.y(), pos.z()) & 0xFF) != LiquidDataCodec.high(status)) {
+            worldProvider.setExtraData(highIx, pos, LiquidDataCodec.high(status));
+        }
+    }
+}
@@ -0,0 +1,172 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.terasology.engine.world.WorldProvider;
+import org.terasology.engine.world.chunks.Chunk;
+import org.terasology.engine.world.chunks.ChunkProvider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs batches of flow updates on the common fork-join pool, split up by chunk.
+ * <p>
+ * All the positions in a batch have the same colour in the even/odd checkerboard, so each update only writes to its
+ * own cell and to the flow rates of neighbours which are flowing into it, and no two updates in a batch write to the
+ * same cell. The updates for each chunk can therefore be run independently, with their writes staged in a
+ * {@link StagedFlowWorld}, reading from a dense {@link ChunkLiquidSnapshot} of the chunk where the positions are close
+ * enough together to make copying the area worthwhile. Once every chunk is done, the staged writes are applied on the calling thread in chunk
+ * order, so the result doesn't depend on how the threads were scheduled.
+ */
+class ParallelFlowEngine {
+    /** Batches smaller than this aren't worth splitting up. */
+    static final int MIN_PARALLEL_BATCH = 64;
+    /**
+     * An update reads around a dozen cells, each of which costs a chunk lookup when read through the world provider,
+     * while copying a cell into a snapshot is a couple of array reads. If a snapshot would contain more than this many
+     * cells for each position being updated, copying it would cost more than it saves.
+     */
+    private static final int SNAPSHOT_CELLS_PER_UPDATE = 32;
+
+    private final LiquidFlowSystem flowSystem;
+    private final WorldProvider worldProvider;
+    private final ChunkProvider chunkProvider;
+    private final LiquidStorage storage;
+    private final LiquidFlowMetrics metrics;
+
+    ParallelFlowEngine(LiquidFlowSystem flowSystem, WorldProvider worldProvider, ChunkProvider chunkProvider, LiquidStorage storage, LiquidFlowMetrics metrics) {
+        this.flowSystem = flowSystem;
+        this.worldProvider = worldProvider;
+        this.chunkProvider = chunkProvider;
+        this.storage = storage;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Take positions from the queue and update them.
+     *
+     * @param queue The queue of positions of the current colour
+     * @param batchSize The maximum number of positions to take
+     * @param target The world to apply the results to
+     * @param seeds Source of seeds for the random number generators of each chunk
+     * @return The number of positions taken from the queue
+     */
+    int runBatch(PositionQueue queue, int batchSize, FlowWorldAccess target, Random seeds) {
+        Map<Long, ChunkBatch> chunks = new TreeMap<>();
+        int polled = 0;
+        int updated = 0;
+        while (polled < batchSize && !queue.isEmpty()) {
+            long packed = queue.pollPacked();
+            polled++;
+            int x = PositionQueue.unpackX(packed);
+            int y = PositionQueue.unpackY(packed);
+            int z = PositionQueue.unpackZ(packed);
+            if (worldProvider.isBlockRelevant(x, y, z)) {
+                long chunkKey = LiquidChunkIndex.chunkKeyAt(x, y, z);
+                chunks.computeIfAbsent(chunkKey, k -> new ChunkBatch()).add(packed);
+                updated++;
+            }
+        }
+
+        List<ChunkBatch> batches = new ArrayList<>(chunks.values());
+        for (ChunkBatch batch : batches) {
+            batch.random = new Random(seeds.nextLong());
+            if (ChunkLiquidSnapshot.volume(batch.minX, batch.minY, batch.minZ, batch.maxX, batch.maxY, batch.maxZ) <= batch.size * SNAPSHOT_CELLS_PER_UPDATE) {
+                batch.snapshotChunks = ChunkLiquidSnapshot.findChunks(chunkProvider, batch.minX, batch.minY, batch.minZ, batch.maxX, batch.maxY, batch.maxZ);
+            }
+        }
+        ForkJoinTask.invokeAll(batches);
+
+        for (ChunkBatch batch : batches) {
+            batch.world.applyWrites(target);
+        }
+        for (ChunkBatch batch : batches) {
+            batch.world.applySchedule(target);
+        }
+        int changed = 0;
+        for (ChunkBatch batch : batches) {
+            changed += batch.changed;
+            for (int i = 0; i < batch.world.getDeferredCount(); i++) {
+                long pos = batch.world.getDeferred(i);
+                if (flowSystem.updatePosition(target, PositionQueue.unpackX(pos), PositionQueue.unpackY(pos), PositionQueue.unpackZ(pos))) {
+                    changed++;
+                }
+            }
+        }
+        metrics.recordUpdates(updated, changed);
+        return polled;
+    }
+
+    /**
+     * The positions from one chunk in a batch.
+     */
+    private final class ChunkBatch extends ForkJoinTask<Void> {
+        private long[] positions = new long[16];
+        private int size;
+        private int minX = Integer.MAX_VALUE;
+        private int minY = Integer.MAX_VALUE;
+        private int minZ = Integer.MAX_VALUE;
+        private int maxX = Integer.MIN_VALUE;
+        private int maxY = Integer.MIN_VALUE;
+        private int maxZ = Integer.MIN_VALUE;
+        private Random random;
+        /** The chunks to copy a snapshot from, or null to read straight from the world. */
+        private Chunk[] snapshotChunks;
+        private StagedFlowWorld world;
+        /** The number of staged updates which changed something, not counting deferred ones. */
+        private int changed;
+
+        void add(long packed) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = packed;
+            int x = PositionQueue.unpackX(packed);
+            int y = PositionQueue.unpackY(packed);
+            int z = PositionQueue.unpackZ(packed);
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            maxZ = Math.max(maxZ, z);
+        }
+
+        @Override
+        protected boolean exec() {
+            ChunkLiquidSnapshot snapshot = null;
+            if (snapshotChunks != null) {
+                snapshot = new ChunkLiquidSnapshot(snapshotChunks, storage, minX, minY, minZ, maxX, maxY, maxZ);
+            }
+            world = new StagedFlowWorld(worldProvider, storage, random, snapshot);
+            for (int i = 0; i < size; i++) {
+                long packed = positions[i];
+                int x = PositionQueue.unpackX(packed);
+                int y = PositionQueue.unpackY(packed);
+                int z = PositionQueue.unpackZ(packed);
+                world.beginUpdate();
+                boolean updateChanged = flowSystem.updatePosition(world, x, y, z);
+                if (world.endUpdate(x, y, z) && updateChanged) {
+                    changed++;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Void getRawResult() {
+            return null;
+        }
+
+        @Override
+        protected void setRawResult(Void value) {
+        }
+    }
+}
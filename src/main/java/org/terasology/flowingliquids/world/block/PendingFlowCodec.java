@@ -0,0 +1,96 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Encodes the positions in a chunk which are waiting for a flow update, along with the number of liquid blocks in the
+ * chunk, so that loading the chunk doesn't need to scan it.
+ * <p>
+ * The encoding is the liquid count followed by the number of positions, and then the positions' cell indices (see
+ * {@link SettledBodyDetector#cellIndex}) in increasing order, each as the gap from the previous one. All the numbers
+ * are unsigned LEB128 varints, so a cascade of neighbouring positions takes about a byte each.
+ */
+final class PendingFlowCodec {
+    private PendingFlowCodec() {
+    }
+
+    /**
+     * @param liquidCells The number of liquid blocks in the chunk
+     * @param cells The cell indices of the pending positions, which are sorted in place
+     * @param count The number of cell indices to encode
+     */
+    static byte[] encode(int liquidCells, int[] cells, int count) {
+        Arrays.sort(cells, 0, count);
+        byte[] out = new byte[10 + count * 3];
+        int size = writeVarint(out, 0, liquidCells);
+        size = writeVarint(out, size, count);
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            size = writeVarint(out, size, cells[i] - previous);
+            previous = cells[i];
+        }
+        return Arrays.copyOf(out, size);
+    }
+
+    /**
+     * @param encoded Data produced by {@link #encode}
+     * @param cells Receives the cell index of each pending position
+     * @return The number of liquid blocks in the chunk
+     * @throws IllegalArgumentException If the data is malformed
+     */
+    static int decode(byte[] encoded, IntConsumer cells) {
+        int[] pos = {0};
+        int liquidCells = readVarint(encoded, pos);
+        int count = readVarint(encoded, pos);
+        int cell = 0;
+        for (int i = 0; i < count; i++) {
+            int gap = readVarint(encoded, pos);
+            // Compared this way round so that a huge gap can't overflow.
+            if (gap < 0 || gap >= SettledBodyDetector.CHUNK_VOLUME - cell) {
+                throw new IllegalArgumentException("Pending flow refers to cells outside the chunk.");
+            }
+            cell += gap;
+            cells.accept(cell);
+        }
+        return liquidCells;
+    }
+
+    /**
+     * @param encoded Data produced by {@link #encode}
+     * @return The number of pending positions, without decoding them
+     * @throws IllegalArgumentException If the data is malformed
+     */
+    static int countPositions(byte[] encoded) {
+        int[] pos = {0};
+        readVarint(encoded, pos);
+        return readVarint(encoded, pos);
+    }
+
+    private static int writeVarint(byte[] out, int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            out[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[pos++] = (byte) value;
+        return pos;
+    }
+
+    private static int readVarint(byte[] in, int[] pos) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (pos[0] >= in.length || shift > 28) {
+                throw new IllegalArgumentException("Truncated or malformed pending flow.");
+            }
+            b = in[pos[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+}
@@ -0,0 +1,23 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.terasology.gestalt.entitysystem.component.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The liquid flow which was still waiting to happen in each chunk when the world was saved, kept on the world entity
+ * so that it's saved and loaded along with the world.
+ */
+public class PendingFlowComponent implements Component<PendingFlowComponent> {
+    /** The chunks' pending flow, encoded by {@link PendingFlowCodec} and then Base64, keyed by "x,y,z" chunk positions. */
+    public Map<String, String> chunks = new HashMap<>();
+
+    @Override
+    public void copyFrom(PendingFlowComponent other) {
+        this.chunks = new HashMap<>(other.chunks);
+    }
+}
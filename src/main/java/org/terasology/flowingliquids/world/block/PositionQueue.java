@@ -0,0 +1,294 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.joml.Vector3i;
+import org.joml.Vector3ic;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.LongToIntFunction;
+
+/**
+ * A set of block positions which remembers the order they were added in, used to queue positions for flow updates.
+ * Positions are packed into longs and kept in an open-addressing hash table, alongside a ring buffer holding the
+ * insertion order, so adding and polling positions doesn't allocate.
+ * This is not thread safe, as it is only used from the update thread.
+ */
+class PositionQueue {
+    private static final int X_BITS = 24;
+    private static final int Y_BITS = 16;
+    private static final int Z_BITS = 24;
+    private static final int Y_SHIFT = Z_BITS;
+    private static final int X_SHIFT = Y_BITS + Z_BITS;
+    private static final long Y_MASK = (1L << Y_BITS) - 1;
+    private static final long Z_MASK = (1L << Z_BITS) - 1;
+
+    /**
+     * Hash table of packed positions, kept at most half full, with 0 marking an empty slot.
+     * The position packed to 0 is tracked separately.
+     */
+    private long[] table;
+    private boolean containsZero;
+
+    /** Ring buffer of packed positions in insertion order. */
+    private long[] order;
+    private int head;
+    private int size;
+
+    PositionQueue() {
+        this(256);
+    }
+
+    PositionQueue(int initialCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(initialCapacity, 16) - 1) << 1;
+        order = new long[capacity];
+        table = new long[capacity * 2];
+    }
+
+    /**
+     * Packs a position into a long. Coordinates are truncated to 24 bits horizontally and 16 bits vertically.
+     */
+    static long pack(int x, int y, int z) {
+        return ((long) x << X_SHIFT) | ((y & Y_MASK) << Y_SHIFT) | (z & Z_MASK);
+    }
+
+    static int unpackX(long packed) {
+        return (int) (packed >> X_SHIFT);
+    }
+
+    static int unpackY(long packed) {
+        return (int) (packed << (64 - X_SHIFT) >> (64 - Y_BITS));
+    }
+
+    static int unpackZ(long packed) {
+        return (int) (packed << (64 - Z_BITS) >> (64 - Z_BITS));
+    }
+
+    /**
+     * Add a position, unless it is already present.
+     *
+     * @return True if the position was added
+     */
+    boolean add(Vector3ic pos) {
+        return add(pos.x(), pos.y(), pos.z());
+    }
+
+    /**
+     * Add a position, unless it is already present.
+     *
+     * @return True if the position was added
+     */
+    boolean add(int x, int y, int z) {
+        long key = pack(x, y, z);
+        if (key == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+        } else {
+            int mask = table.length - 1;
+            int i = hash(key) & mask;
+            while (table[i] != 0) {
+                if (table[i] == key) {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            table[i] = key;
+        }
+        if (size == order.length) {
+            grow();
+        }
+        order[(head + size) & (order.length - 1)] = key;
+        size++;
+        return true;
+    }
+
+    boolean contains(int x, int y, int z) {
+        return containsPacked(pack(x, y, z));
+    }
+
+    boolean containsPacked(long key) {
+        if (key == 0) {
+            return containsZero;
+        }
+        int mask = table.length - 1;
+        int i = hash(key) & mask;
+        while (table[i] != 0) {
+            if (table[i] == key) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Remove the oldest position.
+     *
+     * @param dest The vector to store the position in
+     * @return dest, or null if the queue is empty
+     */
+    Vector3i poll(Vector3i dest) {
+        if (size == 0) {
+            return null;
+        }
+        long key = pollPacked();
+        return dest.set(unpackX(key), unpackY(key), unpackZ(key));
+    }
+
+    /**
+     * Remove the oldest position. The queue must not be empty.
+     *
+     * @return The packed position
+     */
+    long pollPacked() {
+        long key = order[head];
+        head = (head + 1) & (order.length - 1);
+        size--;
+        removeFromTable(key);
+        return key;
+    }
+
+    /**
+     * Visit every position, oldest first, without removing them.
+     */
+    void forEachPacked(LongConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(order[(head + i) & (order.length - 1)]);
+        }
+    }
+
+    /**
+     * Remove every position matching the filter, keeping the rest in order.
+     *
+     * @return The number of positions removed
+     */
+    int removeIf(LongPredicate filter) {
+        int mask = order.length - 1;
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            long key = order[(head + i) & mask];
+            if (filter.test(key)) {
+                removeFromTable(key);
+            } else {
+                order[(head + kept) & mask] = key;
+                kept++;
+            }
+        }
+        int removed = size - kept;
+        size = kept;
+        return removed;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Put the positions into a canonical order, by their packed values, so that the order they're polled in doesn't
+     * depend on the order they were added in.
+     */
+    void sort() {
+        long[] sorted = new long[order.length];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = order[(head + i) & (order.length - 1)];
+        }
+        Arrays.sort(sorted, 0, size);
+        order = sorted;
+        head = 0;
+    }
+
+    /**
+     * Put the positions into order of band, lowest first, keeping the order they were added in within each band.
+     *
+     * @param band Gives the band of a packed position, from 0 to bands - 1
+     * @param bands The number of bands
+     */
+    void sortByBand(LongToIntFunction band, int bands) {
+        int mask = order.length - 1;
+        int[] bandOf = new int[size];
+        int[] starts = new int[bands + 1];
+        for (int i = 0; i < size; i++) {
+            bandOf[i] = band.applyAsInt(order[(head + i) & mask]);
+            starts[bandOf[i] + 1]++;
+        }
+        for (int b = 0; b < bands; b++) {
+            starts[b + 1] += starts[b];
+        }
+        long[] sorted = new long[order.length];
+        for (int i = 0; i < size; i++) {
+            sorted[starts[bandOf[i]]++] = order[(head + i) & mask];
+        }
+        order = sorted;
+        head = 0;
+    }
+
+    void clear() {
+        Arrays.fill(table, 0);
+        containsZero = false;
+        head = 0;
+        size = 0;
+    }
+
+    private void removeFromTable(long key) {
+        if (key == 0) {
+            containsZero = false;
+            return;
+        }
+        int mask = table.length - 1;
+        int i = hash(key) & mask;
+        while (table[i] != key) {
+            i = (i + 1) & mask;
+        }
+        // Backward-shift deletion, so that no tombstones are needed.
+        int gap = i;
+        i = (i + 1) & mask;
+        while (table[i] != 0) {
+            int ideal = hash(table[i]) & mask;
+            if (((i - ideal) & mask) >= ((i - gap) & mask)) {
+                table[gap] = table[i];
+                gap = i;
+            }
+            i = (i + 1) & mask;
+        }
+        table[gap] = 0;
+    }
+
+    private void grow() {
+        long[] newOrder = new long[order.length * 2];
+        for (int i = 0; i < size; i++) {
+            newOrder[i] = order[(head + i) & (order.length - 1)];
+        }
+        order = newOrder;
+        head = 0;
+        long[] newTable = new long[order.length * 2];
+        int mask = newTable.length - 1;
+        for (long key : table) {
+            if (key != 0) {
+                int i = hash(key) & mask;
+                while (newTable[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                newTable[i] = key;
+            }
+        }
+        table = newTable;
+    }
+
+    /**
+     * The hash of a packed position, whose low bits pick its ideal slot in the table. The key is folded before the
+     * multiplication, as the x coordinate is in the top bits, which the multiplication would only carry further up.
+     */
+    static int hash(long key) {
+        long h = (key ^ (key >>> 32)) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
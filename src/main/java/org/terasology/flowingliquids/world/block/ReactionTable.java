@@ -0,0 +1,95 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.terasology.engine.world.block.Block;
+import org.terasology.engine.world.block.family.BlockFamily;
+
+import java.util.Map;
+
+/**
+ * The smooshing reactions compiled into arrays indexed by block id, so that checking whether a liquid can replace a
+ * block is an array load rather than a couple of hash map lookups. A table only covers the blocks that were
+ * registered when it was built, so it has to be rebuilt when a block with a larger id turns up.
+ * Tables are never modified after they're built, so they can be read from several threads at once.
+ */
+final class ReactionTable {
+    private final int size;
+    /** Whether any liquid without reactions can replace each block. */
+    private final boolean[] defaultSmooshable;
+    /** For each liquid with reactions, whether it can replace each block, or null for liquids using the default. */
+    private final boolean[][] smooshable;
+    /** For each liquid with reactions, the reaction with each block, or null for liquids without reactions. */
+    private final LiquidSmooshingReactionComponent[][] reactions;
+
+    private ReactionTable(int size) {
+        this.size = size;
+        defaultSmooshable = new boolean[size];
+        smooshable = new boolean[size][];
+        reactions = new LiquidSmooshingReactionComponent[size][];
+    }
+
+    /**
+     * @param blocks Every block which needs to be covered by the table
+     * @param air The air block
+     * @param reactionsByLiquid The reactions of each liquid, keyed by the family of the block being replaced
+     */
+    static ReactionTable build(Iterable<Block> blocks, Block air,
+                               Map<Block, Map<BlockFamily, LiquidSmooshingReactionComponent>> reactionsByLiquid) {
+        int size = 0;
+        for (Block block : blocks) {
+            size = Math.max(size, id(block) + 1);
+        }
+        ReactionTable table = new ReactionTable(size);
+        for (Block block : blocks) {
+            table.defaultSmooshable[id(block)] = block == air || (block.isPenetrable() && !block.isLiquid());
+        }
+        for (Map.Entry<Block, Map<BlockFamily, LiquidSmooshingReactionComponent>> entry : reactionsByLiquid.entrySet()) {
+            int liquid = id(entry.getKey());
+            if (liquid >= size) {
+                continue;
+            }
+            boolean[] smooshableRow = table.defaultSmooshable.clone();
+            LiquidSmooshingReactionComponent[] reactionRow = new LiquidSmooshingReactionComponent[size];
+            for (Block block : blocks) {
+                LiquidSmooshingReactionComponent reaction = entry.getValue().get(block.getBlockFamily());
+                if (reaction != null) {
+                    smooshableRow[id(block)] = true;
+                    reactionRow[id(block)] = reaction;
+                }
+            }
+            table.smooshable[liquid] = smooshableRow;
+            table.reactions[liquid] = reactionRow;
+        }
+        return table;
+    }
+
+    /**
+     * @return Whether the table has an entry for the block
+     */
+    boolean covers(Block block) {
+        return id(block) < size;
+    }
+
+    /**
+     * Can the liquid flow replace the block. Both blocks must be covered by the table.
+     */
+    boolean canSmoosh(Block liquid, Block replacing) {
+        boolean[] row = smooshable[id(liquid)];
+        return (row != null ? row : defaultSmooshable)[id(replacing)];
+    }
+
+    /**
+     * Get the details of the interaction when these blocks meet, or null for the default reaction. Both blocks must be
+     * covered by the table.
+     */
+    LiquidSmooshingReactionComponent getReaction(Block liquid, Block replacing) {
+        LiquidSmooshingReactionComponent[] row = reactions[id(liquid)];
+        return row != null ? row[id(replacing)] : null;
+    }
+
+    private static int id(Block block) {
+        return block.getId() & 0xFFFF;
+    }
+}
@@ -0,0 +1,172 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.joml.Vector3ic;
+import org.terasology.engine.math.Side;
+import org.terasology.engine.world.WorldProvider;
+import org.terasology.engine.world.block.Block;
+import org.terasology.engine.world.chunks.Chunk;
+import org.terasology.engine.world.chunks.Chunks;
+
+import java.util.function.BiPredicate;
+
+/**
+ * Finds bodies of liquid which are in equilibrium, so that they can be put to sleep.
+ * A body is the set of connected blocks of the same liquid within one chunk. It is settled if nothing in it is flowing,
+ * the heights of its surface blocks are all within one unit of each other, and none of its blocks has anywhere it could
+ * flow to. Blocks with more of the liquid above them have to be full, so they don't count towards the surface.
+ */
+class SettledBodyDetector {
+    static final int CHUNK_VOLUME = Chunks.SIZE_X * Chunks.SIZE_Y * Chunks.SIZE_Z;
+
+    private final WorldProvider worldProvider;
+    private final LiquidStorage storage;
+    private final BiPredicate<Block, Block> canSmoosh;
+
+    private final int[] queue = new int[CHUNK_VOLUME];
+    private final long[] visited = new long[CHUNK_VOLUME / 64];
+
+    private Chunk chunk;
+    private int worldX;
+    private int worldY;
+    private int worldZ;
+    private Block liquid;
+    private LiquidDataCodec codec;
+    private int minHeight;
+    private int maxHeight;
+    private int queueEnd;
+
+    /**
+     * @param canSmoosh Whether a liquid can flow into a block
+     */
+    SettledBodyDetector(WorldProvider worldProvider, LiquidStorage storage, BiPredicate<Block, Block> canSmoosh) {
+        this.worldProvider = worldProvider;
+        this.storage = storage;
+        this.canSmoosh = canSmoosh;
+    }
+
+    static int cellIndex(int x, int y, int z) {
+        return (x * Chunks.SIZE_Y + y) * Chunks.SIZE_Z + z;
+    }
+
+    /**
+     * Check whether the body of liquid containing a block is settled, and if so add all of its blocks to a bitmap.
+     *
+     * @param chunk The chunk containing the block
+     * @param chunkPos The position of the chunk
+     * @param x The x coordinate of the block, within the chunk
+     * @param y The y coordinate of the block, within the chunk
+     * @param z The z coordinate of the block, within the chunk
+     * @param asleep The bitmap of sleeping blocks in the chunk, indexed by {@link #cellIndex}
+     * @return Whether the body was settled
+     */
+    boolean markIfSettled(Chunk chunk, Vector3ic chunkPos, int x, int y, int z, long[] asleep) {
+        this.chunk = chunk;
+        worldX = chunkPos.x() * Chunks.SIZE_X;
+        worldY = chunkPos.y() * Chunks.SIZE_Y;
+        worldZ = chunkPos.z() * Chunks.SIZE_Z;
+        liquid = chunk.getBlock(x, y, z);
+        codec = storage.getCodec();
+        minHeight = codec.getMaxHeight();
+        maxHeight = 0;
+        queueEnd = 0;
+        boolean settled = liquid.isLiquid() && visit(x, y, z) && fill();
+        for (int i = 0; i < queueEnd; i++) {
+            int cell = queue[i];
+            if (settled) {
+                asleep[cell >> 6] |= 1L << cell;
+            }
+            visited[cell >> 6] &= ~(1L << cell);
+        }
+        this.chunk = null;
+        return settled;
+    }
+
+    private boolean fill() {
+        for (int i = 0; i < queueEnd; i++) {
+            int cell = queue[i];
+            int z = cell % Chunks.SIZE_Z;
+            int y = (cell / Chunks.SIZE_Z) % Chunks.SIZE_Y;
+            int x = cell / (Chunks.SIZE_Y * Chunks.SIZE_Z);
+            int height = codec.getHeight(status(x, y, z));
+            for (Side side : SideOffsets.ALL) {
+                int adjX = x + SideOffsets.X[side.ordinal()];
+                int adjY = y + SideOffsets.Y[side.ordinal()];
+                int adjZ = z + SideOffsets.Z[side.ordinal()];
+                Block adjBlock = block(adjX, adjY, adjZ);
+                if (adjBlock == liquid) {
+                    if (!visit(adjX, adjY, adjZ)) {
+                        return false;
+                    }
+                    if (side == Side.BOTTOM && codec.getHeight(status(adjX, adjY, adjZ)) < codec.getMaxHeight()) {
+                        return false;
+                    }
+                } else if (canSmoosh.test(liquid, adjBlock)) {
+                    if (side == Side.TOP) {
+                        // Liquid doesn't flow upwards, so the surface of an open body can be settled.
+                        continue;
+                    }
+                    if (side == Side.BOTTOM || height > 1) {
+                        return false;
+                    }
+                    Block belowAdj = block(adjX, adjY - 1, adjZ);
+                    if (canSmoosh.test(liquid, belowAdj)
+                        || belowAdj == liquid && codec.getHeight(status(adjX, adjY - 1, adjZ)) < codec.getMaxHeight()) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Add a block of the liquid to the body, checking that it's still.
+     *
+     * @return False if the block means the body isn't settled
+     */
+    private boolean visit(int x, int y, int z) {
+        int status = status(x, y, z);
+        if (codec.getRate(status) != 0) {
+            return false;
+        }
+        if (block(x, y + 1, z) != liquid) {
+            int height = codec.getHeight(status);
+            minHeight = Math.min(minHeight, height);
+            maxHeight = Math.max(maxHeight, height);
+            if (maxHeight - minHeight > 1) {
+                return false;
+            }
+        }
+        if (!inChunk(x, y, z)) {
+            // Blocks in other chunks are checked, but not followed any further.
+            return true;
+        }
+        int cell = cellIndex(x, y, z);
+        if ((visited[cell >> 6] & (1L << cell)) == 0) {
+            visited[cell >> 6] |= 1L << cell;
+            queue[queueEnd++] = cell;
+        }
+        return true;
+    }
+
+    private static boolean inChunk(int x, int y, int z) {
+        return x >= 0 && y >= 0 && z >= 0 && x < Chunks.SIZE_X && y < Chunks.SIZE_Y && z < Chunks.SIZE_Z;
+    }
+
+    private Block block(int x, int y, int z) {
+        if (inChunk(x, y, z)) {
+            return chunk.getBlock(x, y, z);
+        }
+        return worldProvider.getBlock(worldX + x, worldY + y, worldZ + z);
+    }
+
+    private int status(int x, int y, int z) {
+        if (inChunk(x, y, z)) {
+            return storage.read(chunk, x, y, z);
+        }
+        return storage.read(worldProvider, worldX + x, worldY + y, worldZ + z);
+    }
+}
@@ -0,0 +1,29 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.terasology.engine.math.Side;
+
+/**
+ * Cached sides and their offsets, indexed by {@link Side#ordinal()}, so that code visiting neighbouring blocks doesn't
+ * need {@link Side#values()} (which copies the array each time) or temporary vectors.
+ */
+final class SideOffsets {
+    static final Side[] ALL = Side.values();
+    static final Side[] HORIZONTAL = Side.horizontalSides().toArray(new Side[0]);
+    static final int[] X = new int[ALL.length];
+    static final int[] Y = new int[ALL.length];
+    static final int[] Z = new int[ALL.length];
+
+    static {
+        for (Side side : ALL) {
+            X[side.ordinal()] = side.direction().x();
+            Y[side.ordinal()] = side.direction().y();
+            Z[side.ordinal()] = side.direction().z();
+        }
+    }
+
+    private SideOffsets() {
+    }
+}
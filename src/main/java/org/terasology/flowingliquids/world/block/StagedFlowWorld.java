@@ -0,0 +1,239 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.terasology.engine.world.WorldProvider;
+import org.terasology.engine.world.block.Block;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A view of the world for running flow updates off the main thread.
+ * Reads come from the world as it was at the start of the batch (plus the writes made by the update currently being
+ * run), and writes and scheduled positions are recorded to be replayed onto another {@link FlowWorldAccess} later.
+ * If a {@link ChunkLiquidSnapshot} is provided, reads inside it come from the snapshot instead, and the writes of each
+ * finished update are folded into it, so later updates in the same batch see them.
+ * Updates are staged one at a time, between {@link #beginUpdate()} and {@link #endUpdate}, so that an update which
+ * needs to do something that can't be staged, such as destroying a block, can be dropped and deferred to the main thread.
+ */
+class StagedFlowWorld implements FlowWorldAccess {
+    private static final byte SET_BLOCK = 0;
+    private static final byte SET_STATUS = 1;
+    private static final byte ADD_POS = 2;
+    private static final byte DO_ADD_POS = 3;
+
+    private final WorldProvider worldProvider;
+    private final LiquidStorage storage;
+    private final LiquidDataCodec codec;
+    private final Random random;
+    private final ChunkLiquidSnapshot snapshot;
+
+    private long[] opPositions = new long[64];
+    private byte[] opKinds = new byte[64];
+    private int[] opStatuses = new int[64];
+    private Block[] opBlocks = new Block[64];
+    private int opCount;
+
+    /** The index of the first operation recorded by the current update. */
+    private int updateStart;
+    private boolean updateDeferred;
+
+    private long[] deferred = new long[16];
+    private int deferredCount;
+
+    private LiquidSmooshingReactionComponent[] reactions = new LiquidSmooshingReactionComponent[8];
+    private int reactionCount;
+    private int updateReactionStart;
+
+    /**
+     * @param snapshot A snapshot covering the positions to be updated, or null to read straight from the world
+     */
+    StagedFlowWorld(WorldProvider worldProvider, LiquidStorage storage, Random random, ChunkLiquidSnapshot snapshot) {
+        this.worldProvider = worldProvider;
+        this.storage = storage;
+        codec = storage.getCodec();
+        this.random = random;
+        this.snapshot = snapshot;
+    }
+
+    void beginUpdate() {
+        updateStart = opCount;
+        updateReactionStart = reactionCount;
+        updateDeferred = false;
+    }
+
+    /**
+     * Finish staging the update of a position. If the update couldn't be staged, its operations are discarded and
+     * the position is remembered so that it can be rerun later.
+     *
+     * @param x The x coordinate of the position that was updated
+     * @param y The y coordinate of the position that was updated
+     * @param z The z coordinate of the position that was updated
+     * @return True if the update was staged, false if it was deferred
+     */
+    boolean endUpdate(int x, int y, int z) {
+        if (updateDeferred) {
+            Arrays.fill(opBlocks, updateStart, opCount, null);
+            opCount = updateStart;
+            Arrays.fill(reactions, updateReactionStart, reactionCount, null);
+            reactionCount = updateReactionStart;
+            if (deferredCount == deferred.length) {
+                deferred = Arrays.copyOf(deferred, deferredCount * 2);
+            }
+            deferred[deferredCount++] = PositionQueue.pack(x, y, z);
+        } else if (snapshot != null) {
+            int kept = updateStart;
+            for (int i = updateStart; i < opCount; i++) {
+                long pos = opPositions[i];
+                if (opKinds[i] == SET_BLOCK) {
+                    snapshot.setBlock(PositionQueue.unpackX(pos), PositionQueue.unpackY(pos), PositionQueue.unpackZ(pos), opBlocks[i]);
+                    opBlocks[i] = null;
+                } else if (opKinds[i] == SET_STATUS) {
+                    snapshot.setStatus(PositionQueue.unpackX(pos), PositionQueue.unpackY(pos), PositionQueue.unpackZ(pos), opStatuses[i]);
+                } else {
+                    opPositions[kept] = opPositions[i];
+                    opKinds[kept] = opKinds[i];
+                    kept++;
+                }
+            }
+            opCount = kept;
+        }
+        return !updateDeferred;
+    }
+
+    /**
+     * Replay the staged block and liquid data changes onto another world.
+     */
+    void applyWrites(FlowWorldAccess target) {
+        if (snapshot != null) {
+            snapshot.writeBack(target);
+        }
+        for (int i = 0; i < opCount; i++) {
+            long pos = opPositions[i];
+            if (opKinds[i] == SET_BLOCK) {
+                target.setBlock(PositionQueue.unpackX(pos), PositionQueue.unpackY(pos), PositionQueue.unpackZ(pos), opBlocks[i]);
+            } else if (opKinds[i] == SET_STATUS) {
+                target.setStatus(PositionQueue.unpackX(pos), PositionQueue.unpackY(pos), PositionQueue.unpackZ(pos), opStatuses[i]);
+            }
+        }
+    }
+
+    /**
+     * Replay the staged requests for further updates, and the reactions which fired, onto another world.
+     */
+    void applySchedule(FlowWorldAccess target) {
+        for (int i = 0; i < opCount; i++) {
+            long pos = opPositions[i];
+            if (opKinds[i] == ADD_POS) {
+                target.addPos(PositionQueue.unpackX(pos), PositionQueue.unpackY(pos), PositionQueue.unpackZ(pos));
+            } else if (opKinds[i] == DO_ADD_POS) {
+                target.doAddPos(PositionQueue.unpackX(pos), PositionQueue.unpackY(pos), PositionQueue.unpackZ(pos));
+            }
+        }
+        for (int i = 0; i < reactionCount; i++) {
+            target.reactionFired(reactions[i]);
+        }
+    }
+
+    int getDeferredCount() {
+        return deferredCount;
+    }
+
+    /**
+     * @return The packed position of the i-th update which was deferred
+     */
+    long getDeferred(int i) {
+        return deferred[i];
+    }
+
+    @Override
+    public LiquidDataCodec getCodec() {
+        return codec;
+    }
+
+    @Override
+    public Block getBlock(int x, int y, int z) {
+        int i = findOp(x, y, z, SET_BLOCK);
+        if (i >= 0) {
+            return opBlocks[i];
+        }
+        return snapshot != null && snapshot.contains(x, y, z) ? snapshot.getBlock(x, y, z) : worldProvider.getBlock(x, y, z);
+    }
+
+    @Override
+    public int getStatus(int x, int y, int z) {
+        int i = findOp(x, y, z, SET_STATUS);
+        if (i >= 0) {
+            return opStatuses[i];
+        }
+        return snapshot != null && snapshot.contains(x, y, z) ? snapshot.getStatus(x, y, z) : storage.read(worldProvider, x, y, z);
+    }
+
+    @Override
+    public void setBlock(int x, int y, int z, Block block) {
+        opBlocks[record(x, y, z, SET_BLOCK)] = block;
+    }
+
+    @Override
+    public void setStatus(int x, int y, int z, int status) {
+        opStatuses[record(x, y, z, SET_STATUS)] = status;
+    }
+
+    @Override
+    public boolean smoosh(int x, int y, int z) {
+        // Destroying a block sends an event, which has to happen on the main thread.
+        updateDeferred = true;
+        return false;
+    }
+
+    @Override
+    public Random getRandom() {
+        return random;
+    }
+
+    @Override
+    public void addPos(int x, int y, int z) {
+        record(x, y, z, ADD_POS);
+    }
+
+    @Override
+    public void doAddPos(int x, int y, int z) {
+        record(x, y, z, DO_ADD_POS);
+    }
+
+    @Override
+    public void reactionFired(LiquidSmooshingReactionComponent reaction) {
+        if (reactionCount == reactions.length) {
+            reactions = Arrays.copyOf(reactions, reactionCount * 2);
+        }
+        reactions[reactionCount++] = reaction;
+    }
+
+    /**
+     * Find the latest write of the given kind to a position made by the current update.
+     */
+    private int findOp(int x, int y, int z, byte kind) {
+        long packed = PositionQueue.pack(x, y, z);
+        for (int i = opCount - 1; i >= updateStart; i--) {
+            if (opKinds[i] == kind && opPositions[i] == packed) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int record(int x, int y, int z, byte kind) {
+        if (opCount == opPositions.length) {
+            int newLength = opCount * 2;
+            opPositions = Arrays.copyOf(opPositions, newLength);
+            opKinds = Arrays.copyOf(opKinds, newLength);
+            opStatuses = Arrays.copyOf(opStatuses, newLength);
+            opBlocks = Arrays.copyOf(opBlocks, newLength);
+        }
+        opPositions[opCount] = PositionQueue.pack(x, y, z);
+        opKinds[opCount] = kind;
+        return opCount++;
+    }
+}
@@ -0,0 +1,249 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.terasology.engine.math.Side;
+import org.terasology.engine.world.block.Block;
+import org.terasology.engine.world.block.BlockManager;
+
+/**
+ * Flow rules based on the virtual pipes model used for shallow water. Each update moves liquid straight into every
+ * lower neighbour at once, in proportion to the difference in height, rather than picking a single direction to flow
+ * in, so bodies of liquid level out in far fewer updates than with {@link CellularFlowSolver}.
+ * <p>
+ * The full model keeps a flux for each pipe, carrying momentum from one update to the next, but the liquid data has
+ * no room for four fluxes, so this is the overdamped form in which the flux depends only on the current heights.
+ * Liquid is moved by writing the heights of the neighbours, and the block is left with no direction or rate. As updates
+ * write to their neighbours, the order they're run in matters, so they can't be run in parallel.
+ * <p>
+ * Where liquid meets a different liquid, or a block it reacts with, the update is left to the cellular rules, which
+ * handle smooshing and reactions. Liquid flowing in from blocks updated by the cellular rules is taken in the same way
+ * as they would.
+ * <p>
+ * This keeps scratch arrays between updates, so it isn't thread safe.
+ */
+class VirtualPipesFlowSolver implements FlowSolver {
+    static final String NAME = "virtualPipes";
+    /**
+     * Each pipe carries this fraction of the difference in height, so that a block with four lower neighbours can't
+     * end up lower than any of them.
+     */
+    private static final int FLUX_DIVISOR = 5;
+    /** The height of a neighbour liquid can't flow into. */
+    private static final int BLOCKED = Integer.MAX_VALUE;
+
+    private final LiquidFlowSystem flowSystem;
+    private final CellularFlowSolver fallback;
+    private final Block air;
+
+    /** The heights of the horizontal neighbours, indexed like {@link SideOffsets#HORIZONTAL}. */
+    private final int[] neighbourHeights = new int[SideOffsets.HORIZONTAL.length];
+    private final int[] flux = new int[SideOffsets.HORIZONTAL.length];
+    /** The format of the liquid data in the world being updated. */
+    private LiquidDataCodec data;
+
+    /**
+     * @param flowSystem Used to look up which blocks liquids can flow into and how they react
+     * @param fallback Used for updates involving reactions
+     */
+    VirtualPipesFlowSolver(LiquidFlowSystem flowSystem, CellularFlowSolver fallback, BlockManager blockManager) {
+        this.flowSystem = flowSystem;
+        this.fallback = fallback;
+        air = blockManager.getBlock(BlockManager.AIR_ID);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isParallelSafe() {
+        return false;
+    }
+
+    @Override
+    public boolean updatePosition(FlowWorldAccess world, int x, int y, int z) {
+        Block liquid = world.getBlock(x, y, z);
+        if (!liquid.isLiquid() || needsReactions(world, liquid, x, y, z)) {
+            return fallback.updatePosition(world, x, y, z);
+        }
+        data = world.getCodec();
+        int status = world.getStatus(x, y, z);
+        int height = data.getHeight(status) - data.getRate(status);
+        if (height < 0) {
+            throw new IllegalStateException("Liquid outflow greater than existing volume.");
+        }
+        height = takeInflow(world, liquid, x, y, z, height);
+        int heightBeforeFlow = height;
+        height = flowDown(world, liquid, x, y, z, height);
+        if (height > 0) {
+            height = flowSideways(world, liquid, x, y, z, height);
+        }
+
+        int newStatus = height > 0 ? data.setHeight(data.getFull(), height) : data.getFull();
+        if (newStatus == status && height == heightBeforeFlow) {
+            return false;
+        }
+        if (height == 0) {
+            world.setBlock(x, y, z, air);
+        }
+        world.setStatus(x, y, z, newStatus);
+        CellularFlowSolver.updateNear(world, x, y, z);
+        return true;
+    }
+
+    /**
+     * Whether any neighbour is a different liquid, or a block this liquid reacts with.
+     */
+    private boolean needsReactions(FlowWorldAccess world, Block liquid, int x, int y, int z) {
+        for (Side side : SideOffsets.ALL) {
+            Block adjBlock = world.getBlock(x + SideOffsets.X[side.ordinal()], y + SideOffsets.Y[side.ordinal()], z + SideOffsets.Z[side.ordinal()]);
+            if (adjBlock == liquid) {
+                continue;
+            }
+            if (adjBlock.isLiquid() || flowSystem.canSmoosh(liquid, adjBlock) && flowSystem.getSmooshingReaction(liquid, adjBlock) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Take in the liquid flowing in from neighbours updated by the cellular rules.
+     *
+     * @return The new height
+     */
+    private int takeInflow(FlowWorldAccess world, Block liquid, int x, int y, int z, int height) {
+        for (Side side : SideOffsets.ALL) {
+            int adjX = x + SideOffsets.X[side.ordinal()];
+            int adjY = y + SideOffsets.Y[side.ordinal()];
+            int adjZ = z + SideOffsets.Z[side.ordinal()];
+            if (world.getBlock(adjX, adjY, adjZ) != liquid) {
+                continue;
+            }
+            int adjStatus = world.getStatus(adjX, adjY, adjZ);
+            if (side.reverse() == data.getDirection(adjStatus)) {
+                int rate = data.getRate(adjStatus);
+                if (rate + height > data.getMaxHeight()) {
+                    world.setStatus(adjX, adjY, adjZ, data.setRate(adjStatus, data.getMaxHeight() - height));
+                    height = data.getMaxHeight();
+                    world.addPos(adjX, adjY, adjZ);
+                } else {
+                    height += rate;
+                }
+            }
+        }
+        return height;
+    }
+
+    /**
+     * Move as much liquid as will fit into the block below.
+     *
+     * @return The height left
+     */
+    private int flowDown(FlowWorldAccess world, Block liquid, int x, int y, int z, int height) {
+        Block belowBlock = world.getBlock(x, y - 1, z);
+        if (belowBlock == liquid) {
+            int belowStatus = world.getStatus(x, y - 1, z);
+            int belowHeight = data.getHeight(belowStatus);
+            int moved = Math.min(height, data.getMaxHeight() - belowHeight);
+            if (moved > 0) {
+                world.setStatus(x, y - 1, z, data.setHeight(belowStatus, belowHeight + moved));
+                world.addPos(x, y - 1, z);
+                return height - moved;
+            }
+        } else if (flowSystem.canSmoosh(liquid, belowBlock) && (belowBlock == air || world.smoosh(x, y - 1, z))) {
+            world.setBlock(x, y - 1, z, liquid);
+            world.setStatus(x, y - 1, z, data.setHeight(data.getFull(), height));
+            world.addPos(x, y - 1, z);
+            return 0;
+        }
+        return height;
+    }
+
+    /**
+     * Move liquid into each lower horizontal neighbour, in proportion to the difference in height. Differences too
+     * small to give any flux are evened out one unit at a time, towards the lowest neighbour.
+     *
+     * @return The height left
+     */
+    private int flowSideways(FlowWorldAccess world, Block liquid, int x, int y, int z, int height) {
+        int total = 0;
+        int lowest = -1;
+        int lowestDifference = 1;
+        // Start from a random side, so that ties between neighbours aren't always settled the same way.
+        int first = world.getRandom().nextInt(SideOffsets.HORIZONTAL.length);
+        for (int n = 0; n < SideOffsets.HORIZONTAL.length; n++) {
+            int i = (first + n) % SideOffsets.HORIZONTAL.length;
+            Side side = SideOffsets.HORIZONTAL[i];
+            int adjX = x + SideOffsets.X[side.ordinal()];
+            int adjZ = z + SideOffsets.Z[side.ordinal()];
+            int adjHeight = neighbourHeight(world, liquid, adjX, y, adjZ);
+            neighbourHeights[i] = adjHeight;
+            flux[i] = 0;
+            if (adjHeight == BLOCKED) {
+                continue;
+            }
+            int difference = height - adjHeight;
+            int room = data.getMaxHeight() - Math.max(adjHeight, 0);
+            if (difference > 0 && room > 0) {
+                flux[i] = Math.min(difference / FLUX_DIVISOR, room);
+                total += flux[i];
+                if (difference > lowestDifference) {
+                    lowestDifference = difference;
+                    lowest = i;
+                }
+            }
+        }
+        if (total == 0) {
+            if (lowest < 0) {
+                return height;
+            }
+            flux[lowest] = 1;
+        }
+        // Each flux is at most a fifth of (height + 1), so together they never take more than the block has.
+
+        for (int i = 0; i < SideOffsets.HORIZONTAL.length; i++) {
+            if (flux[i] == 0) {
+                continue;
+            }
+            Side side = SideOffsets.HORIZONTAL[i];
+            int adjX = x + SideOffsets.X[side.ordinal()];
+            int adjZ = z + SideOffsets.Z[side.ordinal()];
+            if (neighbourHeights[i] > 0) {
+                int adjStatus = world.getStatus(adjX, y, adjZ);
+                world.setStatus(adjX, y, adjZ, data.setHeight(adjStatus, neighbourHeights[i] + flux[i]));
+            } else if (world.getBlock(adjX, y, adjZ) == air || world.smoosh(adjX, y, adjZ)) {
+                world.setBlock(adjX, y, adjZ, liquid);
+                world.setStatus(adjX, y, adjZ, data.setHeight(data.getFull(), flux[i]));
+            } else {
+                continue;
+            }
+            world.addPos(adjX, y, adjZ);
+            height -= flux[i];
+        }
+        return height;
+    }
+
+    /**
+     * The height of liquid in a horizontal neighbour, as seen by the pipes: -1 for an empty block the liquid would fall
+     * out of, and {@link #BLOCKED} for a block it can't flow into.
+     */
+    private int neighbourHeight(FlowWorldAccess world, Block liquid, int x, int y, int z) {
+        Block block = world.getBlock(x, y, z);
+        if (block == liquid) {
+            return data.getHeight(world.getStatus(x, y, z));
+        }
+        if (!flowSystem.canSmoosh(liquid, block)) {
+            return BLOCKED;
+        }
+        Block belowBlock = world.getBlock(x, y - 1, z);
+        if (flowSystem.canSmoosh(liquid, belowBlock)
+            || belowBlock == liquid && data.getHeight(world.getStatus(x, y - 1, z)) < data.getMaxHeight()) {
+            return -1;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,219 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.network;
+
+import org.joml.Vector3i;
+import org.joml.Vector3ic;
+import org.junit.jupiter.api.Test;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LiquidBatchRoundTripTest {
+    private static final Vector3ic CHUNK = new Vector3i(3, -1, 7);
+
+    /** Keeps the latest value received for each cell, checking the cells of each batch come in increasing order. */
+    private static class RecordingReceiver implements LiquidBatchReceiver {
+        private final Map<Integer, Integer> cells = new TreeMap<>();
+        private final Vector3i lastChunk = new Vector3i();
+
+        @Override
+        public void receive(Vector3ic chunkPos, byte[] batch) {
+            lastChunk.set(chunkPos);
+            int[] previous = {-1};
+            LiquidBatchCodec.decode(batch, (cellIndex, value) -> {
+                assertTrue(cellIndex > previous[0]);
+                previous[0] = cellIndex;
+                cells.put(cellIndex, value);
+            });
+        }
+    }
+
+    private final RecordingReceiver receiver = new RecordingReceiver();
+    private final LoopbackLiquidBatchTransport transport = new LoopbackLiquidBatchTransport(receiver);
+
+    private void send(ChunkChanges changes) {
+        transport.send(EntityRef.NULL, changes.getChunkPos(), changes.encode());
+    }
+
+    private int valueAt(int cell) {
+        return receiver.cells.get(cell);
+    }
+
+    @Test
+    public void deliversTheLatestChangeToEachCell() {
+        ChunkChanges changes = new ChunkChanges(CHUNK);
+        changes.add(10, 1);
+        changes.add(5, 2);
+        changes.add(10, 3);
+        changes.add(5, 4);
+        changes.add(10, 5);
+        send(changes);
+
+        assertEquals(new Vector3i(CHUNK), receiver.lastChunk);
+        assertEquals(2, receiver.cells.size());
+        assertEquals(4, valueAt(5));
+        assertEquals(5, valueAt(10));
+        assertEquals(1, transport.getBatchCount());
+    }
+
+    @Test
+    public void dedupsAcrossCompactionsWhenTheListGrows() {
+        ChunkChanges changes = new ChunkChanges(CHUNK);
+        // Far more changes than the initial capacity, to the same few cells, so they're compacted while being added.
+        for (int i = 0; i < 1000; i++) {
+            changes.add(i % 7, i & 0xFF);
+        }
+        send(changes);
+        assertEquals(7, receiver.cells.size());
+        for (int cell = 0; cell < 7; cell++) {
+            int last = 999 - (999 - cell) % 7;
+            assertEquals(last & 0xFF, valueAt(cell));
+        }
+    }
+
+    @Test
+    public void mergesHeldChangesWithLaterOnes() {
+        ChunkChanges held = new ChunkChanges(CHUNK);
+        held.add(100, 1);
+        held.add(200, 1);
+        ChunkChanges later = new ChunkChanges(CHUNK);
+        later.add(200, 2);
+        later.add(300, 2);
+        held.addAll(later);
+        send(held);
+        assertEquals(3, receiver.cells.size());
+        assertEquals(1, valueAt(100));
+        assertEquals(2, valueAt(200));
+        assertEquals(2, valueAt(300));
+    }
+
+    @Test
+    public void encodesRunsOfTheSameValueCompactly() {
+        ChunkChanges changes = new ChunkChanges(CHUNK);
+        for (int cell = 1000; cell < 1500; cell++) {
+            changes.add(cell, 9);
+        }
+        for (int cell = 1500; cell < 1600; cell++) {
+            changes.add(cell, 10);
+        }
+        byte[] batch = changes.encode();
+        // The value size, then two runs: a two byte gap, a two byte length and the value, then a one byte gap and
+        // length and the value.
+        assertEquals(1 + 5 + 3, batch.length);
+        transport.send(EntityRef.NULL, CHUNK, batch);
+        assertEquals(600, receiver.cells.size());
+        assertEquals(9, valueAt(1499));
+        assertEquals(10, valueAt(1500));
+        assertEquals(batch.length, transport.getByteCount());
+    }
+
+    @Test
+    public void reachesBothEndsOfTheChunk() {
+        ChunkChanges changes = new ChunkChanges(CHUNK);
+        int last = LiquidBatchCodec.CHUNK_VOLUME - 1;
+        changes.add(last, 7);
+        changes.add(0, 6);
+        changes.add(last - 1, 7);
+        changes.add(LiquidBatchCodec.CHUNK_VOLUME / 2, 8);
+        send(changes);
+        assertEquals(4, receiver.cells.size());
+        assertEquals(6, valueAt(0));
+        assertEquals(8, valueAt(LiquidBatchCodec.CHUNK_VOLUME / 2));
+        assertEquals(7, valueAt(last - 1));
+        assertEquals(7, valueAt(last));
+    }
+
+    @Test
+    public void cellIndicesRoundTripThroughTheirCoordinates() {
+        for (int cell : new int[]{0, 1, 31, 32, 2047, 2048, LiquidBatchCodec.CHUNK_VOLUME - 1}) {
+            assertEquals(cell, LiquidBatchCodec.cellIndex(LiquidBatchCodec.cellX(cell), LiquidBatchCodec.cellY(cell), LiquidBatchCodec.cellZ(cell)));
+        }
+    }
+
+    @Test
+    public void matchesTheChangesMadeUnderRandomUse() {
+        Random random = new Random(42);
+        Map<Integer, Integer> expected = new TreeMap<>();
+        ChunkChanges changes = new ChunkChanges(CHUNK);
+        for (int i = 0; i < 5000; i++) {
+            // Mostly in patches, with some changes scattered over the whole chunk.
+            int cell = random.nextInt(4) == 0 ? random.nextInt(LiquidBatchCodec.CHUNK_VOLUME) : 30000 + random.nextInt(300);
+            int value = random.nextInt(4);
+            changes.add(cell, value);
+            expected.put(cell, value);
+        }
+        send(changes);
+        assertEquals(expected, receiver.cells);
+    }
+
+    @Test
+    public void carriesBothBytesOfWideValues() {
+        ChunkChanges changes = new ChunkChanges(CHUNK);
+        changes.add(40, 0x8123);
+        changes.add(41, 0x8123);
+        changes.add(42, 0x0007);
+        changes.add(60000, 0xFFFF);
+        byte[] batch = changes.encode();
+        // The value size, then three runs of a one or three byte gap, a one byte length and a two byte value.
+        assertEquals(1 + 4 + 4 + 6, batch.length);
+        transport.send(EntityRef.NULL, CHUNK, batch);
+        assertEquals(4, receiver.cells.size());
+        assertEquals(0x8123, valueAt(40));
+        assertEquals(0x8123, valueAt(41));
+        assertEquals(0x0007, valueAt(42));
+        assertEquals(0xFFFF, valueAt(60000));
+    }
+
+    @Test
+    public void usesOneByteValuesWhenTheHighBytesAreZero() {
+        ChunkChanges changes = new ChunkChanges(CHUNK);
+        changes.add(3, 0xFF);
+        byte[] batch = changes.encode();
+        assertEquals(1, batch[0]);
+        assertEquals(4, batch.length);
+    }
+
+    @Test
+    public void rejectsTruncatedBatches() {
+        ChunkChanges changes = new ChunkChanges(CHUNK);
+        changes.add(20000, 0x8001);
+        byte[] batch = changes.encode();
+        // Just the value size is an empty batch, so cut it off anywhere after that.
+        for (int length = 2; length < batch.length; length++) {
+            byte[] truncated = Arrays.copyOf(batch, length);
+            assertThrows(IllegalArgumentException.class, () -> transport.send(EntityRef.NULL, CHUNK, truncated));
+        }
+        // A batch without even the value size, and one with an unknown value size.
+        assertThrows(IllegalArgumentException.class, () -> transport.send(EntityRef.NULL, CHUNK, new byte[0]));
+        assertThrows(IllegalArgumentException.class, () -> transport.send(EntityRef.NULL, CHUNK, new byte[]{3, 0, 1, 1, 1, 1}));
+        // A varint which never ends.
+        byte[] endless = {1, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 1, 1};
+        assertThrows(IllegalArgumentException.class, () -> transport.send(EntityRef.NULL, CHUNK, endless));
+    }
+
+    @Test
+    public void rejectsBatchesOutsideTheChunk() {
+        // A run which starts on the last cell but is two cells long.
+        byte[] overrun = {1, (byte) 0xFF, (byte) 0xFF, 0x03, 2, 1};
+        assertThrows(IllegalArgumentException.class, () -> transport.send(EntityRef.NULL, CHUNK, overrun));
+        // A run of no cells.
+        byte[] empty = {1, 0, 0, 1};
+        assertThrows(IllegalArgumentException.class, () -> transport.send(EntityRef.NULL, CHUNK, empty));
+        // A length big enough to overflow when added to the first cell.
+        byte[] overflow = {1, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 1};
+        assertThrows(IllegalArgumentException.class, () -> transport.send(EntityRef.NULL, CHUNK, overflow));
+        // A negative gap.
+        byte[] negative = {1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F, 1, 1};
+        assertThrows(IllegalArgumentException.class, () -> transport.send(EntityRef.NULL, CHUNK, negative));
+        assertTrue(receiver.cells.isEmpty());
+    }
+}
@@ -0,0 +1,36 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.network;
+
+import org.joml.Vector3ic;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+
+/**
+ * Hands batches straight to a receiver in the same process, standing in for the network so that replication can be
+ * checked without a remote client. Every batch goes to the same receiver, whichever client it was addressed to.
+ */
+class LoopbackLiquidBatchTransport implements LiquidBatchTransport {
+    private final LiquidBatchReceiver receiver;
+    private long batches;
+    private long bytes;
+
+    LoopbackLiquidBatchTransport(LiquidBatchReceiver receiver) {
+        this.receiver = receiver;
+    }
+
+    @Override
+    public void send(EntityRef client, Vector3ic chunkPos, byte[] batch) {
+        batches++;
+        bytes += batch.length;
+        receiver.receive(chunkPos, batch);
+    }
+
+    long getBatchCount() {
+        return batches;
+    }
+
+    long getByteCount() {
+        return bytes;
+    }
+}
@@ -0,0 +1,84 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.joml.Vector3i;
+import org.junit.jupiter.api.Test;
+import org.terasology.engine.world.WorldProvider;
+import org.terasology.engine.world.chunks.Chunk;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class BasinLevellerTest {
+    /** Levelling a whole layer is slow through the mocks, so only a few of each tick's positions are levelled. */
+    private static final int LEVELLINGS_PER_TICK = 4;
+
+    private final ConservationTester tester = new ConservationTester();
+    private final CellularFlowSolver solver = new CellularFlowSolver(tester.flowSystem, tester.blockManager);
+    private final LiquidStorage storage = new LiquidStorage(0, 1);
+    private FlowBenchmark.BenchmarkWorld world;
+    private final BasinLeveller leveller = new BasinLeveller(worldProvider(), storage, tester.flowSystem::canSmoosh);
+    private int levelledCells;
+
+    /**
+     * The benchmark world as the chunk at the origin, which all of the scenarios fit inside.
+     */
+    private Chunk chunk() {
+        return mock(Chunk.class, invocation -> read(invocation.getMethod().getName(), invocation.getArguments()));
+    }
+
+    private WorldProvider worldProvider() {
+        return mock(WorldProvider.class, invocation -> read(invocation.getMethod().getName(), invocation.getArguments()));
+    }
+
+    private Object read(String method, Object[] args) {
+        switch (method) {
+            case "getBlock":
+                return world.getBlock((int) args[0], (int) args[1], (int) args[2]);
+            case "getExtraData":
+                int status = world.getStatus((int) args[1], (int) args[2], (int) args[3]);
+                return (int) args[0] == 0 ? LiquidDataCodec.low(status) : LiquidDataCodec.high(status);
+            default:
+                throw new UnsupportedOperationException(method);
+        }
+    }
+
+    private void assertConserved(FlowBenchmark.Scenario scenario, LiquidDataCodec codec) {
+        storage.setCodec(codec);
+        levelledCells = 0;
+        Chunk chunk = chunk();
+        Vector3i chunkPos = new Vector3i();
+        tester.assertConserved(scenario, codec, solver, (benchmarkWorld, positions, evenTick) -> {
+            world = benchmarkWorld;
+            int stride = Math.max(1, positions.size() / LEVELLINGS_PER_TICK);
+            int[] index = {0};
+            positions.forEachPacked(pos -> {
+                if (index[0]++ % stride == 0) {
+                    levelledCells += leveller.level(chunk, chunkPos, PositionQueue.unpackX(pos), PositionQueue.unpackY(pos), PositionQueue.unpackZ(pos),
+                        evenTick, benchmarkWorld);
+                }
+            });
+        });
+        assertTrue(levelledCells > 0, scenario + " never levelled anything");
+    }
+
+    @Test
+    public void levellingADamBreakConservesVolume() {
+        assertConserved(FlowBenchmark.Scenario.DAM_BREAK, LiquidDataCodec.NARROW);
+        assertConserved(FlowBenchmark.Scenario.DAM_BREAK, LiquidDataCodec.WIDE);
+    }
+
+    @Test
+    public void levellingAWaterfallConservesVolume() {
+        assertConserved(FlowBenchmark.Scenario.WATERFALL, LiquidDataCodec.NARROW);
+        assertConserved(FlowBenchmark.Scenario.WATERFALL, LiquidDataCodec.WIDE);
+    }
+
+    @Test
+    public void levellingAPitFillConservesVolume() {
+        assertConserved(FlowBenchmark.Scenario.PIT_FILL, LiquidDataCodec.NARROW);
+        assertConserved(FlowBenchmark.Scenario.PIT_FILL, LiquidDataCodec.WIDE);
+    }
+}
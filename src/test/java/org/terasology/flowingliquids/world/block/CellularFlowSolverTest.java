@@ -0,0 +1,55 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CellularFlowSolverTest {
+    /** Enough ticks for the updates to be compiled, and for the queues to have grown to the size they need. */
+    private static final int WARM_UP_TICKS = 300;
+    private static final int MEASURED_TICKS = 100;
+
+    private final ConservationTester tester = new ConservationTester();
+    private final CellularFlowSolver solver = new CellularFlowSolver(tester.flowSystem, tester.blockManager);
+    private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    public void updatesDontAllocate() {
+        for (LiquidDataCodec codec : LiquidDataCodec.values()) {
+            FlowBenchmark.BenchmarkWorld world = tester.benchmark.build(FlowBenchmark.Scenario.DAM_BREAK, codec);
+            boolean evenTick = true;
+            for (int tick = 0; tick < WARM_UP_TICKS; tick++) {
+                runTick(world, world.beginTick(evenTick));
+                evenTick = !evenTick;
+            }
+            long threadId = Thread.currentThread().getId();
+            long allocated = 0;
+            long updates = 0;
+            for (int tick = 0; tick < MEASURED_TICKS; tick++) {
+                PositionQueue positions = world.beginTick(evenTick);
+                long before = threads.getThreadAllocatedBytes(threadId);
+                updates += runTick(world, positions);
+                allocated += threads.getThreadAllocatedBytes(threadId) - before;
+                evenTick = !evenTick;
+            }
+            assertTrue(updates > 0, codec + " had nothing left to update");
+            assertEquals(0, allocated, codec + " allocated " + (double) allocated / updates + " bytes per update over " + updates + " updates");
+        }
+    }
+
+    private long runTick(FlowBenchmark.BenchmarkWorld world, PositionQueue positions) {
+        long updates = 0;
+        while (!positions.isEmpty()) {
+            long pos = positions.pollPacked();
+            solver.updatePosition(world, PositionQueue.unpackX(pos), PositionQueue.unpackY(pos), PositionQueue.unpackZ(pos));
+            updates++;
+        }
+        return updates;
+    }
+}
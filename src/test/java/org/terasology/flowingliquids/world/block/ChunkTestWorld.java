@@ -0,0 +1,104 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.terasology.engine.world.WorldProvider;
+import org.terasology.engine.world.block.Block;
+import org.terasology.engine.world.chunks.Chunk;
+import org.terasology.engine.world.chunks.Chunks;
+
+import java.util.Arrays;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * The chunk at the origin, held in arrays, with air all around it, for testing the passes which read chunks directly.
+ * The chunk and world provider it hands out only support the reads those passes make.
+ */
+class ChunkTestWorld {
+    static final int FLOW_IX = 0;
+    static final int HIGH_IX = 1;
+
+    private final Block air;
+    private final Block[] blocks = new Block[SettledBodyDetector.CHUNK_VOLUME];
+    private final int[][] extraData = new int[2][SettledBodyDetector.CHUNK_VOLUME];
+    private final LiquidStorage storage = new LiquidStorage(FLOW_IX, HIGH_IX);
+
+    ChunkTestWorld(Block air) {
+        this.air = air;
+        Arrays.fill(blocks, air);
+    }
+
+    LiquidStorage getStorage() {
+        return storage;
+    }
+
+    static boolean inChunk(int x, int y, int z) {
+        return x >= 0 && y >= 0 && z >= 0 && x < Chunks.SIZE_X && y < Chunks.SIZE_Y && z < Chunks.SIZE_Z;
+    }
+
+    Block getBlock(int x, int y, int z) {
+        return inChunk(x, y, z) ? blocks[SettledBodyDetector.cellIndex(x, y, z)] : air;
+    }
+
+    int getStatus(int x, int y, int z) {
+        return storage.getCodec().decode(getExtraData(FLOW_IX, x, y, z), getExtraData(HIGH_IX, x, y, z));
+    }
+
+    void setBlock(int x, int y, int z, Block block) {
+        blocks[SettledBodyDetector.cellIndex(x, y, z)] = block;
+    }
+
+    void setStatus(int x, int y, int z, int status) {
+        int cell = SettledBodyDetector.cellIndex(x, y, z);
+        extraData[FLOW_IX][cell] = LiquidDataCodec.low(status);
+        extraData[HIGH_IX][cell] = LiquidDataCodec.high(status);
+    }
+
+    /**
+     * Fill a cuboid with a block, with the given liquid data.
+     */
+    void fill(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, Block block, int status) {
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    setBlock(x, y, z, block);
+                    setStatus(x, y, z, status);
+                }
+            }
+        }
+    }
+
+    private int getExtraData(int index, int x, int y, int z) {
+        return inChunk(x, y, z) ? extraData[index][SettledBodyDetector.cellIndex(x, y, z)] : 0;
+    }
+
+    Chunk chunk() {
+        return mock(Chunk.class, invocation -> {
+            Object[] args = invocation.getArguments();
+            switch (invocation.getMethod().getName()) {
+                case "getBlock":
+                    return getBlock((int) args[0], (int) args[1], (int) args[2]);
+                case "getExtraData":
+                    return getExtraData((int) args[0], (int) args[1], (int) args[2], (int) args[3]);
+                default:
+                    throw new UnsupportedOperationException(invocation.getMethod().getName());
+            }
+        });
+    }
+
+    WorldProvider worldProvider() {
+        return mock(WorldProvider.class, invocation -> {
+            Object[] args = invocation.getArguments();
+            switch (invocation.getMethod().getName()) {
+                case "getBlock":
+                    return getBlock((int) args[0], (int) args[1], (int) args[2]);
+                case "getExtraData":
+                    return getExtraData((int) args[0], (int) args[1], (int) args[2], (int) args[3]);
+                default:
+                    throw new UnsupportedOperationException(invocation.getMethod().getName());
+            }
+        });
+    }
+}
@@ -0,0 +1,78 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.terasology.engine.world.block.Block;
+import org.terasology.engine.world.block.BlockManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Runs the {@link FlowBenchmark} scenarios tick by tick, checking after every tick that no liquid was created or
+ * destroyed. The scenarios are built from plain blocks, with water as the only liquid and air the only block it can
+ * flow into.
+ */
+class ConservationTester {
+    /** Some scenarios take a long time to settle completely, but by then little is moving. */
+    private static final int MAX_TICKS = 2000;
+
+    /**
+     * Something done to the world between ticks, before the positions of the tick are updated.
+     */
+    interface Pass {
+        void run(FlowBenchmark.BenchmarkWorld world, PositionQueue positions, boolean evenTick);
+    }
+
+    final Block air = new Block();
+    final Block wall = new Block();
+    final Block water = new Block();
+    final BlockManager blockManager = mock(BlockManager.class, invocation -> {
+        Object id = invocation.getArguments()[0];
+        if (id instanceof String) {
+            return "CoreAssets:Water".equals(id) ? water : air;
+        }
+        return (short) id == BlockManager.AIR_ID ? air : wall;
+    });
+    final LiquidFlowSystem flowSystem = new LiquidFlowSystem() {
+        @Override
+        boolean canSmoosh(Block liquid, Block replacing) {
+            return replacing == air;
+        }
+
+        @Override
+        LiquidSmooshingReactionComponent getSmooshingReaction(Block liquid, Block replacing) {
+            return null;
+        }
+    };
+    final FlowBenchmark benchmark;
+
+    ConservationTester() {
+        water.setLiquid(true);
+        benchmark = new FlowBenchmark(blockManager);
+    }
+
+    /**
+     * Run a scenario until it settles, or for at most {@link #MAX_TICKS}, checking the volume of liquid after the pass
+     * and after the updates of each tick.
+     */
+    void assertConserved(FlowBenchmark.Scenario scenario, LiquidDataCodec codec, FlowSolver solver, Pass pass) {
+        FlowBenchmark.BenchmarkWorld world = benchmark.build(scenario, codec);
+        boolean evenTick = true;
+        long volume = world.getVolume(evenTick);
+        int ticks = 0;
+        while (ticks < MAX_TICKS && !world.isSettled()) {
+            PositionQueue positions = world.beginTick(evenTick);
+            pass.run(world, positions, evenTick);
+            assertEquals(volume, world.getVolume(evenTick), scenario + " before the updates of tick " + ticks);
+            while (!positions.isEmpty()) {
+                long pos = positions.pollPacked();
+                solver.updatePosition(world, PositionQueue.unpackX(pos), PositionQueue.unpackY(pos), PositionQueue.unpackZ(pos));
+            }
+            evenTick = !evenTick;
+            ticks++;
+            assertEquals(volume, world.getVolume(evenTick), scenario + " after tick " + ticks);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FallingColumnMoverTest {
+    private final ConservationTester tester = new ConservationTester();
+    private final CellularFlowSolver solver = new CellularFlowSolver(tester.flowSystem, tester.blockManager);
+    private final FallingColumnMover mover = new FallingColumnMover(tester.air);
+    private int columnsMoved;
+
+    private void assertConserved(FlowBenchmark.Scenario scenario) {
+        for (LiquidDataCodec codec : LiquidDataCodec.values()) {
+            columnsMoved = 0;
+            tester.assertConserved(scenario, codec, solver, (world, positions, evenTick) -> columnsMoved += mover.moveColumns(positions, evenTick, world));
+            assertTrue(columnsMoved > 0, scenario + " never moved a column");
+        }
+    }
+
+    @Test
+    public void movingColumnsInADamBreakConservesVolume() {
+        assertConserved(FlowBenchmark.Scenario.DAM_BREAK);
+    }
+
+    @Test
+    public void movingColumnsInAWaterfallConservesVolume() {
+        assertConserved(FlowBenchmark.Scenario.WATERFALL);
+    }
+
+    @Test
+    public void movingColumnsInAPitFillConservesVolume() {
+        assertConserved(FlowBenchmark.Scenario.PIT_FILL);
+    }
+}
@@ -0,0 +1,67 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.junit.jupiter.api.Test;
+import org.terasology.engine.world.chunks.Chunks;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FlowSeedsTest {
+
+    @Test
+    public void worldSeedGivesTheSameSeedEveryTime() {
+        assertEquals(FlowSeeds.fromWorldSeed("Terasology"), FlowSeeds.fromWorldSeed("Terasology"));
+        assertNotEquals(FlowSeeds.fromWorldSeed("Terasology"), FlowSeeds.fromWorldSeed("terasology"));
+        assertNotEquals(FlowSeeds.fromWorldSeed(""), FlowSeeds.fromWorldSeed("a"));
+    }
+
+    @Test
+    public void positionSeedsOnlyDependOnTheirInputs() {
+        long seed = FlowSeeds.fromWorldSeed("seed");
+        int[][] positions = {{0, 0, 0}, {-1, 5, -1}, {31, 63, 31}, {32, 64, 32}, {-100000, -300, 250000}};
+        long[] first = new long[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            first[i] = FlowSeeds.forPosition(seed, 17, positions[i][0], positions[i][1], positions[i][2]);
+        }
+        // Work out a different position's seed in between, to check nothing is carried over between calls.
+        FlowSeeds.forPosition(seed, 18, 3, 3, 3);
+        for (int i = positions.length - 1; i >= 0; i--) {
+            assertEquals(first[i], FlowSeeds.forPosition(seed, 17, positions[i][0], positions[i][1], positions[i][2]));
+        }
+    }
+
+    @Test
+    public void neighbouringPositionsGetTheirOwnSeeds() {
+        long seed = FlowSeeds.fromWorldSeed("seed");
+        Set<Long> seeds = new HashSet<>();
+        int count = 0;
+        for (int x = -1; x <= Chunks.SIZE_X; x++) {
+            for (int y = -1; y <= 2; y++) {
+                for (int z = -1; z <= Chunks.SIZE_Z; z++) {
+                    seeds.add(FlowSeeds.forPosition(seed, 3, x, y, z));
+                    count++;
+                }
+            }
+        }
+        assertEquals(count, seeds.size());
+    }
+
+    @Test
+    public void ticksAndStreamsDontShareSeeds() {
+        long seed = FlowSeeds.fromWorldSeed("seed");
+        Set<Long> seeds = new HashSet<>();
+        for (long tick = 0; tick < 100; tick++) {
+            assertTrue(seeds.add(FlowSeeds.forPosition(seed, tick, 1, 2, 3)));
+            assertTrue(seeds.add(FlowSeeds.forChunk(seed, tick, 0, 0, 0)));
+            assertTrue(seeds.add(FlowSeeds.forRandomUpdates(seed, tick)));
+        }
+        assertNotEquals(FlowSeeds.forRandomUpdates(seed, 5), FlowSeeds.forRandomUpdates(seed + 1, 5));
+    }
+}
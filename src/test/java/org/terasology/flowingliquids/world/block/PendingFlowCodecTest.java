@@ -0,0 +1,85 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PendingFlowCodecTest {
+
+    @Test
+    public void roundTripsSortedCells() {
+        int[] cells = {500, 3, SettledBodyDetector.CHUNK_VOLUME - 1, 0, 4, 20000};
+        int count = cells.length;
+        int[] expected = Arrays.copyOf(cells, count);
+        Arrays.sort(expected);
+
+        byte[] encoded = PendingFlowCodec.encode(1234567, cells, count);
+        List<Integer> decoded = new ArrayList<>();
+        int liquidCells = PendingFlowCodec.decode(encoded, decoded::add);
+
+        assertEquals(1234567, liquidCells);
+        assertEquals(count, decoded.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(expected[i], decoded.get(i));
+        }
+    }
+
+    @Test
+    public void encodesOnlyTheGivenCount() {
+        int[] cells = {7, 9, 8, 1};
+        List<Integer> decoded = new ArrayList<>();
+        PendingFlowCodec.decode(PendingFlowCodec.encode(4, cells, 2), decoded::add);
+        assertEquals(Arrays.asList(7, 9), decoded);
+    }
+
+    @Test
+    public void roundTripsAChunkWithNothingQueued() {
+        List<Integer> decoded = new ArrayList<>();
+        assertEquals(42, PendingFlowCodec.decode(PendingFlowCodec.encode(42, new int[0], 0), decoded::add));
+        assertEquals(0, decoded.size());
+    }
+
+    @Test
+    public void countsPositionsWithoutDecodingThem() {
+        assertEquals(0, PendingFlowCodec.countPositions(PendingFlowCodec.encode(5000, new int[0], 0)));
+        assertEquals(3, PendingFlowCodec.countPositions(PendingFlowCodec.encode(5000, new int[]{9, 2, 40000}, 3)));
+        assertThrows(IllegalArgumentException.class, () -> PendingFlowCodec.countPositions(new byte[]{(byte) 0x80}));
+    }
+
+    @Test
+    public void neighbouringCellsTakeAByteEach() {
+        int[] cells = new int[100];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = 1000 + i;
+        }
+        byte[] encoded = PendingFlowCodec.encode(1000, cells, cells.length);
+        // The liquid count and the first gap take two bytes each, and the count one.
+        assertEquals(2 + 1 + 2 + 99, encoded.length);
+    }
+
+    @Test
+    public void rejectsTruncatedData() {
+        byte[] encoded = PendingFlowCodec.encode(300, new int[]{1, 2000}, 2);
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length - 1);
+        assertThrows(IllegalArgumentException.class, () -> PendingFlowCodec.decode(truncated, cell -> { }));
+    }
+
+    @Test
+    public void rejectsCellsOutsideTheChunk() {
+        byte[] encoded = PendingFlowCodec.encode(2, new int[]{SettledBodyDetector.CHUNK_VOLUME - 1, 0}, 2);
+        // Bump the last gap so that it goes past the end of the chunk.
+        encoded[encoded.length - 1]++;
+        assertThrows(IllegalArgumentException.class, () -> PendingFlowCodec.decode(encoded, cell -> { }));
+        // A gap big enough to overflow when added to the previous cell.
+        byte[] overflow = {2, 2, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+        assertThrows(IllegalArgumentException.class, () -> PendingFlowCodec.decode(overflow, cell -> { }));
+    }
+}
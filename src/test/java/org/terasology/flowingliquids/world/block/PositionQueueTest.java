@@ -0,0 +1,249 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.joml.Vector3i;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PositionQueueTest {
+
+    @Test
+    public void pollsInInsertionOrderWithoutDuplicates() {
+        PositionQueue queue = new PositionQueue();
+        assertTrue(queue.add(3, 4, 5));
+        assertTrue(queue.add(-1, 0, 7));
+        assertFalse(queue.add(3, 4, 5));
+        assertTrue(queue.add(new Vector3i(10, -20, 30)));
+
+        assertEquals(3, queue.size());
+        assertTrue(queue.contains(-1, 0, 7));
+        assertFalse(queue.contains(7, 0, -1));
+
+        Vector3i pos = new Vector3i();
+        assertEquals(new Vector3i(3, 4, 5), queue.poll(pos));
+        assertFalse(queue.contains(3, 4, 5));
+        assertEquals(new Vector3i(-1, 0, 7), queue.poll(pos));
+        assertEquals(new Vector3i(10, -20, 30), queue.poll(pos));
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll(pos));
+
+        assertTrue(queue.add(3, 4, 5));
+        assertTrue(queue.contains(3, 4, 5));
+    }
+
+    @Test
+    public void packsNegativeAndExtremeCoordinates() {
+        int[][] positions = {
+            {0, 0, 0},
+            {-1, -1, -1},
+            {1, -1, 1},
+            {(1 << 23) - 1, (1 << 15) - 1, (1 << 23) - 1},
+            {-(1 << 23), -(1 << 15), -(1 << 23)},
+            {-123456, 200, 654321},
+        };
+        for (int[] p : positions) {
+            long packed = PositionQueue.pack(p[0], p[1], p[2]);
+            assertEquals(p[0], PositionQueue.unpackX(packed));
+            assertEquals(p[1], PositionQueue.unpackY(packed));
+            assertEquals(p[2], PositionQueue.unpackZ(packed));
+        }
+    }
+
+    @Test
+    public void tracksThePositionPackedToZero() {
+        assertEquals(0, PositionQueue.pack(0, 0, 0));
+        PositionQueue queue = new PositionQueue();
+        assertFalse(queue.contains(0, 0, 0));
+        assertTrue(queue.add(0, 0, 0));
+        assertFalse(queue.add(0, 0, 0));
+        queue.add(1, 0, 0);
+        assertTrue(queue.contains(0, 0, 0));
+        assertEquals(2, queue.size());
+
+        assertEquals(0, queue.pollPacked());
+        assertFalse(queue.contains(0, 0, 0));
+        assertTrue(queue.contains(1, 0, 0));
+
+        queue.add(0, 0, 0);
+        assertEquals(1, queue.removeIf(pos -> pos == 0));
+        assertFalse(queue.contains(0, 0, 0));
+        queue.clear();
+        assertTrue(queue.add(0, 0, 0));
+    }
+
+    @Test
+    public void backwardShiftDeletionKeepsCollidingPositions() {
+        // With a capacity of 16 the table has 32 slots. Find positions whose ideal slot is the last one, so that
+        // their probe sequence wraps around to the start of the table.
+        PositionQueue queue = new PositionQueue(16);
+        List<Integer> colliding = new ArrayList<>();
+        for (int x = 1; colliding.size() < 4; x++) {
+            if ((PositionQueue.hash(PositionQueue.pack(x, 0, 0)) & 31) == 31) {
+                colliding.add(x);
+            }
+        }
+        for (int x : colliding) {
+            assertTrue(queue.add(x, 0, 0));
+        }
+        // Remove from the middle of the chain, then the start, checking the rest can still be found.
+        List<Integer> remaining = new ArrayList<>(colliding);
+        for (int index : new int[]{1, 0, 3, 2}) {
+            int x = colliding.get(index);
+            long key = PositionQueue.pack(x, 0, 0);
+            assertEquals(1, queue.removeIf(pos -> pos == key));
+            remaining.remove(Integer.valueOf(x));
+            assertFalse(queue.contains(x, 0, 0));
+            for (int other : remaining) {
+                assertTrue(queue.contains(other, 0, 0));
+            }
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void spreadsPositionsAlongEachAxisOverTheTable() {
+        // Rows of liquid along one axis are common, so they mustn't all land in the same few slots of a small table.
+        for (int axis = 0; axis < 3; axis++) {
+            Set<Integer> slots = new HashSet<>();
+            for (int i = 0; i < 64; i++) {
+                long key = PositionQueue.pack(axis == 0 ? i : 5, axis == 1 ? i : 5, axis == 2 ? i : 5);
+                slots.add(PositionQueue.hash(key) & 63);
+            }
+            assertTrue(slots.size() > 32, "only " + slots.size() + " slots used along axis " + axis);
+        }
+    }
+
+    @Test
+    public void matchesAReferenceQueueUnderRandomUse() {
+        Random random = new Random(1234);
+        PositionQueue queue = new PositionQueue(16);
+        Deque<Long> reference = new ArrayDeque<>();
+        for (int step = 0; step < 20000; step++) {
+            int action = random.nextInt(10);
+            if (action < 6) {
+                int x = random.nextInt(40) - 20;
+                int y = random.nextInt(8) - 4;
+                int z = random.nextInt(40) - 20;
+                long key = PositionQueue.pack(x, y, z);
+                boolean added = !reference.contains(key);
+                assertEquals(added, queue.add(x, y, z));
+                if (added) {
+                    reference.addLast(key);
+                }
+            } else if (action < 9) {
+                if (!reference.isEmpty()) {
+                    assertEquals((long) reference.pollFirst(), queue.pollPacked());
+                }
+            } else {
+                long divisor = 2 + random.nextInt(5);
+                queue.removeIf(pos -> Math.floorMod(pos, divisor) == 0);
+                reference.removeIf(pos -> Math.floorMod(pos, divisor) == 0);
+            }
+            assertEquals(reference.size(), queue.size());
+        }
+        for (long key : reference) {
+            assertTrue(queue.containsPacked(key));
+        }
+        List<Long> order = new ArrayList<>();
+        queue.forEachPacked(order::add);
+        assertEquals(new ArrayList<>(reference), order);
+    }
+
+    @Test
+    public void growsWhileTheRingBufferIsWrapped() {
+        PositionQueue queue = new PositionQueue(16);
+        for (int i = 0; i < 16; i++) {
+            queue.add(i, 0, 0);
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals(PositionQueue.pack(i, 0, 0), queue.pollPacked());
+        }
+        // The next ten wrap round to the start of the buffer, filling it, and the one after that makes it grow.
+        for (int i = 16; i < 27; i++) {
+            assertTrue(queue.add(i, 0, 0));
+        }
+        assertEquals(17, queue.size());
+        for (int i = 10; i < 27; i++) {
+            assertTrue(queue.contains(i, 0, 0));
+        }
+        for (int i = 10; i < 27; i++) {
+            assertEquals(PositionQueue.pack(i, 0, 0), queue.pollPacked());
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void removeIfKeepsTheOrderOfTheRest() {
+        PositionQueue queue = new PositionQueue(16);
+        for (int i = 0; i < 12; i++) {
+            queue.add(i, 0, 0);
+        }
+        for (int i = 0; i < 6; i++) {
+            queue.pollPacked();
+        }
+        for (int i = 12; i < 20; i++) {
+            queue.add(i, 0, 0);
+        }
+        assertEquals(7, queue.removeIf(pos -> PositionQueue.unpackX(pos) % 2 == 0));
+        assertFalse(queue.contains(8, 0, 0));
+        for (int i = 7; i < 20; i += 2) {
+            assertEquals(PositionQueue.pack(i, 0, 0), queue.pollPacked());
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void sortOrdersByPackedValue() {
+        PositionQueue queue = new PositionQueue(16);
+        queue.add(5, 0, 0);
+        queue.add(-3, 2, 1);
+        queue.add(5, -1, 0);
+        queue.add(0, 0, 0);
+        queue.pollPacked();
+        queue.add(7, 7, 7);
+        queue.sort();
+        long previous = Long.MIN_VALUE;
+        while (!queue.isEmpty()) {
+            long pos = queue.pollPacked();
+            assertTrue(pos > previous);
+            previous = pos;
+        }
+    }
+
+    @Test
+    public void sortByBandIsStable() {
+        PositionQueue queue = new PositionQueue(16);
+        queue.add(100, 0, 0);
+        for (int i = 0; i < 20; i++) {
+            queue.add(i, 0, 0);
+        }
+        queue.pollPacked();
+        // Band by x modulo 3, in reverse, so that the sort has to move nearly everything.
+        queue.sortByBand(pos -> 2 - PositionQueue.unpackX(pos) % 3, 3);
+        assertEquals(20, queue.size());
+        for (int band = 0; band < 3; band++) {
+            for (int i = 0; i < 20; i++) {
+                if (2 - i % 3 == band) {
+                    assertEquals(PositionQueue.pack(i, 0, 0), queue.pollPacked());
+                }
+            }
+        }
+        assertTrue(queue.isEmpty());
+        queue.add(1, 0, 0);
+        assertTrue(queue.contains(1, 0, 0));
+    }
+}
@@ -0,0 +1,102 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.joml.Vector3i;
+import org.junit.jupiter.api.Test;
+import org.terasology.engine.world.block.Block;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SettledBodyDetectorTest {
+    private final Block air = new Block();
+    private final Block stone = new Block();
+    private final Block water = new Block();
+    private final ChunkTestWorld world = new ChunkTestWorld(air);
+    private final LiquidDataCodec codec = world.getStorage().getCodec();
+    private final SettledBodyDetector detector =
+        new SettledBodyDetector(world.worldProvider(), world.getStorage(), (liquid, block) -> block == air);
+    private final long[] asleep = new long[SettledBodyDetector.CHUNK_VOLUME / 64];
+
+    public SettledBodyDetectorTest() {
+        water.setLiquid(true);
+        // A stone basin with its inside from (1, 1, 1) to (8, 3, 8), open to the air above, filled to the brim.
+        world.fill(0, 0, 0, 9, 3, 9, stone, codec.getFull());
+        world.fill(1, 1, 1, 8, 3, 8, water, codec.getFull());
+    }
+
+    private boolean check(int x, int y, int z) {
+        return detector.markIfSettled(world.chunk(), new Vector3i(), x, y, z, asleep);
+    }
+
+    private int asleepCount() {
+        int count = 0;
+        for (long bits : asleep) {
+            count += Long.bitCount(bits);
+        }
+        return count;
+    }
+
+    @Test
+    public void flatOpenPoolIsSettled() {
+        assertTrue(check(4, 3, 4));
+        assertEquals(8 * 3 * 8, asleepCount());
+        assertTrue((asleep[SettledBodyDetector.cellIndex(1, 3, 8) >> 6] & 1L << SettledBodyDetector.cellIndex(1, 3, 8)) != 0);
+    }
+
+    @Test
+    public void poolWithASurfaceWithinOneUnitIsSettled() {
+        world.fill(1, 3, 1, 8, 3, 4, water, codec.setHeight(codec.getFull(), codec.getMaxHeight() - 1));
+        assertTrue(check(1, 1, 1));
+    }
+
+    @Test
+    public void partlyFilledPoolIsSettled() {
+        // Only the surface has to be level: the full blocks below it are lower down, not higher.
+        world.fill(1, 3, 1, 8, 3, 8, water, codec.setHeight(codec.getFull(), codec.getMaxHeight() / 2));
+        world.setStatus(3, 3, 6, codec.setHeight(codec.getFull(), codec.getMaxHeight() / 2 + 1));
+        assertTrue(check(4, 1, 4));
+        assertEquals(8 * 3 * 8, asleepCount());
+    }
+
+    @Test
+    public void unevenSurfaceIsntSettled() {
+        world.setStatus(5, 3, 5, codec.setHeight(codec.getFull(), codec.getMaxHeight() - 2));
+        assertFalse(check(4, 3, 4));
+        assertEquals(0, asleepCount());
+    }
+
+    @Test
+    public void flowingLiquidIsntSettled() {
+        int status = codec.setRate(codec.setDirection(codec.getFull(), SideOffsets.HORIZONTAL[0]), 1);
+        world.setStatus(2, 2, 2, status);
+        assertFalse(check(4, 3, 4));
+    }
+
+    @Test
+    public void poolWithAGapInItsWallIsntSettled() {
+        // A full block next to air would spill out sideways, and down into the empty space below the gap.
+        world.setBlock(9, 3, 4, air);
+        world.setBlock(9, 2, 4, air);
+        assertFalse(check(4, 3, 4));
+    }
+
+    @Test
+    public void thinFilmNextToAirIsSettled() {
+        // A film one unit deep can't spread any further, as long as there's nothing below the air for it to fall into.
+        world.fill(1, 1, 1, 8, 3, 8, air, codec.getFull());
+        world.fill(1, 1, 1, 4, 1, 8, water, codec.setHeight(codec.getFull(), 1));
+        assertTrue(check(2, 1, 2));
+        assertEquals(4 * 8, asleepCount());
+    }
+
+    @Test
+    public void deeperLiquidNextToAirIsntSettled() {
+        world.fill(1, 1, 1, 8, 3, 8, air, codec.getFull());
+        world.fill(1, 1, 1, 4, 1, 8, water, codec.setHeight(codec.getFull(), 2));
+        assertFalse(check(2, 1, 2));
+    }
+}
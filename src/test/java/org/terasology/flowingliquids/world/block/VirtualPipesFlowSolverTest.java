@@ -0,0 +1,33 @@
+// Copyright 2026 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+
+package org.terasology.flowingliquids.world.block;
+
+import org.junit.jupiter.api.Test;
+
+public class VirtualPipesFlowSolverTest {
+    private final ConservationTester tester = new ConservationTester();
+    private final VirtualPipesFlowSolver solver = new VirtualPipesFlowSolver(tester.flowSystem,
+        new CellularFlowSolver(tester.flowSystem, tester.blockManager), tester.blockManager);
+
+    private void assertConserved(FlowBenchmark.Scenario scenario) {
+        for (LiquidDataCodec codec : LiquidDataCodec.values()) {
+            tester.assertConserved(scenario, codec, solver, (world, positions, evenTick) -> { });
+        }
+    }
+
+    @Test
+    public void damBreakConservesVolume() {
+        assertConserved(FlowBenchmark.Scenario.DAM_BREAK);
+    }
+
+    @Test
+    public void waterfallConservesVolume() {
+        assertConserved(FlowBenchmark.Scenario.WATERFALL);
+    }
+
+    @Test
+    public void pitFillConservesVolume() {
+        assertConserved(FlowBenchmark.Scenario.PIT_FILL);
+    }
+}